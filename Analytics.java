@@ -0,0 +1,542 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.IsoFields;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Auswertungen über alle Benutzer im Verzeichnis {@code users/}.
+ *
+ * Eine {@link Query} legt fest, welche Kennzahl je Benutzer berechnet wird ({@link Metric}) und
+ * wonach gruppiert wird ({@link GroupBy}). Benutzer und ihre Übungen werden mit einem Fork-Join-Pool
+ * verteilt: jede Teilaufgabe liest das Protokoll einer Übung direkt und blockweise mit einem
+ * {@link RecordCursor} (ohne den Cache zu verdrängen), sammelt ihre Werte lokal und die Teilergebnisse
+ * werden erst je Benutzer und am Ende zusammengeführt. Die Übungen werden direkt aus dem Verzeichnis
+ * gelesen, ohne sie im {@link ExerciseCatalog} anzumelden. Je Gruppe liefert das {@link Result} dann Summe, Mittelwert, Perzentile
+ * und die besten Benutzer.
+ *
+ * Beispiele: Gesamtvolumen je Woche ({@code VOLUME} nach {@code WEEK}, Summe), stärkste Benutzer
+ * je Übung ({@code MAX_WEIGHT} nach {@code EXERCISE}, Top-N), durchschnittlicher Fortschritt
+ * ({@code PROGRESSION} nach {@code EXERCISE}, Mittelwert).
+ */
+public class Analytics {
+
+    /**
+     * Kennzahl je Benutzer und Gruppe.
+     */
+    public enum Metric {
+        /** Summe aus Wiederholungen × Gewicht über alle Sätze */
+        VOLUME,
+        /** Anzahl der Sätze */
+        SETS,
+        /** Anzahl der Trainingstage */
+        SESSIONS,
+        /** Höchstes Gewicht eines Satzes */
+        MAX_WEIGHT,
+        /** Veränderung des Gewichts im ersten Satz pro Woche, vom ersten bis zum letzten Datensatz */
+        PROGRESSION
+    }
+
+    public enum GroupBy {
+        /** Eine einzige Gruppe über alles */
+        NONE,
+        EXERCISE,
+        /** ISO-Woche, z.B. 2026-W03 */
+        WEEK,
+        EXERCISE_AND_WEEK
+    }
+
+    /**
+     * Beschreibung einer Auswertung.
+     */
+    public static class Query {
+        final Metric metric;
+        final GroupBy groupBy;
+        String exercise;
+
+        public Query(Metric metric, GroupBy groupBy) {
+            this.metric = Objects.requireNonNull(metric);
+            this.groupBy = Objects.requireNonNull(groupBy);
+        }
+
+        /**
+         * Beschränkt die Auswertung auf eine Übung.
+         */
+        public Query exercise(String exName) {
+            this.exercise = exName;
+            return this;
+        }
+    }
+
+    /**
+     * Ergebnis einer Auswertung, Gruppen nach Schlüssel sortiert.
+     */
+    public static class Result {
+        private final Map<String, Group> groups;
+
+        Result(Map<String, Group> groups) {
+            this.groups = groups;
+        }
+
+        public Set<String> keys() {
+            return groups.keySet();
+        }
+
+        /**
+         * @return Werte der Gruppe oder null, wenn es keine Werte dazu gibt
+         */
+        public Group get(String key) {
+            return groups.get(key);
+        }
+
+        public Collection<Group> groups() {
+            return groups.values();
+        }
+    }
+
+    /**
+     * Werte aller Benutzer in einer Gruppe, aufsteigend sortiert.
+     */
+    public static class Group {
+        public final String key;
+        private final String[] users;
+        private final double[] values;
+
+        Group(String key, String[] users, double[] values) {
+            this.key = key;
+            this.users = users;
+            this.values = values;
+        }
+
+        /** Anzahl der Benutzer mit einem Wert in dieser Gruppe */
+        public int count() {
+            return values.length;
+        }
+
+        public double sum() {
+            double sum = 0;
+            for (double value : values) sum += value;
+            return sum;
+        }
+
+        public double mean() {
+            return sum() / values.length;
+        }
+
+        public double min() {
+            return values[0];
+        }
+
+        public double max() {
+            return values[values.length - 1];
+        }
+
+        /**
+         * Perzentil mit linearer Interpolation.
+         * @param p zwischen 0 und 100
+         */
+        public double percentile(double p) {
+            if (p < 0 || p > 100) {
+                throw new IllegalArgumentException("Perzentil muss zwischen 0 und 100 liegen.");
+            }
+            double rank = p / 100 * (values.length - 1);
+            int lower = (int) Math.floor(rank);
+            int upper = (int) Math.ceil(rank);
+            return values[lower] + (values[upper] - values[lower]) * (rank - lower);
+        }
+
+        /**
+         * Die n Benutzer mit den höchsten Werten, bester zuerst.
+         */
+        public List<Map.Entry<String, Double>> top(int n) {
+            List<Map.Entry<String, Double>> top = new ArrayList<>();
+            for (int i = values.length - 1; i >= 0 && top.size() < n; i--) {
+                top.add(new AbstractMap.SimpleImmutableEntry<>(users[i], values[i]));
+            }
+            return top;
+        }
+    }
+
+    /**
+     * Führt die Auswertung im gemeinsamen Fork-Join-Pool aus.
+     */
+    public static Result run(Query query) {
+        return run(query, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Führt die Auswertung im angegebenen Pool aus.
+     */
+    public static Result run(Query query, ForkJoinPool pool) {
+        // Noch gesammelte Zeilen zuerst schreiben, die Protokolle werden direkt gelesen
+        RecordAppender.getDefault().flushAll();
+        String[] users = new File(FitnessApp.BASE_DIR).list((dir, name) -> new File(dir, name).isDirectory());
+        if (users == null) {
+            users = new String[0];
+        }
+        Arrays.sort(users);
+        Partial partial = pool.invoke(new UsersTask(query, users, 0, users.length));
+
+        Map<String, Group> groups = new TreeMap<>();
+        for (Map.Entry<String, Values> entry : partial.groups.entrySet()) {
+            groups.put(entry.getKey(), entry.getValue().toGroup(entry.getKey()));
+        }
+        return new Result(groups);
+    }
+
+    /**
+     * Teilt den Bereich der Benutzer so lange, bis jede Aufgabe nur noch einen Benutzer enthält;
+     * dessen Übungen werden dann wiederum mit {@link ExercisesTask} verteilt.
+     */
+    private static class UsersTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final Query query;
+        private final String[] users;
+        private final int from;
+        private final int to;
+
+        UsersTask(Query query, String[] users, int from, int to) {
+            this.query = query;
+            this.users = users;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= 1) {
+                Partial partial = new Partial();
+                if (from < to) {
+                    String[] exercises = query.exercise != null ? new String[] { query.exercise } : listExercises(users[from]);
+                    Map<String, Accumulator> accumulators =
+                            new ExercisesTask(query, users[from], exercises, 0, exercises.length).compute();
+                    addUser(query, users[from], accumulators, partial);
+                }
+                return partial;
+            }
+            int mid = (from + to) >>> 1;
+            UsersTask left = new UsersTask(query, users, from, mid);
+            left.fork();
+            Partial right = new UsersTask(query, users, mid, to).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    /**
+     * Teilt die Übungen eines Benutzers, bis jede Aufgabe nur noch eine Übung enthält, und führt deren
+     * Werte je Gruppe zusammen.
+     */
+    private static class ExercisesTask extends RecursiveTask<Map<String, Accumulator>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Query query;
+        private final String username;
+        private final String[] exercises;
+        private final int from;
+        private final int to;
+
+        ExercisesTask(Query query, String username, String[] exercises, int from, int to) {
+            this.query = query;
+            this.username = username;
+            this.exercises = exercises;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<String, Accumulator> compute() {
+            if (to - from <= 1) {
+                Map<String, Accumulator> accumulators = new HashMap<>();
+                if (from < to) {
+                    evaluateExercise(query, username, exercises[from], accumulators);
+                }
+                return accumulators;
+            }
+            int mid = (from + to) >>> 1;
+            ExercisesTask left = new ExercisesTask(query, username, exercises, from, mid);
+            left.fork();
+            Map<String, Accumulator> right = new ExercisesTask(query, username, exercises, mid, to).compute();
+            Map<String, Accumulator> merged = left.join();
+            for (Map.Entry<String, Accumulator> entry : right.entrySet()) {
+                merged.merge(entry.getKey(), entry.getValue(), Accumulator::merge);
+            }
+            return merged;
+        }
+    }
+
+    // Übungen eines Benutzers direkt aus dem Verzeichnis, sortiert
+    private static String[] listExercises(String username) {
+        String[] files = new File(FitnessApp.BASE_DIR, username).list((dir, name) -> name.endsWith(".txt")
+                && new File(dir, name).isFile());
+        if (files == null) {
+            return new String[0];
+        }
+        for (int i = 0; i < files.length; i++) {
+            files[i] = files[i].substring(0, files[i].length() - ".txt".length());
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    // Liest das Protokoll einer Übung und ergänzt die Werte ihrer Gruppen
+    private static void evaluateExercise(Query query, String username, String exName, Map<String, Accumulator> accumulators) {
+        File exFile = new File(FitnessApp.BASE_DIR + File.separator + username, exName + ".txt");
+        if (!exFile.isFile()) return;
+        // Die Kennzahl PROGRESSION bezieht sich immer auf eine Übung
+        Map<String, Accumulator> perExercise = query.metric == Metric.PROGRESSION ? new HashMap<>() : accumulators;
+        Map<String, LocalDate> parsedDates = new HashMap<>();
+        String lastDate = null;
+        LocalDate lastParsed = null;
+        // Blockweise gelesen, der Speicherbedarf hängt nicht von der Länge des Protokolls ab
+        try (RecordCursor records = RecordCursor.open(exFile, new RecordScan())) {
+            while (records.hasNext()) {
+                FitnessApp.Record record = records.next();
+                if (record.date != lastDate) { // Gleiche Daten teilen sich denselben String (RecordParser)
+                    lastDate = record.date;
+                    lastParsed = parsedDates.computeIfAbsent(record.date, Analytics::parseDate);
+                }
+                if (lastParsed == null && query.groupBy != GroupBy.NONE && query.groupBy != GroupBy.EXERCISE) {
+                    continue;
+                }
+                String key = groupKey(query.groupBy, exName, lastParsed);
+                perExercise.computeIfAbsent(key, k -> new Accumulator()).add(record, lastParsed);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error reading records: " + e.getMessage());
+            return;
+        }
+        if (perExercise != accumulators) {
+            mergeProgression(perExercise, accumulators);
+        }
+    }
+
+    // Übernimmt die Werte eines Benutzers je Gruppe ins Teilergebnis
+    private static void addUser(Query query, String username, Map<String, Accumulator> accumulators, Partial partial) {
+        for (Map.Entry<String, Accumulator> entry : accumulators.entrySet()) {
+            Accumulator accumulator = entry.getValue();
+            if (!accumulator.hasValue(query.metric)) continue;
+            partial.groups.computeIfAbsent(entry.getKey(), k -> new Values())
+                    .add(username, accumulator.value(query.metric));
+        }
+    }
+
+    // Fortschritt mehrerer Übungen in derselben Gruppe (z.B. WEEK) wird gemittelt
+    private static void mergeProgression(Map<String, Accumulator> perExercise, Map<String, Accumulator> target) {
+        for (Map.Entry<String, Accumulator> entry : perExercise.entrySet()) {
+            if (!entry.getValue().hasValue(Metric.PROGRESSION)) continue;
+            Accumulator merged = target.computeIfAbsent(entry.getKey(), k -> new Accumulator());
+            merged.progressionSum += entry.getValue().value(Metric.PROGRESSION);
+            merged.progressionCount++;
+        }
+    }
+
+    private static String groupKey(GroupBy groupBy, String exName, LocalDate date) {
+        switch (groupBy) {
+            case EXERCISE:
+                return exName;
+            case WEEK:
+                return week(date);
+            case EXERCISE_AND_WEEK:
+                return exName + " " + week(date);
+            default:
+                return "alle";
+        }
+    }
+
+    private static String week(LocalDate date) {
+        return String.format("%d-W%02d", date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+    }
+
+    private static LocalDate parseDate(String date) {
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Laufende Werte eines Benutzers in einer Gruppe.
+     */
+    private static class Accumulator {
+        long volume;
+        long sets;
+        // Verschiedene Trainingstage (Epochentage), auch über Übungen und nachgetragene Datensätze hinweg
+        Set<Long> sessionDays;
+        long lastSessionDay = Long.MIN_VALUE;
+        int maxWeight = Integer.MIN_VALUE;
+        LocalDate firstDate;
+        int firstWeight;
+        LocalDate lastDate;
+        int lastWeight;
+        // Gemittelter Fortschritt über mehrere Übungen
+        double progressionSum;
+        int progressionCount;
+
+        void add(FitnessApp.Record record, LocalDate date) {
+            for (int i = 0; i + 1 < record.size(); i += 2) {
+                int reps = record.get(i);
+                int weight = record.get(i + 1);
+                volume += (long) reps * weight;
+                sets++;
+                maxWeight = Math.max(maxWeight, weight);
+            }
+            if (date != null && date.toEpochDay() != lastSessionDay) {
+                lastSessionDay = date.toEpochDay();
+                if (sessionDays == null) sessionDays = new HashSet<>();
+                sessionDays.add(lastSessionDay);
+            }
+            // Nach Datum statt Dateireihenfolge, falls Datensätze nachgetragen wurden
+            if (date != null && record.size() > 1) {
+                if (firstDate == null || date.isBefore(firstDate)) {
+                    firstDate = date;
+                    firstWeight = record.get(1);
+                }
+                if (lastDate == null || !date.isBefore(lastDate)) {
+                    lastDate = date;
+                    lastWeight = record.get(1);
+                }
+            }
+        }
+
+        // Werte derselben Gruppe aus einer anderen Übung
+        Accumulator merge(Accumulator other) {
+            volume += other.volume;
+            sets += other.sets;
+            if (other.sessionDays != null) {
+                if (sessionDays == null) sessionDays = new HashSet<>();
+                sessionDays.addAll(other.sessionDays);
+            }
+            maxWeight = Math.max(maxWeight, other.maxWeight);
+            if (other.firstDate != null && (firstDate == null || other.firstDate.isBefore(firstDate))) {
+                firstDate = other.firstDate;
+                firstWeight = other.firstWeight;
+            }
+            if (other.lastDate != null && (lastDate == null || !other.lastDate.isBefore(lastDate))) {
+                lastDate = other.lastDate;
+                lastWeight = other.lastWeight;
+            }
+            progressionSum += other.progressionSum;
+            progressionCount += other.progressionCount;
+            return this;
+        }
+
+        boolean hasValue(Metric metric) {
+            switch (metric) {
+                case MAX_WEIGHT:
+                    return sets > 0;
+                case PROGRESSION:
+                    return progressionCount > 0 || (firstDate != null && lastDate.isAfter(firstDate));
+                default:
+                    return true;
+            }
+        }
+
+        double value(Metric metric) {
+            switch (metric) {
+                case VOLUME:
+                    return volume;
+                case SETS:
+                    return sets;
+                case SESSIONS:
+                    return sessionDays == null ? 0 : sessionDays.size();
+                case MAX_WEIGHT:
+                    return maxWeight;
+                default:
+                    if (progressionCount > 0) {
+                        return progressionSum / progressionCount;
+                    }
+                    long days = ChronoUnit.DAYS.between(firstDate, lastDate);
+                    return (lastWeight - firstWeight) * 7.0 / days;
+            }
+        }
+    }
+
+    /**
+     * Teilergebnis einer Aufgabe: je Gruppe die Werte der bearbeiteten Benutzer.
+     */
+    private static class Partial {
+        final Map<String, Values> groups = new HashMap<>();
+
+        Partial merge(Partial other) {
+            for (Map.Entry<String, Values> entry : other.groups.entrySet()) {
+                Values values = groups.get(entry.getKey());
+                if (values == null) {
+                    groups.put(entry.getKey(), entry.getValue());
+                } else {
+                    values.addAll(entry.getValue());
+                }
+            }
+            return this;
+        }
+    }
+
+    private static class Values {
+        String[] users = new String[4];
+        double[] values = new double[4];
+        int size;
+
+        void add(String username, double value) {
+            if (size == values.length) {
+                users = Arrays.copyOf(users, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            users[size] = username;
+            values[size] = value;
+            size++;
+        }
+
+        void addAll(Values other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.users[i], other.values[i]);
+            }
+        }
+
+        // Nach Wert sortiert, bei Gleichstand nach Benutzername
+        Group toGroup(String key) {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> {
+                int c = Double.compare(values[a], values[b]);
+                return c != 0 ? c : users[b].compareTo(users[a]);
+            });
+            String[] sortedUsers = new String[size];
+            double[] sortedValues = new double[size];
+            for (int i = 0; i < size; i++) {
+                sortedUsers[i] = users[order[i]];
+                sortedValues[i] = values[order[i]];
+            }
+            return new Group(key, sortedUsers, sortedValues);
+        }
+    }
+
+    /**
+     * Kommandozeile: {@code java Analytics <Kennzahl> <Gruppierung> [Übung]},
+     * z.B. {@code java Analytics VOLUME WEEK} oder {@code java Analytics MAX_WEIGHT EXERCISE Bank}.
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Aufruf: Analytics " + Arrays.toString(Metric.values()) + " "
+                    + Arrays.toString(GroupBy.values()) + " [Übung]");
+            System.exit(2);
+        }
+        Query query = new Query(Metric.valueOf(args[0].toUpperCase()), GroupBy.valueOf(args[1].toUpperCase()));
+        if (args.length > 2) {
+            query.exercise(args[2]);
+        }
+        long start = System.nanoTime();
+        Result result = run(query);
+        for (Group group : result.groups()) {
+            System.out.printf(Locale.ROOT, "%-24s n=%-6d summe=%-12.1f mittel=%-10.2f p50=%-10.2f p90=%-10.2f top=%s%n",
+                    group.key, group.count(), group.sum(), group.mean(), group.percentile(50),
+                    group.percentile(90), group.top(3));
+        }
+        System.out.println(result.groups().size() + " Gruppen in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+    }
+}
@@ -0,0 +1,721 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.*;
+
+/**
+ * Archiv für alte Datensätze einer Übung ("kalte" Schicht neben dem Protokoll).
+ *
+ * Die Kompaktierung verschiebt den ältesten Teil des Protokolls, also alle Zeilen vom Dateianfang bis
+ * zum ersten Datensatz, der jünger als die Grenze ist, als Segment in die Datei {@code <Übung>.archive}.
+ * Eine Zeile, die sich nicht als Datensatz lesen lässt, beendet den archivierbaren Teil ebenfalls und
+ * bleibt mit allem danach im Protokoll; nur leere Zeilen fallen weg.
+ * Ein Segment enthält die Datensätze delta-kodiert (Tage seit dem vorigen Datum, Werte als Differenz
+ * zum gleichen Wert des vorigen Datensatzes, jeweils als variabel lange Zahl) und mit Deflate komprimiert.
+ * Das Protokoll selbst wird danach an Ort und Stelle verkürzt (der Rest nach vorne kopiert), damit
+ * offene Kanäle anderer Schreiber gültig bleiben; dabei wird es wie beim Schreiben gesperrt.
+ *
+ * Ein großer Anfang wird auf mehrere Segmente zu je etwa 1 MB Protokoll verteilt und blockweise gelesen.
+ * Die Segmente werden zuerst als "in Arbeit" angehängt und erst nach dem Verkürzen als fertig markiert.
+ * Bricht die Kompaktierung ab, wird sie beim nächsten Lauf zu Ende geführt bzw., falls noch nicht alle
+ * Segmente geschrieben waren, verworfen. Kompaktiert wird nur,
+ * wenn der Rest kürzer als der archivierte Teil ist: Das Kopieren lässt dann die Quelle und die alten
+ * Bytes hinter dem kopierten Rest unberührt. Eine Prüfsumme über diese Bytes im Segment zeigt, ob das
+ * Protokoll schon verkürzt wurde, auch wenn seitdem weitere Datensätze angehängt wurden.
+ *
+ * Lesende Aufrufe in {@link FitnessApp} setzen Archiv und Protokoll in Dateireihenfolge zusammen.
+ * Die Kompaktierung läuft als Hintergrundjob ({@link #startBackgroundCompaction()}); das Alter wird über
+ * {@code fitness.archiveAfterDays} (365, 0 = aus) und das Intervall über
+ * {@code fitness.archiveIntervalHours} (24) eingestellt.
+ */
+public class Archive {
+
+    public static final String EXTENSION = ".archive";
+
+    private static final int MAGIC = 0x46544152; // "FTAR"
+    private static final int PENDING = 0;
+    private static final int DONE = 1;
+    // Segment einer Kompaktierung, deren letztes (PENDING) Segment noch nicht geschrieben ist
+    private static final int PARTIAL = 2;
+    // MAGIC, state, recordCount, minDay, maxDay, prefixLength, remainderLength, markCrc, payloadLength, payloadCrc
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 4 + 8 + 8 + 4 + 4 + 4;
+    // Länge der alten Bytes hinter dem Rest, an denen ein unverkürztes Protokoll erkannt wird
+    private static final int MARK_LENGTH = 4096;
+    private static final int STATE_OFFSET = 4;
+
+    // Kleinere Anteile lohnen kein eigenes Segment
+    private static final long MIN_ARCHIVE_BYTES = 64 * 1024;
+    // Ungefähr so viele Bytes des Protokolls fasst ein Segment; größere Anfänge werden auf mehrere verteilt
+    private static final long SEGMENT_BYTES = 1024 * 1024;
+
+    private static ScheduledExecutorService compactor;
+
+    /**
+     * Alle archivierten Datensätze einer Übung in Dateireihenfolge.
+     * Der Aufrufer hält die Lesesperre des Protokolls ({@link FileLocks#read}).
+     * @param exFile Protokolldatei der Übung
+     */
+    public static List<FitnessApp.Record> read(File exFile) throws IOException {
+        return readRange(exFile, null, null);
+    }
+
+    /**
+     * Archivierte Datensätze mit {@code from <= datum <= to}; nur Segmente, deren Zeitraum den
+     * Bereich berührt, werden entpackt.
+     */
+    public static List<FitnessApp.Record> readRange(File exFile, String from, String to) throws IOException {
+        if (!archiveFile(exFile).exists()) {
+            return Collections.emptyList();
+        }
+        List<FitnessApp.Record> records = new ArrayList<>();
+        try (Reader reader = new Reader(exFile, from, to)) {
+            List<FitnessApp.Record> segment;
+            while ((segment = reader.next()) != null) {
+                records.addAll(segment);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Liest die archivierten Datensätze segmentweise, damit nie mehr als ein Segment im Speicher liegt
+     * (siehe {@link RecordCursor}). Die Liste der Segmente wird beim Öffnen festgehalten.
+     * Der Aufrufer hält bei jedem Aufruf die Lesesperre des Protokolls.
+     */
+    static final class Reader implements Closeable {
+        private final File exFile;
+        private final String from;
+        private final String to;
+        private final Integer fromDay;
+        private final Integer toDay;
+        private final FileChannel channel;
+        private final List<Segment> segments;
+        private int nextSegment;
+
+        Reader(File exFile, String from, String to) throws IOException {
+            this.exFile = exFile;
+            this.from = from;
+            this.to = to;
+            this.fromDay = from == null ? null : epochDayOrNull(from);
+            this.toDay = to == null ? null : epochDayOrNull(to);
+            File archive = archiveFile(exFile);
+            if (archive.exists()) {
+                this.channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ);
+                try {
+                    this.segments = segments(channel, false);
+                } catch (IOException e) {
+                    channel.close();
+                    throw e;
+                }
+            } else {
+                this.channel = null;
+                this.segments = Collections.emptyList();
+            }
+        }
+
+        /**
+         * @return Datensätze des nächsten Segments im Bereich (kann leer sein) oder null am Ende
+         */
+        List<FitnessApp.Record> next() throws IOException {
+            while (nextSegment < segments.size()) {
+                Segment segment = segments.get(nextSegment++);
+                // Ein unfertiges Segment zählt erst, wenn das Protokoll schon verkürzt wurde
+                if (fromDay != null && segment.maxDay < fromDay) continue;
+                if (toDay != null && segment.minDay > toDay) continue;
+                if (segment.state != DONE && !segment.truncated(exFile)) continue;
+                List<FitnessApp.Record> records = segment.decode(channel);
+                if (from != null || to != null) {
+                    records.removeIf(record -> (from != null && record.date.compareTo(from) < 0)
+                            || (to != null && record.date.compareTo(to) > 0));
+                }
+                return records;
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Liest die archivierten Datensätze neueste zuerst, z.B. für eine Seite, die ins Archiv reicht.
+     * Die Segmente werden vom Ende her nur so weit entpackt, wie Datensätze gebraucht werden;
+     * beim Überspringen fallen ganze Segmente ohne Entpacken weg (die Anzahl steht im Kopf).
+     * Der Aufrufer hält die Lesesperre des Protokolls.
+     */
+    static final class ReverseReader implements Closeable {
+        private final File exFile;
+        private final FileChannel channel;
+        private final List<Segment> segments;
+        private int nextSegment;
+        private List<FitnessApp.Record> current = Collections.emptyList();
+        // Anzahl der noch nicht gelieferten Datensätze in 'current'
+        private int remaining;
+
+        ReverseReader(File exFile) throws IOException {
+            this.exFile = exFile;
+            File archive = archiveFile(exFile);
+            if (archive.exists()) {
+                this.channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ);
+                try {
+                    this.segments = segments(channel, false);
+                } catch (IOException e) {
+                    channel.close();
+                    throw e;
+                }
+            } else {
+                this.channel = null;
+                this.segments = Collections.emptyList();
+            }
+            this.nextSegment = segments.size() - 1;
+        }
+
+        /**
+         * Überspringt bis zu {@code n} Datensätze.
+         * @return Anzahl der tatsächlich übersprungenen Datensätze
+         */
+        int skip(int n) throws IOException {
+            int skipped = 0;
+            while (skipped < n) {
+                if (remaining > 0) {
+                    int step = Math.min(n - skipped, remaining);
+                    remaining -= step;
+                    skipped += step;
+                    continue;
+                }
+                Segment segment = previousSegment();
+                if (segment == null) break;
+                if (segment.recordCount <= n - skipped) {
+                    skipped += segment.recordCount;
+                } else {
+                    current = segment.decode(channel);
+                    remaining = current.size();
+                }
+            }
+            return skipped;
+        }
+
+        /**
+         * @return nächstälterer Datensatz oder null am Anfang des Archivs
+         */
+        FitnessApp.Record next() throws IOException {
+            while (remaining == 0) {
+                Segment segment = previousSegment();
+                if (segment == null) return null;
+                current = segment.decode(channel);
+                remaining = current.size();
+            }
+            return current.get(--remaining);
+        }
+
+        // Ein unfertiges Segment zählt erst, wenn das Protokoll schon verkürzt wurde
+        private Segment previousSegment() throws IOException {
+            while (nextSegment >= 0) {
+                Segment segment = segments.get(nextSegment--);
+                if (segment.state == DONE || segment.truncated(exFile)) {
+                    return segment;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Verschiebt den ältesten Teil des Protokolls ins Archiv.
+     * @param username Benutzername
+     * @param exName   Name der Übung
+     * @param cutoff   Datensätze vor diesem Datum werden archiviert
+     * @return Anzahl der archivierten Datensätze
+     * @throws IOException wenn Archiv oder Protokoll nicht geschrieben werden können
+     */
+    public static int compact(String username, String exName, LocalDate cutoff) throws IOException {
+        File exFile = new File(FitnessApp.BASE_DIR + File.separator + username, exName + ".txt");
+        if (!exFile.exists()) {
+            return 0;
+        }
+        RecordAppender.getDefault().flush(exFile);
+        int archived;
+        try (FileChannel log = FileChannel.open(exFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLocks.Hold lock = FileLocks.write(exFile);
+            try {
+                recover(exFile, log);
+                archived = archivePrefix(exFile, log, cutoff);
+                if (archived > 0) {
+                    // Abgeleitete Dateien beziehen sich auf alte Positionen im Protokoll
+                    DateIndex.invalidate(exFile);
+                    Files.deleteIfExists(new File(exFile.getParentFile(), exName + ProgressionStats.EXTENSION).toPath());
+                    Files.deleteIfExists(new File(exFile.getParentFile(), exName + Rollups.EXTENSION).toPath());
+                }
+            } finally {
+                lock.release();
+            }
+        }
+        if (archived > 0) {
+            FitnessApp.getRecordCache().invalidate(username, exName);
+        }
+        return archived;
+    }
+
+    /**
+     * Kompaktiert alle Übungen aller Benutzer.
+     * @param maxAgeDays Datensätze, die älter als so viele Tage sind, werden archiviert
+     * @return Anzahl der archivierten Datensätze
+     */
+    public static int compactAll(int maxAgeDays) {
+        LocalDate cutoff = LocalDate.now().minusDays(maxAgeDays);
+        String[] users = new File(FitnessApp.BASE_DIR).list((dir, name) -> new File(dir, name).isDirectory());
+        if (users == null) return 0;
+        int archived = 0;
+        for (String username : users) {
+            for (String exName : ExerciseCatalog.list(username)) {
+                try {
+                    archived += compact(username, exName, cutoff);
+                } catch (IOException e) {
+                    System.err.println("Fehler beim Archivieren von " + username + "/" + exName + ": " + e.getMessage());
+                }
+            }
+        }
+        return archived;
+    }
+
+    /**
+     * Startet die regelmäßige Kompaktierung im Hintergrund (einmal je JVM).
+     */
+    public static synchronized void startBackgroundCompaction() {
+        int maxAgeDays = Integer.getInteger("fitness.archiveAfterDays", 365);
+        long intervalHours = Long.getLong("fitness.archiveIntervalHours", 24L);
+        if (compactor != null || maxAgeDays <= 0 || intervalHours <= 0) {
+            return;
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "archive-compaction");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            int archived = compactAll(maxAgeDays);
+            if (archived > 0) {
+                System.out.println(archived + " Datensätze archiviert.");
+            }
+        }, 1, intervalHours * 60, TimeUnit.MINUTES);
+    }
+
+    // Bestimmt den archivierbaren Anfang des Protokolls und verschiebt ihn. Das Protokoll wird zweimal
+    // blockweise gelesen (Grenze suchen, dann Segmente schreiben), damit nie mehr als ein Segment im Speicher liegt.
+    private static int archivePrefix(File exFile, FileChannel log, LocalDate cutoff) throws IOException {
+        long length = log.size();
+        long cutoffDay = cutoff.toEpochDay();
+        RecordParser parser = new RecordParser();
+        LineReader lines = new LineReader(log, length);
+        long prefix = 0;
+        int count = 0;
+        while (lines.next()) {
+            FitnessApp.Record record = parser.parseSingleLine(lines.bytes, lines.start, lines.end);
+            if (record != null) {
+                Integer day = epochDayOrNull(record.date);
+                if (day == null || day >= cutoffDay) break;
+                count++;
+            } else if (!isBlank(lines.bytes, lines.start, lines.end)) {
+                // Nicht im Archiv darstellbar: ab hier bleibt alles im Protokoll, statt die Zeile zu verlieren
+                break;
+            }
+            prefix = lines.position();
+        }
+        long remainder = length - prefix;
+        if (count == 0 || prefix < MIN_ARCHIVE_BYTES || remainder >= prefix) {
+            return 0;
+        }
+        int markCrc = markCrc(log, prefix, remainder);
+
+        File archive = archiveFile(exFile);
+        try (FileChannel out = FileChannel.open(archive.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            List<Long> segmentStarts = new ArrayList<>();
+            List<FitnessApp.Record> records = new ArrayList<>();
+            long segmentLogStart = 0;
+            lines = new LineReader(log, prefix);
+            while (lines.next()) {
+                FitnessApp.Record record = parser.parseSingleLine(lines.bytes, lines.start, lines.end);
+                if (record != null) {
+                    records.add(record);
+                }
+                if (lines.position() - segmentLogStart >= SEGMENT_BYTES && !records.isEmpty()) {
+                    segmentStarts.add(out.size());
+                    writeSegment(out, out.size(), PARTIAL, records, prefix, remainder, markCrc);
+                    records = new ArrayList<>();
+                    segmentLogStart = lines.position();
+                }
+            }
+            // Das letzte Segment trägt PENDING: erst damit ist die Kompaktierung vollständig im Archiv
+            if (records.isEmpty()) {
+                writeState(out, segmentStarts.get(segmentStarts.size() - 1), PENDING);
+            } else {
+                segmentStarts.add(out.size());
+                writeSegment(out, out.size(), PENDING, records, prefix, remainder, markCrc);
+            }
+            out.force(false);
+            moveToFront(log, prefix, length);
+            for (long segmentStart : segmentStarts) {
+                writeState(out, segmentStart, DONE);
+            }
+            out.force(false);
+        }
+        return count;
+    }
+
+    private static boolean isBlank(byte[] bytes, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] != ' ' && bytes[i] != '\t') return false;
+        }
+        return true;
+    }
+
+    // Schließt ein abgebrochenes Kompaktieren ab bzw. entfernt ein unvollständig geschriebenes Segment
+    private static void recover(File exFile, FileChannel log) throws IOException {
+        File archive = archiveFile(exFile);
+        if (!archive.exists()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            List<Segment> segments = segments(channel, true);
+            long validEnd = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).end();
+            if (validEnd < channel.size()) {
+                System.err.println("Unvollständiges Segment in '" + archive + "' verworfen.");
+                channel.truncate(validEnd);
+            }
+            if (segments.isEmpty()) {
+                return;
+            }
+            int first = segments.size();
+            while (first > 0 && segments.get(first - 1).state != DONE) {
+                first--;
+            }
+            if (first == segments.size()) {
+                return;
+            }
+            Segment last = segments.get(segments.size() - 1);
+            if (last.state == PARTIAL) {
+                // Abbruch vor dem letzten Segment: Das Protokoll ist noch unberührt
+                System.err.println("Unvollständige Kompaktierung in '" + archive + "' verworfen.");
+                channel.truncate(segments.get(first).start);
+                channel.force(false);
+                return;
+            }
+            if (!last.truncated(log)) {
+                moveToFront(log, last.prefixLength, log.size());
+            }
+            for (Segment segment : segments.subList(first, segments.size())) {
+                writeState(channel, segment.start, DONE);
+            }
+            channel.force(false);
+        }
+    }
+
+    // Kopiert [from, length) an den Anfang und kürzt die Datei. Vorwärts in Blöcken kleiner als 'from',
+    // damit kein noch ungelesener Teil überschrieben wird.
+    private static void moveToFront(FileChannel log, long from, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long read = from;
+        long write = 0;
+        while (read < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - read));
+            int n = log.read(buffer, read);
+            if (n <= 0) break;
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                write += log.write(buffer, write);
+            }
+            read += n;
+        }
+        log.truncate(write);
+        log.force(false);
+    }
+
+    private static void writeSegment(FileChannel out, long position, int state, List<FitnessApp.Record> records,
+                                     long prefixLength, long remainderLength, int markCrc) throws IOException {
+        ByteArrayOutputStream raw = new ByteArrayOutputStream();
+        int minDay = Integer.MAX_VALUE;
+        int maxDay = Integer.MIN_VALUE;
+        try (DataOutputStream data = new DataOutputStream(new DeflaterOutputStream(raw))) {
+            int previousDay = 0;
+            int[] previous = new int[0];
+            for (FitnessApp.Record record : records) {
+                int day = epochDayOrNull(record.date);
+                minDay = Math.min(minDay, day);
+                maxDay = Math.max(maxDay, day);
+                writeVarLong(data, zigZag(day - previousDay));
+                writeVarLong(data, record.size());
+                int[] values = new int[record.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = record.get(i);
+                    writeVarLong(data, zigZag(values[i] - (i < previous.length ? previous[i] : 0L)));
+                }
+                previousDay = day;
+                previous = values;
+            }
+        }
+        byte[] payload = raw.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.putInt(MAGIC).putInt(state).putInt(records.size()).putInt(minDay).putInt(maxDay)
+                .putLong(prefixLength).putLong(remainderLength).putInt(markCrc).putInt(payload.length).putInt((int) crc.getValue())
+                .put(payload).flip();
+        while (buffer.hasRemaining()) {
+            position += out.write(buffer, position);
+        }
+    }
+
+    private static void writeState(FileChannel channel, long segmentStart, int state) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4).putInt(state);
+        buffer.flip();
+        channel.write(buffer, segmentStart + STATE_OFFSET);
+    }
+
+    // Liest alle vollständigen Segmente (Kopf und, mit 'verify', Prüfsumme stimmen). Leser prüfen die
+    // Prüfsumme erst beim Entpacken, damit das Öffnen nicht das ganze Archiv liest.
+    private static List<Segment> segments(FileChannel channel, boolean verify) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        long position = 0;
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(channel, header, position);
+            header.flip();
+            if (header.getInt() != MAGIC) break;
+            Segment segment = new Segment(position, header.getInt(), header.getInt(), header.getInt(), header.getInt(),
+                    header.getLong(), header.getLong(), header.getInt(), header.getInt(), header.getInt());
+            if (segment.end() > size || (verify && !segment.checksumMatches(channel))) break;
+            segments.add(segment);
+            position = segment.end();
+        }
+        return segments;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + buffer.position());
+            if (n < 0) throw new EOFException();
+        }
+    }
+
+    private static class Segment {
+        final long start;
+        final int state;
+        final int recordCount;
+        final int minDay;
+        final int maxDay;
+        final long prefixLength;
+        final long remainderLength;
+        final int markCrc;
+        final int payloadLength;
+        final int payloadCrc;
+
+        Segment(long start, int state, int recordCount, int minDay, int maxDay, long prefixLength,
+                long remainderLength, int markCrc, int payloadLength, int payloadCrc) {
+            this.start = start;
+            this.state = state;
+            this.recordCount = recordCount;
+            this.minDay = minDay;
+            this.maxDay = maxDay;
+            this.prefixLength = prefixLength;
+            this.remainderLength = remainderLength;
+            this.markCrc = markCrc;
+            this.payloadLength = payloadLength;
+            this.payloadCrc = payloadCrc;
+        }
+
+        long end() {
+            return start + HEADER_SIZE + payloadLength;
+        }
+
+        // Unverkürzt stehen hinter dem (ggf. schon kopierten) Rest noch die alten Bytes des Anfangs
+        boolean truncated(FileChannel log) throws IOException {
+            long length = log.size();
+            if (length < prefixLength + remainderLength) {
+                return true;
+            }
+            return markCrc(log, prefixLength, remainderLength) != markCrc;
+        }
+
+        boolean truncated(File exFile) throws IOException {
+            try (FileChannel log = FileChannel.open(exFile.toPath(), StandardOpenOption.READ)) {
+                return truncated(log);
+            }
+        }
+
+        byte[] payload(FileChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(payloadLength);
+            readFully(channel, buffer, start + HEADER_SIZE);
+            Metrics.BYTES_READ.add(payloadLength);
+            return buffer.array();
+        }
+
+        boolean checksumMatches(FileChannel channel) throws IOException {
+            return checksumMatches(payload(channel));
+        }
+
+        private boolean checksumMatches(byte[] payload) {
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            return (int) crc.getValue() == payloadCrc;
+        }
+
+        List<FitnessApp.Record> decode(FileChannel channel) throws IOException {
+            byte[] payload = payload(channel);
+            if (!checksumMatches(payload)) {
+                throw new IOException("Segment an Position " + start + " ist beschädigt");
+            }
+            List<FitnessApp.Record> records = new ArrayList<>(recordCount);
+            try (DataInputStream data = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(payload)))) {
+                int day = 0;
+                int[] previous = new int[0];
+                String date = null;
+                for (int r = 0; r < recordCount; r++) {
+                    int delta = (int) unZigZag(readVarLong(data));
+                    if (date == null || delta != 0) {
+                        day += delta;
+                        date = LocalDate.ofEpochDay(day).toString();
+                    }
+                    int[] values = new int[(int) readVarLong(data)];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = (int) ((i < previous.length ? previous[i] : 0L) + unZigZag(readVarLong(data)));
+                    }
+                    records.add(new FitnessApp.Record(date, values, 0, values.length));
+                    previous = values;
+                }
+            }
+            return records;
+        }
+    }
+
+    // Prüfsumme über die Bytes [remainderLength, min(prefixLength, remainderLength + MARK_LENGTH)) des Protokolls
+    private static int markCrc(FileChannel log, long prefixLength, long remainderLength) throws IOException {
+        long markEnd = Math.min(prefixLength, remainderLength + MARK_LENGTH);
+        ByteBuffer mark = ByteBuffer.allocate((int) (markEnd - remainderLength));
+        readFully(log, mark, remainderLength);
+        CRC32 crc = new CRC32();
+        crc.update(mark.array());
+        return (int) crc.getValue();
+    }
+
+    // Liest das Protokoll bis 'limit' zeilenweise in Blöcken; eine Zeile ohne '\n' am Ende wird nicht geliefert
+    private static final class LineReader {
+        private final FileChannel log;
+        private final long limit;
+        byte[] bytes = new byte[64 * 1024];
+        // Aktuelle Zeile in 'bytes' ohne Zeilenende
+        int start;
+        int end;
+        private long bufferPosition;
+        private int filled;
+        private int next;
+
+        LineReader(FileChannel log, long limit) {
+            this.log = log;
+            this.limit = limit;
+        }
+
+        boolean next() throws IOException {
+            int scanned = next;
+            while (true) {
+                for (int i = scanned; i < filled; i++) {
+                    if (bytes[i] != '\n') continue;
+                    start = next;
+                    end = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+                    next = i + 1;
+                    return true;
+                }
+                long loaded = bufferPosition + filled;
+                if (loaded >= limit) return false;
+                System.arraycopy(bytes, next, bytes, 0, filled - next);
+                bufferPosition += next;
+                filled -= next;
+                next = 0;
+                scanned = filled;
+                if (filled == bytes.length) { // Zeile länger als der Puffer
+                    bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, filled, (int) Math.min(bytes.length - filled, limit - loaded));
+                int n = log.read(buffer, loaded);
+                if (n <= 0) return false;
+                filled += n;
+            }
+        }
+
+        // Position hinter der aktuellen Zeile
+        long position() {
+            return bufferPosition + next;
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Ungültige Zahl im Archiv");
+    }
+
+    // Nur Daten, die exakt als yyyy-MM-dd zurückgeschrieben werden können, sind archivierbar
+    private static Integer epochDayOrNull(String date) {
+        try {
+            LocalDate parsed = LocalDate.parse(date);
+            return parsed.toString().equals(date) ? (int) parsed.toEpochDay() : null;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    static File archiveFile(File exFile) {
+        return new File(exFile.getParentFile(), exFile.getName().replaceFirst("\\.txt$", "") + EXTENSION);
+    }
+
+    /**
+     * Kompaktiert einmalig alle Übungen; optional mit abweichendem Alter in Tagen.
+     */
+    public static void main(String[] args) {
+        int maxAgeDays = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("fitness.archiveAfterDays", 365);
+        System.out.println(compactAll(maxAgeDays) + " Datensätze archiviert.");
+    }
+}
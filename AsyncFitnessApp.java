@@ -0,0 +1,104 @@
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import javax.swing.SwingUtilities;
+
+/**
+ * Asynchrone Fassade über {@link FitnessApp}, damit Datei-Zugriffe nie auf dem Swing-EDT laufen.
+ *
+ * Alle Methoden geben sofort ein {@link CompletableFuture} zurück; die eigentliche Arbeit läuft auf
+ * einem begrenzten Pool aus Daemon-Threads. Ist die Warteschlange voll, schlägt das Future mit
+ * {@link RejectedExecutionException} fehl, statt den Aufrufer zu blockieren.
+ * Mit {@link #onEdt(CompletableFuture, BiConsumer)} wird das Ergebnis wieder auf dem EDT verarbeitet.
+ */
+public class AsyncFitnessApp {
+
+    private static final int THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final int QUEUE_CAPACITY = 256;
+
+    private static final ExecutorService EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS,
+            30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_CAPACITY), new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "fitness-io-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+
+    static {
+        ((ThreadPoolExecutor) EXECUTOR).allowCoreThreadTimeOut(true);
+    }
+
+    private AsyncFitnessApp() {
+    }
+
+    public static CompletableFuture<Boolean> createExercise(String username, String exName) {
+        return submit(() -> FitnessApp.createExercise(username, exName));
+    }
+
+    public static CompletableFuture<List<String>> listExercises(String username) {
+        return submit(() -> FitnessApp.listExercises(username));
+    }
+
+    // Übungen samt Suchindex, damit er nicht auf dem EDT aufgebaut wird
+    public static CompletableFuture<ExerciseIndex> exerciseIndex(String username) {
+        return submit(() -> ExerciseIndex.of(FitnessApp.listExercises(username)));
+    }
+
+    public static CompletableFuture<Boolean> addRecord(String username, String exName, String date, List<Integer> repsAndWeights) {
+        return submit(() -> FitnessApp.addRecord(username, exName, date, repsAndWeights));
+    }
+
+    public static CompletableFuture<List<FitnessApp.Record>> getRecords(String username, String exName) {
+        return submit(() -> FitnessApp.getRecords(username, exName));
+    }
+
+    public static CompletableFuture<Integer> countRecords(String username, String exName) {
+        return submit(() -> FitnessApp.countRecords(username, exName));
+    }
+
+    public static CompletableFuture<List<FitnessApp.Record>> getRecordPage(String username, String exName, int skip, int limit) {
+        return submit(() -> FitnessApp.getRecordPage(username, exName, skip, limit));
+    }
+
+    /**
+     * Wie {@link FitnessApp#calculateNextWeight(String, String)}; eine
+     * {@link IllegalArgumentException} wird als Fehler des Futures gemeldet.
+     */
+    public static CompletableFuture<Double> calculateNextWeight(String username, String exName) {
+        return submit(() -> FitnessApp.calculateNextWeight(username, exName));
+    }
+
+    public static CompletableFuture<ProgressChart.Series> loadProgress(String username, String exName) {
+        return submit(() -> ProgressChart.Series.load(username, exName));
+    }
+
+    // Schreibt die Sitzung im Hintergrund, z.B. nach einem neuen Datensatz
+    public static CompletableFuture<Boolean> saveSession(SessionSnapshot session) {
+        return submit(session::save);
+    }
+
+    /**
+     * Verarbeitet Ergebnis oder Fehler des Futures auf dem Swing-EDT.
+     * Der Fehler ist bereits von {@link CompletionException} befreit.
+     */
+    public static <T> void onEdt(CompletableFuture<T> future, BiConsumer<? super T, ? super Throwable> action) {
+        future.whenComplete((result, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            SwingUtilities.invokeLater(() -> action.accept(result, cause));
+        });
+    }
+
+    private static <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, EXECUTOR);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,347 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * Binäres, spaltenorientiertes Format für Übungsprotokolle ({@code <Übung>.bin}).
+ *
+ * Aufbau der Datei (alle Werte als 32-Bit-Integer, Big Endian):
+ * <pre>
+ * Header   : MAGIC, VERSION, recordCount, setCount,
+ *            ab Version 2 zusätzlich sourceLength, sourceModified (je 64 Bit)
+ * dates    : int[recordCount]     Datum als Epoch-Day
+ * firstSet : int[recordCount + 1] Index des ersten Satzes je Eintrag (kumulierte Satzanzahl)
+ * reps     : int[setCount]        Wiederholungen je Satz
+ * weights  : int[setCount]        Gewicht je Satz, NO_WEIGHT falls keines angegeben wurde
+ * </pre>
+ * Die Satzanzahl eines Eintrags ergibt sich aus {@code firstSet[i + 1] - firstSet[i]},
+ * dadurch ist jeder Eintrag ohne Suchen direkt adressierbar. {@code sourceLength} und
+ * {@code sourceModified} halten den Stand des Textprotokolls fest, aus dem die Datei erzeugt wurde
+ * ({@link MappedRecordStore} erkennt daran veraltete Dateien); Version 1 wird weiterhin gelesen.
+ *
+ * Die Datei wird über einen {@link MappedByteBuffer} gelesen, es wird also kein Text geparst.
+ * Die bestehenden {@code .txt}-Dateien bleiben unverändert und werden mit
+ * {@link #migrate(String, String)} bzw. {@link #migrateAll()} einmalig übertragen.
+ */
+public class BinaryRecordFile {
+
+    public static final String EXTENSION = ".bin";
+
+    // Platzhalter für einen Satz ohne Gewichtsangabe (ungerade Anzahl an Werten)
+    public static final int NO_WEIGHT = Integer.MIN_VALUE;
+
+    private static final int MAGIC = 0x46544231; // "FTB1"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE_V1 = 4 * Integer.BYTES;
+    private static final int HEADER_SIZE = HEADER_SIZE_V1 + 2 * Long.BYTES;
+
+    // Stand des Textprotokolls unbekannt
+    public static final long UNKNOWN_SOURCE = -1;
+
+    private BinaryRecordFile() {
+    }
+
+    /**
+     * Liefert die Binärdatei zu einer Übung (muss nicht existieren).
+     * @param username Benutzername
+     * @param exName   Name der Übung
+     * @return Datei {@code users/<user>/<Übung>.bin}
+     */
+    public static File fileFor(String username, String exName) {
+        return new File(FitnessApp.BASE_DIR + File.separator + username, exName + EXTENSION);
+    }
+
+    /**
+     * Schreibt die Datensätze spaltenweise in die angegebene Datei.
+     * Es wird zuerst in eine temporäre Datei geschrieben und diese dann ersetzt,
+     * sodass Leser nie eine halb geschriebene Datei sehen.
+     * @param target  Zieldatei
+     * @param records Datensätze in Protokollreihenfolge
+     * @throws IOException wenn die Datei nicht geschrieben werden kann
+     */
+    public static void write(File target, List<FitnessApp.Record> records) throws IOException {
+        write(target, records, UNKNOWN_SOURCE, UNKNOWN_SOURCE);
+    }
+
+    /**
+     * Wie {@link #write(File, List)}, mit dem Stand des Textprotokolls, aus dem die Datensätze stammen.
+     * @param sourceLength   Länge des Protokolls beim Lesen
+     * @param sourceModified Änderungszeit des Protokolls beim Lesen
+     */
+    public static void write(File target, List<FitnessApp.Record> records, long sourceLength, long sourceModified)
+            throws IOException {
+        int recordCount = records.size();
+        int setCount = 0;
+        int[] dates = new int[recordCount];
+        for (int i = 0; i < recordCount; i++) {
+            FitnessApp.Record record = records.get(i);
+            dates[i] = toEpochDay(record.date);
+            setCount += record.getSetCount();
+        }
+
+        long size = HEADER_SIZE + 4L * (recordCount + (recordCount + 1) + 2L * setCount);
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Protokoll zu groß für das Binärformat: " + target);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(recordCount).putInt(setCount)
+                .putLong(sourceLength).putLong(sourceModified);
+        for (int date : dates) {
+            buffer.putInt(date);
+        }
+        int firstSet = 0;
+        for (FitnessApp.Record record : records) {
+            buffer.putInt(firstSet);
+            firstSet += record.getSetCount();
+        }
+        buffer.putInt(firstSet);
+        int weightsStart = buffer.position() + 4 * setCount;
+        for (FitnessApp.Record record : records) {
+            for (int i = 0; i < record.size(); i += 2) {
+                buffer.putInt(record.get(i));
+                buffer.putInt(weightsStart, i + 1 < record.size() ? record.get(i + 1) : NO_WEIGHT);
+                weightsStart += 4;
+            }
+        }
+        buffer.rewind();
+
+        Path targetPath = target.toPath();
+        // Eigener Name je Schreiber, falls mehrere Prozesse gleichzeitig dieselbe Datei erzeugen
+        Path tmp = Files.createTempFile(targetPath.toAbsolutePath().getParent(), target.getName(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(tmp, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Überträgt das Textprotokoll einer Übung in das Binärformat.
+     * @param username Benutzername
+     * @param exName   Name der Übung
+     * @return Anzahl der übertragenen Datensätze
+     * @throws IOException wenn das Protokoll nicht gelesen oder die Binärdatei nicht geschrieben werden kann
+     */
+    public static int migrate(String username, String exName) throws IOException {
+        File exFile = TextRecordStore.logFile(username, exName);
+        RecordAppender.getDefault().flush(exFile);
+        // Stand vor dem Lesen: wird danach noch angehängt, gilt die Datei beim nächsten Zugriff als veraltet
+        long length = exFile.length();
+        long modified = exFile.lastModified();
+        List<FitnessApp.Record> records = TextRecordStore.getDefault().getRecords(username, exName);
+        write(fileFor(username, exName), records, length, modified);
+        return records.size();
+    }
+
+    /**
+     * Überträgt die Textprotokolle aller Benutzer in das Binärformat.
+     * Fehlerhafte Protokolle werden übersprungen und gemeldet.
+     * @return Anzahl der erfolgreich übertragenen Übungen
+     */
+    public static int migrateAll() {
+        File base = new File(FitnessApp.BASE_DIR);
+        String[] users = base.list((dir, name) -> new File(dir, name).isDirectory());
+        if (users == null) return 0;
+        int migrated = 0;
+        for (String username : users) {
+            for (String exName : ExerciseCatalog.list(username)) {
+                try {
+                    int count = migrate(username, exName);
+                    System.out.println(username + "/" + exName + ": " + count + " Datensätze übertragen.");
+                    migrated++;
+                } catch (IOException e) {
+                    System.err.println("Fehler beim Übertragen von " + username + "/" + exName + ": " + e.getMessage());
+                }
+            }
+        }
+        return migrated;
+    }
+
+    /**
+     * Liest alle Datensätze einer Übung aus der Binärdatei.
+     * @param username Benutzername
+     * @param exName   Name der Übung
+     * @return Datensätze in Protokollreihenfolge, leere Liste wenn keine Binärdatei existiert
+     */
+    public static List<FitnessApp.Record> readRecords(String username, String exName) {
+        File file = fileFor(username, exName);
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+        try (Reader reader = open(file)) {
+            return reader.records();
+        } catch (IOException e) {
+            System.err.println("Fehler beim Lesen von " + file + ": " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Öffnet eine Binärdatei zum Lesen.
+     * @param file Binärdatei
+     * @return Leser über die gemappte Datei
+     * @throws IOException wenn die Datei fehlt oder kein gültiges Binärprotokoll ist
+     */
+    public static Reader open(File file) throws IOException {
+        return new Reader(file);
+    }
+
+    static int toEpochDay(String date) throws IOException {
+        try {
+            return (int) LocalDate.parse(date).toEpochDay();
+        } catch (DateTimeParseException e) {
+            throw new IOException("Ungültiges Datum: " + date, e);
+        }
+    }
+
+    /**
+     * Wahlfreier Zugriff auf die Spalten einer gemappten Binärdatei.
+     * Einzelne Werte werden direkt aus dem Puffer gelesen, ohne Objekte anzulegen.
+     */
+    public static class Reader implements Closeable {
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int recordCount;
+        private final int datesOffset;
+        private final int firstSetOffset;
+        private final int repsOffset;
+        private final int weightsOffset;
+        private final long sourceLength;
+        private final long sourceModified;
+
+        private Reader(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                if (size < HEADER_SIZE_V1) {
+                    throw new IOException("Keine gültige Binärdatei: " + file);
+                }
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                int version = buffer.getInt(4);
+                if (buffer.getInt(0) != MAGIC || version < 1 || version > VERSION || (version > 1 && size < HEADER_SIZE)) {
+                    throw new IOException("Unbekanntes Dateiformat: " + file);
+                }
+                recordCount = buffer.getInt(8);
+                int setCount = buffer.getInt(12);
+                sourceLength = version > 1 ? buffer.getLong(16) : UNKNOWN_SOURCE;
+                sourceModified = version > 1 ? buffer.getLong(24) : UNKNOWN_SOURCE;
+                datesOffset = version > 1 ? HEADER_SIZE : HEADER_SIZE_V1;
+                firstSetOffset = datesOffset + 4 * recordCount;
+                repsOffset = firstSetOffset + 4 * (recordCount + 1);
+                weightsOffset = repsOffset + 4 * setCount;
+                if (recordCount < 0 || setCount < 0 || weightsOffset + 4L * setCount != size) {
+                    throw new IOException("Beschädigte Binärdatei: " + file);
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        public int size() {
+            return recordCount;
+        }
+
+        /**
+         * @return Länge des Textprotokolls beim Erzeugen oder {@link #UNKNOWN_SOURCE}
+         */
+        public long sourceLength() {
+            return sourceLength;
+        }
+
+        /**
+         * @return Änderungszeit des Textprotokolls beim Erzeugen oder {@link #UNKNOWN_SOURCE}
+         */
+        public long sourceModified() {
+            return sourceModified;
+        }
+
+        public int epochDay(int record) {
+            return buffer.getInt(datesOffset + 4 * record);
+        }
+
+        public String date(int record) {
+            return LocalDate.ofEpochDay(epochDay(record)).toString();
+        }
+
+        public int setCount(int record) {
+            return firstSet(record + 1) - firstSet(record);
+        }
+
+        public int reps(int record, int set) {
+            return buffer.getInt(repsOffset + 4 * (firstSet(record) + set));
+        }
+
+        /**
+         * @return Gewicht des Satzes oder {@link #NO_WEIGHT}
+         */
+        public int weight(int record, int set) {
+            return buffer.getInt(weightsOffset + 4 * (firstSet(record) + set));
+        }
+
+        private int firstSet(int record) {
+            return buffer.getInt(firstSetOffset + 4 * record);
+        }
+
+        /**
+         * Baut einen Datensatz im bekannten Format aus den Spalten auf.
+         * @param record Index des Datensatzes
+         * @return Datensatz mit Datum und abwechselnd Wiederholungen/Gewichten
+         */
+        public FitnessApp.Record record(int record) {
+            return record(record, date(record));
+        }
+
+        private FitnessApp.Record record(int record, String date) {
+            int sets = setCount(record);
+            int[] values = new int[sets * 2];
+            int length = 0;
+            for (int s = 0; s < sets; s++) {
+                values[length++] = reps(record, s);
+                int weight = weight(record, s);
+                if (weight != NO_WEIGHT) values[length++] = weight;
+            }
+            return new FitnessApp.Record(date, values, 0, length);
+        }
+
+        // Aufeinanderfolgende Einträge desselben Tages teilen sich den Datums-String (wie bei RecordParser)
+        public List<FitnessApp.Record> records() {
+            List<FitnessApp.Record> records = new ArrayList<>(recordCount);
+            int lastDay = 0;
+            String lastDate = null;
+            for (int i = 0; i < recordCount; i++) {
+                int day = epochDay(i);
+                if (lastDate == null || day != lastDay) {
+                    lastDay = day;
+                    lastDate = LocalDate.ofEpochDay(day).toString();
+                }
+                records.add(record(i, lastDate));
+            }
+            return records;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Einmalige Migration aller Textprotokolle unter {@code users/} in das Binärformat.
+     * @param args Kommandozeilenargumente (werden nicht verwendet).
+     */
+    public static void main(String[] args) {
+        int migrated = migrateAll();
+        System.out.println(migrated + " Übungen in das Binärformat übertragen.");
+    }
+}
@@ -0,0 +1,715 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Massen-Import und -Export von Übungsprotokollen als CSV oder NDJSON.
+ *
+ * Formate (eine Zeile je Datensatz):
+ * <pre>
+ * CSV:    benutzer,übung,datum,wdh,gewicht,wdh,gewicht,...
+ * NDJSON: {"user": "...", "exercise": "...", "date": "...", "repsAndWeights": [wdh, gewicht, ...]}
+ * </pre>
+ * Benutzer und Übung dürfen im CSV in Anführungszeichen stehen (z.B. wenn sie ein Komma enthalten).
+ *
+ * Der Import liest die Eingabe einmal sequentiell und verteilt die Zeilen nach (Benutzer, Übung)
+ * auf Partitionen. Volle Puffer gehen an eine feste Zahl von Schreib-Threads; jede Partition gehört
+ * immer demselben Thread, dadurch bleibt die Reihenfolge je Datei erhalten und jede Protokolldatei
+ * wird in einem Durchgang hinten angehängt. Die Warteschlangen sind begrenzt, der Speicherbedarf hängt
+ * also nicht von der Größe der Eingabe ab. Zeilen, die {@link RecordParser} nicht übernehmen würde
+ * oder die {@code addRecord} ablehnen würde (Datum nicht genau yyyy-MM-dd, unvollständiger Satz),
+ * werden übersprungen und gezählt. Benutzernamen werden wie beim Anmelden klein geschrieben.
+ *
+ * Der Export liest die Protokolle blockweise, wandelt die Blöcke parallel um und schreibt sie
+ * in der ursprünglichen Reihenfolge in den Ausgabestrom.
+ */
+public class BulkTransfer {
+
+    public enum Format {
+        CSV, NDJSON;
+
+        /**
+         * Bestimmt das Format anhand der Dateiendung ({@code .ndjson}/{@code .jsonl}, sonst CSV).
+         */
+        public static Format of(String fileName) {
+            String lower = fileName.toLowerCase();
+            return lower.endsWith(".ndjson") || lower.endsWith(".jsonl") ? NDJSON : CSV;
+        }
+    }
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    // Ab dieser Puffergröße wird eine Partition an ihren Schreib-Thread übergeben
+    private static final int CHUNK_SIZE = 256 * 1024;
+    // Obergrenze für die Größe aller noch nicht übergebenen Puffer zusammen (belegter Speicher, nicht nur Inhalt)
+    private static final long BUFFER_BUDGET = 32L * 1024 * 1024;
+    private static final int MIN_PARTITION_BUFFER = 1024;
+    private static final int QUEUE_CAPACITY = 8;
+    private static final int MAX_OPEN_FILES_PER_WRITER = 64;
+    private static final int EXPORT_CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Ergebnis eines Imports.
+     */
+    public static class Result {
+        public final long records;
+        public final long skipped;
+        public final Set<String> users;
+        public final int exercises;
+
+        Result(long records, long skipped, Set<String> users, int exercises) {
+            this.records = records;
+            this.skipped = skipped;
+            this.users = users;
+            this.exercises = exercises;
+        }
+
+        @Override
+        public String toString() {
+            return records + " Datensätze in " + exercises + " Übungen von " + users.size()
+                    + " Benutzern importiert, " + skipped + " Zeilen übersprungen";
+        }
+    }
+
+    /**
+     * Importiert alle Datensätze aus dem Datenstrom und hängt sie an die Protokolle unter
+     * {@code users/} an. Fehlende Benutzerverzeichnisse und Übungen werden angelegt.
+     * @param in      Datenstrom im gewählten Format
+     * @param format  CSV oder NDJSON
+     * @param threads Anzahl paralleler Schreib-Threads
+     * @return Anzahl importierter und übersprungener Datensätze, betroffene Benutzer
+     * @throws IOException wenn die Eingabe nicht gelesen oder ein Protokoll nicht geschrieben werden kann
+     */
+    public static Result importFrom(InputStream in, Format format, int threads) throws IOException {
+        // Noch gesammelte Zeilen des Appenders zuerst schreiben, damit die Reihenfolge stimmt
+        RecordAppender.getDefault().flushAll();
+        Importer importer = new Importer(format, Math.max(1, threads));
+        try {
+            importer.read(in);
+        } finally {
+            importer.finish();
+        }
+        for (Partition partition : importer.partitions.values()) {
+            FitnessApp.getRecordCache().invalidate(partition.username, partition.exName);
+            ExerciseCatalog.added(partition.username, partition.exName);
+        }
+        if (importer.failure != null) {
+            throw importer.failure;
+        }
+        long records = 0;
+        long skipped = importer.skipped;
+        for (PartitionWriter writer : importer.writers) {
+            records += writer.records;
+            skipped += writer.skipped;
+        }
+        Set<String> users = new TreeSet<>();
+        for (Partition partition : importer.partitions.values()) {
+            users.add(partition.username);
+        }
+        return new Result(records, skipped, users, importer.partitions.size());
+    }
+
+    /**
+     * Exportiert die Datensätze eines oder aller Benutzer in den Ausgabestrom.
+     * @param out      Ziel, wird nicht geschlossen
+     * @param format   CSV oder NDJSON
+     * @param username Benutzer oder null für alle Benutzer
+     * @param threads  Anzahl paralleler Threads für die Umwandlung
+     * @return Anzahl exportierter Datensätze
+     * @throws IOException wenn ein Protokoll nicht gelesen oder die Ausgabe nicht geschrieben werden kann
+     */
+    public static long exportTo(OutputStream out, Format format, String username, int threads) throws IOException {
+        RecordAppender.getDefault().flushAll();
+        List<String> users = new ArrayList<>();
+        if (username != null) {
+            users.add(username);
+        } else {
+            String[] dirs = new File(FitnessApp.BASE_DIR).list((dir, name) -> new File(dir, name).isDirectory());
+            if (dirs != null) users.addAll(Arrays.asList(dirs));
+        }
+        Collections.sort(users);
+
+        int parallelism = Math.max(1, threads);
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, daemonThreads("bulk-export"));
+        // Begrenztes Fenster umgewandelter Blöcke, die der Reihe nach geschrieben werden
+        ArrayDeque<Future<Encoded>> window = new ArrayDeque<>();
+        long records = 0;
+        try {
+            for (String user : users) {
+                for (String exName : ExerciseCatalog.list(user)) {
+                    File exFile = new File(FitnessApp.BASE_DIR + File.separator + user, exName + ".txt");
+                    byte[] prefix = prefix(format, user, exName);
+                    FileLocks.Hold lock = FileLocks.read(exFile);
+                    try (InputStream in = new FileInputStream(exFile)) {
+                        // Archivierte Datensätze zuerst, als Protokollzeilen wie aus der Datei
+                        for (byte[] block : archivedBlocks(exFile)) {
+                            records += submit(pool, window, parallelism, out, () -> encode(format, prefix, block, block.length));
+                        }
+                        byte[] buf = new byte[EXPORT_CHUNK_SIZE];
+                        int filled = 0;
+                        int read;
+                        while ((read = in.read(buf, filled, buf.length - filled)) != -1) {
+                            filled += read;
+                            int end = lastLineEnd(buf, filled);
+                            if (end == 0 && filled == buf.length) {
+                                buf = Arrays.copyOf(buf, buf.length * 2); // Zeile länger als der Puffer
+                                continue;
+                            }
+                            if (end > 0) {
+                                byte[] block = Arrays.copyOf(buf, end);
+                                records += submit(pool, window, parallelism, out, () -> encode(format, prefix, block, block.length));
+                                filled -= end;
+                                System.arraycopy(buf, end, buf, 0, filled);
+                            }
+                        }
+                        if (filled > 0) {
+                            byte[] block = Arrays.copyOf(buf, filled);
+                            records += submit(pool, window, parallelism, out, () -> encode(format, prefix, block, block.length));
+                        }
+                    } finally {
+                        lock.release();
+                    }
+                }
+            }
+            while (!window.isEmpty()) {
+                records += writeNext(window, out);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        out.flush();
+        return records;
+    }
+
+    private static long submit(ExecutorService pool, ArrayDeque<Future<Encoded>> window, int parallelism,
+                               OutputStream out, Callable<Encoded> task) throws IOException {
+        window.add(pool.submit(task));
+        return window.size() > 2 * parallelism ? writeNext(window, out) : 0;
+    }
+
+    private static long writeNext(ArrayDeque<Future<Encoded>> window, OutputStream out) throws IOException {
+        Encoded encoded;
+        try {
+            encoded = window.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export abgebrochen");
+        } catch (ExecutionException e) {
+            throw new IOException("Fehler beim Umwandeln: " + e.getCause(), e.getCause());
+        }
+        out.write(encoded.bytes);
+        return encoded.records;
+    }
+
+    // Archivierte Datensätze als Protokollzeilen in Blöcken von etwa EXPORT_CHUNK_SIZE
+    private static List<byte[]> archivedBlocks(File exFile) throws IOException {
+        List<byte[]> blocks = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        for (FitnessApp.Record record : Archive.read(exFile)) {
+            sb.append(record.date);
+            for (int i = 0; i < record.size(); i++) sb.append(',').append(record.get(i));
+            sb.append('\n');
+            if (sb.length() >= EXPORT_CHUNK_SIZE) {
+                blocks.add(sb.toString().getBytes(StandardCharsets.UTF_8));
+                sb.setLength(0);
+            }
+        }
+        if (sb.length() > 0) {
+            blocks.add(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        return blocks;
+    }
+
+    private static int lastLineEnd(byte[] buf, int filled) {
+        for (int i = filled - 1; i >= 0; i--) {
+            if (buf[i] == '\n') return i + 1;
+        }
+        return 0;
+    }
+
+    private static byte[] prefix(Format format, String username, String exName) {
+        StringBuilder sb = new StringBuilder();
+        if (format == Format.CSV) {
+            sb.append(csvField(username)).append(',').append(csvField(exName)).append(',');
+        } else {
+            sb.append("{\"user\":");
+            Json.write(sb, username);
+            sb.append(",\"exercise\":");
+            Json.write(sb, exName);
+            sb.append(",\"date\":");
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // Wandelt einen Block vollständiger Protokollzeilen in das Exportformat um
+    private static Encoded encode(Format format, byte[] prefix, byte[] block, int length) {
+        List<FitnessApp.Record> records = RecordParser.parse(block, 0, length);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length + records.size() * (prefix.length + 32));
+        StringBuilder sb = new StringBuilder(64);
+        for (FitnessApp.Record record : records) {
+            sb.setLength(0);
+            if (format == Format.CSV) {
+                sb.append(record.date);
+                for (int i = 0; i < record.size(); i++) sb.append(',').append(record.get(i));
+            } else {
+                Json.write(sb, record.date);
+                sb.append(",\"repsAndWeights\":[");
+                for (int i = 0; i < record.size(); i++) {
+                    if (i > 0) sb.append(',');
+                    sb.append(record.get(i));
+                }
+                sb.append("]}");
+            }
+            sb.append('\n');
+            out.write(prefix, 0, prefix.length);
+            byte[] line = sb.toString().getBytes(StandardCharsets.UTF_8);
+            out.write(line, 0, line.length);
+        }
+        return new Encoded(out.toByteArray(), records.size());
+    }
+
+    private static class Encoded {
+        final byte[] bytes;
+        final int records;
+
+        Encoded(byte[] bytes, int records) {
+            this.bytes = bytes;
+            this.records = records;
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return new ThreadFactory() {
+            private int counter;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + (++counter));
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Puffer der noch nicht geschriebenen Zeilen einer Übung (Protokollformat, mit Zeilenumbruch).
+     */
+    private static class Partition {
+        final String username;
+        final String exName;
+        final File file;
+        final PartitionWriter writer;
+        // Erst beim Anhängen angelegt und mit dem Chunk abgegeben; ruhende Partitionen belegen keinen Puffer
+        byte[] buffer;
+        int length;
+        // Größe des nächsten Puffers, nach dem letzten Chunk
+        int sizeHint = MIN_PARTITION_BUFFER;
+
+        Partition(String username, String exName, PartitionWriter writer) {
+            this.username = username;
+            this.exName = exName;
+            this.file = new File(FitnessApp.BASE_DIR + File.separator + username, exName + ".txt");
+            this.writer = writer;
+        }
+
+        int capacity() {
+            return buffer == null ? 0 : buffer.length;
+        }
+
+        void append(byte[] src, int from, int to) {
+            int needed = length + (to - from) + 1;
+            if (buffer == null) {
+                buffer = new byte[Math.max(needed, sizeHint)];
+            } else if (needed > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(needed, buffer.length * 2));
+            }
+            System.arraycopy(src, from, buffer, length, to - from);
+            length += to - from;
+            buffer[length++] = '\n';
+        }
+    }
+
+    private static class Chunk {
+        final Partition partition;
+        final byte[] bytes;
+        final int length;
+
+        Chunk(Partition partition, byte[] bytes, int length) {
+            this.partition = partition;
+            this.bytes = bytes;
+            this.length = length;
+        }
+    }
+
+    private static final Chunk END = new Chunk(null, null, 0);
+
+    /**
+     * Liest die Eingabe im aufrufenden Thread und verteilt die Zeilen auf die Partitionen.
+     */
+    private static class Importer {
+        final Format format;
+        final PartitionWriter[] writers;
+        final Map<String, Partition> partitions = new HashMap<>();
+        long buffered;
+        long skipped;
+        IOException failure;
+        int lineNumber;
+
+        // Letzter CSV-Präfix (Benutzer und Übung) als Bytes, um die Partition wiederzuverwenden
+        byte[] lastPrefix = new byte[64];
+        int lastPrefixLength = -1;
+        Partition lastPartition;
+
+        Importer(Format format, int threads) {
+            this.format = format;
+            this.writers = new PartitionWriter[threads];
+            for (int i = 0; i < threads; i++) {
+                writers[i] = new PartitionWriter(i);
+                writers[i].start();
+            }
+        }
+
+        void read(InputStream in) throws IOException {
+            byte[] buf = new byte[READ_BUFFER_SIZE];
+            int filled = 0;
+            int read;
+            while ((read = in.read(buf, filled, buf.length - filled)) != -1) {
+                filled += read;
+                int lineStart = 0;
+                for (int i = 0; i < filled; i++) {
+                    if (buf[i] == '\n') {
+                        line(buf, lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+                filled -= lineStart;
+                System.arraycopy(buf, lineStart, buf, 0, filled);
+                if (filled == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+            }
+            if (filled > 0) {
+                line(buf, 0, filled);
+            }
+        }
+
+        void line(byte[] buf, int start, int end) throws IOException {
+            lineNumber++;
+            if (end > start && buf[end - 1] == '\r') end--;
+            if (end == start) return;
+            if (format == Format.CSV) {
+                csvLine(buf, start, end);
+            } else {
+                ndjsonLine(new String(buf, start, end - start, StandardCharsets.UTF_8));
+            }
+        }
+
+        void csvLine(byte[] buf, int start, int end) throws IOException {
+            int userEnd = fieldEnd(buf, start, end);
+            int exEnd = userEnd < end ? fieldEnd(buf, userEnd + 1, end) : end;
+            if (exEnd >= end) {
+                skip("Benutzer, Übung und Datum erwartet");
+                return;
+            }
+            int prefixLength = exEnd - start;
+            Partition partition;
+            if (prefixLength == lastPrefixLength && Arrays.equals(buf, start, exEnd, lastPrefix, 0, prefixLength)) {
+                partition = lastPartition;
+            } else {
+                String username = csvValue(buf, start, userEnd);
+                String exName = csvValue(buf, userEnd + 1, exEnd);
+                if (lineNumber == 1 && username.equalsIgnoreCase("user") && exName.equalsIgnoreCase("exercise")) {
+                    return; // Kopfzeile
+                }
+                partition = partition(username, exName);
+                if (partition == null) return;
+                if (prefixLength > lastPrefix.length) {
+                    lastPrefix = new byte[prefixLength];
+                }
+                System.arraycopy(buf, start, lastPrefix, 0, prefixLength);
+                lastPrefixLength = prefixLength;
+                lastPartition = partition;
+            }
+            add(partition, buf, exEnd + 1, end);
+        }
+
+        void ndjsonLine(String line) throws IOException {
+            Map<String, Object> json;
+            try {
+                json = Json.parseObject(line);
+            } catch (IllegalArgumentException e) {
+                skip(e.getMessage());
+                return;
+            }
+            Object user = json.get("user");
+            Object exercise = json.get("exercise");
+            Object date = json.get("date");
+            Object values = json.get("repsAndWeights");
+            if (!(user instanceof String) || !(exercise instanceof String) || !(date instanceof String)
+                    || !(values instanceof List)) {
+                skip("'user', 'exercise', 'date' und 'repsAndWeights' erwartet");
+                return;
+            }
+            Partition partition = partition((String) user, (String) exercise);
+            if (partition == null) return;
+            StringBuilder sb = new StringBuilder((String) date);
+            for (Object value : (List<?>) values) {
+                sb.append(',').append(value instanceof Long ? value : "?"); // "?" wird beim Schreiben verworfen
+            }
+            byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+            add(partition, bytes, 0, bytes.length);
+        }
+
+        Partition partition(String username, String exName) {
+            // Wie LoginWindow, sonst kann sich ein importierter Benutzer "Alice" nie anmelden
+            username = username.trim().toLowerCase();
+            if (!FitnessApp.isValidName(username) || !FitnessApp.isValidName(exName)) {
+                skip("Ungültiger Benutzer- oder Übungsname");
+                return null;
+            }
+            String key = username + File.separator + exName;
+            Partition partition = partitions.get(key);
+            if (partition == null) {
+                // Reihum verteilen, damit alle Schreib-Threads gleich viele Übungen bekommen
+                partition = new Partition(username, exName, writers[partitions.size() % writers.length]);
+                partitions.put(key, partition);
+            }
+            return partition;
+        }
+
+        void add(Partition partition, byte[] buf, int from, int to) throws IOException {
+            int before = partition.capacity();
+            partition.append(buf, from, to);
+            buffered += partition.capacity() - before;
+            if (partition.length >= CHUNK_SIZE) {
+                dispatch(partition);
+            }
+            if (buffered > BUFFER_BUDGET) {
+                for (Partition p : partitions.values()) {
+                    if (p.length > 0) dispatch(p);
+                }
+            }
+        }
+
+        void dispatch(Partition partition) throws IOException {
+            buffered -= partition.capacity();
+            Chunk chunk = new Chunk(partition, partition.buffer, partition.length);
+            partition.sizeHint = Math.min(CHUNK_SIZE, Math.max(MIN_PARTITION_BUFFER, partition.length));
+            partition.buffer = null;
+            partition.length = 0;
+            partition.writer.put(chunk);
+        }
+
+        void skip(String reason) {
+            skipped++;
+            System.err.println("Zeile " + lineNumber + " übersprungen: " + reason);
+        }
+
+        void finish() throws IOException {
+            for (Partition partition : partitions.values()) {
+                if (partition.length > 0) dispatch(partition);
+            }
+            for (PartitionWriter writer : writers) {
+                writer.put(END);
+            }
+            for (PartitionWriter writer : writers) {
+                try {
+                    writer.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Import abgebrochen");
+                }
+                if (writer.failure != null && failure == null) {
+                    failure = writer.failure;
+                }
+            }
+        }
+
+        // Ende eines CSV-Feldes, Kommas in Anführungszeichen zählen nicht
+        private static int fieldEnd(byte[] buf, int start, int end) {
+            boolean quoted = false;
+            for (int i = start; i < end; i++) {
+                if (buf[i] == '"') quoted = !quoted;
+                else if (buf[i] == ',' && !quoted) return i;
+            }
+            return end;
+        }
+
+        private static String csvValue(byte[] buf, int start, int end) {
+            String value = new String(buf, start, end - start, StandardCharsets.UTF_8).trim();
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1).replace("\"\"", "\"");
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Schreib-Thread: prüft die Zeilen seiner Partitionen und hängt sie an die Protokolle an.
+     */
+    private static class PartitionWriter extends Thread {
+        private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final RecordParser parser = new RecordParser();
+        // Zuletzt geprüftes Datum; der Parser liefert für gleiche Daten dasselbe Objekt
+        private String lastValidDate;
+        private final LinkedHashMap<File, FileChannel> channels =
+                new LinkedHashMap<File, FileChannel>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<File, FileChannel> eldest) {
+                        if (size() <= MAX_OPEN_FILES_PER_WRITER) return false;
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                };
+        long records;
+        long skipped;
+        IOException failure;
+
+        PartitionWriter(int index) {
+            super("bulk-import-" + (index + 1));
+            setDaemon(true);
+        }
+
+        void put(Chunk chunk) throws IOException {
+            try {
+                queue.put(chunk);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Import abgebrochen");
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                Chunk chunk;
+                while ((chunk = queue.take()) != END) {
+                    // Nach einem Fehler weiter abnehmen, damit der lesende Thread nicht blockiert
+                    if (failure == null) {
+                        try {
+                            write(chunk);
+                        } catch (IOException e) {
+                            failure = new IOException("Fehler beim Schreiben von '" + chunk.partition.file + "': "
+                                    + e.getMessage(), e);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                for (FileChannel channel : channels.values()) {
+                    closeQuietly(channel);
+                }
+            }
+        }
+
+        private void write(Chunk chunk) throws IOException {
+            // Ungültige Zeilen entfernen, die gültigen im selben Array nach vorne schieben
+            byte[] bytes = chunk.bytes;
+            int kept = 0;
+            int lineStart = 0;
+            for (int i = 0; i < chunk.length; i++) {
+                if (bytes[i] != '\n') continue;
+                if (valid(parser.parseSingleLine(bytes, lineStart, i))) {
+                    System.arraycopy(bytes, lineStart, bytes, kept, i + 1 - lineStart);
+                    kept += i + 1 - lineStart;
+                    records++;
+                } else {
+                    skipped++;
+                }
+                lineStart = i + 1;
+            }
+            if (kept == 0) return;
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, kept);
+            FileChannel channel = channel(chunk.partition.file);
+            FileLocks.Hold lock = FileLocks.write(chunk.partition.file);
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } finally {
+                lock.release();
+            }
+        }
+
+        // Wie addRecord (FitnessApp.isValidRecord): Datum genau yyyy-MM-dd, Paare aus Wiederholungen und Gewicht
+        private boolean valid(FitnessApp.Record record) {
+            if (record == null || record.size() % 2 != 0) {
+                return false;
+            }
+            if (record.date != lastValidDate) {
+                if (!FitnessApp.isValidDate(record.date)) return false;
+                lastValidDate = record.date;
+            }
+            return true;
+        }
+
+        private FileChannel channel(File file) throws IOException {
+            FileChannel channel = channels.get(file);
+            if (channel == null) {
+                File dir = file.getParentFile();
+                if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+                    throw new IOException("Verzeichnis '" + dir + "' konnte nicht angelegt werden");
+                }
+                channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                channels.put(file, channel);
+            }
+            return channel;
+        }
+
+        private static void closeQuietly(FileChannel channel) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing file: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Kommandozeile:
+     * <pre>
+     * java BulkTransfer import &lt;datei.csv|datei.ndjson&gt;
+     * java BulkTransfer export &lt;datei.csv|datei.ndjson&gt; [benutzer]
+     * </pre>
+     * Importierte Benutzer werden zusätzlich im Benutzerverzeichnis registriert.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !(args[0].equals("import") || args[0].equals("export"))) {
+            System.err.println("Aufruf: BulkTransfer import|export <datei.csv|datei.ndjson> [benutzer]");
+            System.exit(2);
+        }
+        Format format = Format.of(args[1]);
+        int threads = Runtime.getRuntime().availableProcessors();
+        long start = System.nanoTime();
+        if (args[0].equals("import")) {
+            Result result;
+            try (InputStream in = new FileInputStream(args[1])) {
+                result = importFrom(in, format, threads);
+            }
+            try (UserRegistry registry = UserRegistry.open()) {
+                for (String username : result.users) {
+                    registry.register(username);
+                }
+            }
+            System.out.println(result + " (" + (System.nanoTime() - start) / 1_000_000 + " ms).");
+        } else {
+            long records;
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(args[1]), 1 << 16)) {
+                records = exportTo(out, format, args.length > 2 ? args[2] : null, threads);
+            }
+            System.out.println(records + " Datensätze exportiert (" + (System.nanoTime() - start) / 1_000_000 + " ms).");
+        }
+    }
+}
@@ -0,0 +1,426 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Dünn besetzter Index Datum → Byte-Position für das Protokoll einer Übung.
+ *
+ * Die Datei {@code <Übung>.idx} liegt neben dem Protokoll und enthält Zeilen {@code datum,position}.
+ * Ein Eintrag entsteht nur dort, wo das Datum wechselt und seit dem letzten Eintrag mindestens
+ * {@value #STRIDE} Bytes vergangen sind. Die Zeile an der Position ist damit die erste mit diesem
+ * Datum, alle Zeilen davor haben ein kleineres. Eine Bereichsabfrage springt so direkt vor den
+ * ersten passenden Datensatz und liest nur bis zum ersten Datum hinter dem Bereich.
+ *
+ * Das gilt nur, solange die Datensätze nach Datum aufsteigend angehängt werden. Wird ein älteres
+ * Datum nachgetragen, wird der Index als unsortiert markiert und Abfragen lesen das ganze Protokoll.
+ *
+ * {@code addRecord} schreibt den Index fort; Änderungen, die am Index vorbei angehängt wurden
+ * (z.B. Import), werden beim nächsten Zugriff ab der bekannten Länge nachgelesen. Ist das Protokoll
+ * kürzer geworden oder passt der letzte Eintrag nicht mehr, wird der Index neu aufgebaut.
+ * Die erste Zeile {@code archive,<Länge>} hält die Länge des Archivs beim Aufbau fest: Hat eine
+ * Kompaktierung (auch in einem anderen Prozess) das Protokoll seitdem verkürzt, ist das Archiv
+ * gewachsen und die Positionen gelten nicht mehr; der Index wird dann ebenfalls neu aufgebaut.
+ * Gesperrt wird je Indexdatei ({@link FileLocks#update}); unter dieser Sperre wird das Protokoll
+ * selbst nie gesperrt, Leser können den Index also auch mit gehaltener Lesesperre abfragen.
+ */
+public class DateIndex {
+
+    public static final String EXTENSION = ".idx";
+
+    private static final int STRIDE = 4096;
+    private static final String UNSORTED = "unsorted";
+    private static final String ARCHIVE = "archive";
+    private static final int MAX_LOADED = 64;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    // Geladene Indizes, die am längsten unbenutzten werden verworfen; Zugriff nur mit synchronized (LOADED)
+    private static final LinkedHashMap<File, DateIndex> LOADED = new LinkedHashMap<File, DateIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, DateIndex> eldest) {
+            return size() > MAX_LOADED;
+        }
+    };
+
+    private final File logFile;
+    private final File indexFile;
+    private String[] dates = new String[16];
+    private long[] offsets = new long[16];
+    private int size;
+    private boolean sorted = true;
+    // Datum des letzten erfassten Datensatzes und erfasste Länge des Protokolls
+    private String lastDate;
+    private long covered;
+    // Länge des Archivs, zu der die Positionen gehören
+    private long archiveLength;
+
+    private DateIndex(File logFile) {
+        this.logFile = logFile;
+        this.indexFile = indexFile(logFile);
+        this.archiveLength = Archive.archiveFile(logFile).length();
+    }
+
+    private static File indexFile(File logFile) {
+        return new File(logFile.getParentFile(), logFile.getName().replaceFirst("\\.txt$", "") + EXTENSION);
+    }
+
+    /**
+     * Liest alle Datensätze mit {@code from <= datum <= to} in Dateireihenfolge.
+     * Noch gesammelte Zeilen des Appenders müssen vorher geschrieben sein.
+     * @param logFile Protokolldatei
+     * @param from    erstes Datum (yyyy-MM-dd) oder null für unbeschränkt
+     * @param to      letztes Datum (yyyy-MM-dd) oder null für unbeschränkt
+     * @return passende Datensätze
+     * @throws IOException wenn Protokoll oder Index nicht gelesen werden können
+     */
+    public static List<FitnessApp.Record> readRange(File logFile, String from, String to) throws IOException {
+        long start = rangeStart(logFile, from);
+        boolean sortedLog = start >= 0;
+        if (!sortedLog) {
+            start = 0;
+        }
+        List<FitnessApp.Record> result = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            long position = start;
+            while (true) {
+                int read = channel.read(buffer, position);
+                if (read <= 0 && buffer.position() == 0) break;
+                if (read > 0) Metrics.BYTES_READ.add(read);
+                byte[] bytes = buffer.array();
+                int filled = buffer.position();
+                int end = filled;
+                if (read > 0) {
+                    while (end > 0 && bytes[end - 1] != '\n') end--;
+                    if (end == 0) { // Zeile länger als der Puffer
+                        buffer = ByteBuffer.allocate(buffer.capacity() * 2).put(bytes, 0, filled);
+                        position += read;
+                        continue;
+                    }
+                }
+                for (FitnessApp.Record record : RecordParser.parse(bytes, 0, end)) {
+                    if (from != null && record.date.compareTo(from) < 0) continue;
+                    if (to != null && record.date.compareTo(to) > 0) {
+                        if (sortedLog) return result; // Dahinter kommen nur noch spätere Daten
+                        continue;
+                    }
+                    result.add(record);
+                }
+                if (read <= 0) break;
+                position += read;
+                buffer.clear();
+                buffer.put(bytes, end, filled - end);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Position, ab der ein Bereich ab {@code from} gelesen werden muss.
+     * Noch gesammelte Zeilen des Appenders müssen vorher geschrieben sein.
+     * @return Position oder -1, wenn das Protokoll nicht sortiert ist (dann ganz lesen und nicht beim
+     *         ersten Datum hinter dem Bereich aufhören)
+     */
+    static long rangeStart(File logFile, String from) throws IOException {
+        FileLocks.Hold lock = FileLocks.update(indexFile(logFile));
+        try {
+            DateIndex index = get(logFile);
+            index.refresh();
+            return index.sorted ? index.startOffset(from) : -1;
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Schreibt den Index nach einem Anhängen durch {@code addRecord} fort.
+     * @param logFile      Protokolldatei
+     * @param date         Datum des neuen Datensatzes
+     * @param lengthBefore Länge des Protokolls vor dem Anhängen (inklusive noch gesammelter Zeilen)
+     * @param lengthAfter  Länge danach
+     */
+    public static void recordAppended(File logFile, String date, long lengthBefore, long lengthAfter) {
+        FileLocks.Hold lock = FileLocks.update(indexFile(logFile));
+        try {
+            DateIndex index = get(logFile);
+            if (index.covered == lengthBefore) {
+                int sizeBefore = index.size;
+                boolean sortedBefore = index.sorted;
+                index.add(date, lengthBefore);
+                index.covered = lengthAfter;
+                index.appendIndexFile(sizeBefore, sortedBefore);
+            }
+            // Sonst liest der nächste Zugriff ab der erfassten Länge nach
+        } catch (IOException e) {
+            System.err.println("Error updating date index: " + e.getMessage());
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Baut den Index aus dem Protokoll neu auf.
+     */
+    public static void rebuild(File logFile) throws IOException {
+        FileLocks.Hold lock = FileLocks.update(indexFile(logFile));
+        try {
+            DateIndex index = new DateIndex(logFile);
+            index.scan(0, true);
+            synchronized (LOADED) {
+                LOADED.put(logFile, index);
+            }
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Verwirft den Index, z.B. nachdem das Protokoll umgeschrieben wurde; er wird beim nächsten Zugriff neu aufgebaut.
+     */
+    public static void invalidate(File logFile) throws IOException {
+        FileLocks.Hold lock = FileLocks.update(indexFile(logFile));
+        try {
+            synchronized (LOADED) {
+                LOADED.remove(logFile);
+            }
+            Files.deleteIfExists(indexFile(logFile).toPath());
+        } finally {
+            lock.release();
+        }
+    }
+
+    // Nur unter der Sperre der Indexdatei; geladen wird außerhalb von LOADED, damit andere Übungen nicht warten
+    private static DateIndex get(File logFile) throws IOException {
+        DateIndex index;
+        synchronized (LOADED) {
+            index = LOADED.get(logFile);
+        }
+        if (index == null) {
+            index = load(logFile);
+            synchronized (LOADED) {
+                LOADED.put(logFile, index);
+            }
+        }
+        return index;
+    }
+
+    private static DateIndex load(File logFile) throws IOException {
+        DateIndex index = new DateIndex(logFile);
+        if (!index.indexFile.exists() || !index.readIndexFile() || !index.lastEntryMatches()) {
+            index = new DateIndex(logFile);
+            index.scan(0, true);
+            return index;
+        }
+        // Ab dem letzten Eintrag nachlesen, um Länge und letztes Datum zu bestimmen
+        index.scan(index.size > 0 ? index.offsets[index.size - 1] : 0, false);
+        return index;
+    }
+
+    // Holt Zeilen nach, die am Index vorbei angehängt wurden
+    private void refresh() throws IOException {
+        long length = logFile.length();
+        boolean compacted = Archive.archiveFile(logFile).length() != archiveLength;
+        if (length == covered && !compacted) return;
+        if (length < covered || compacted) {
+            DateIndex fresh = new DateIndex(logFile);
+            fresh.scan(0, true);
+            copyFrom(fresh);
+        } else if (sorted) {
+            scan(covered, false);
+        } else {
+            covered = length;
+        }
+    }
+
+    // Offset der ersten Zeile, ab der Datensätze mit Datum >= from liegen können
+    private long startOffset(String from) {
+        if (from == null) return 0;
+        int lo = 0;
+        int hi = size - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (dates[mid].compareTo(from) <= 0) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found < 0 ? 0 : offsets[found];
+    }
+
+    /**
+     * Liest das Protokoll ab {@code start} zeilenweise (nur Datum und Position) und ergänzt den Index.
+     * @param rewrite true, wenn die Indexdatei komplett neu geschrieben werden soll
+     */
+    private void scan(long start, boolean rewrite) throws IOException {
+        int sizeBefore = rewrite ? 0 : size;
+        boolean sortedBefore = rewrite || sorted;
+        covered = start;
+        if (logFile.exists()) {
+            try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+                byte[] bytes = new byte[READ_BUFFER_SIZE];
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                long position = start;
+                int filled = 0;
+                int read;
+                while (sorted && (read = channel.read(buffer, position + filled)) > 0) {
+                    filled += read;
+                    int lineStart = 0;
+                    for (int i = 0; i < filled && sorted; i++) {
+                        if (bytes[i] != '\n') continue;
+                        line(bytes, lineStart, i, position + lineStart);
+                        lineStart = i + 1;
+                        covered = position + lineStart;
+                    }
+                    if (!sorted) break;
+                    System.arraycopy(bytes, lineStart, bytes, 0, filled - lineStart);
+                    filled -= lineStart;
+                    position += lineStart;
+                    if (filled == bytes.length) {
+                        bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                    }
+                    buffer = ByteBuffer.wrap(bytes, filled, bytes.length - filled);
+                }
+            }
+        }
+        if (!sorted) {
+            covered = logFile.length();
+        }
+        if (rewrite) {
+            writeIndexFile();
+        } else {
+            appendIndexFile(sizeBefore, sortedBefore);
+        }
+    }
+
+    private void line(byte[] bytes, int start, int end, long offset) {
+        int comma = start;
+        while (comma < end && bytes[comma] != ',') comma++;
+        if (comma == end) return; // Keine Werte, wird auch beim Lesen übersprungen
+        String date = new String(bytes, start, comma - start, StandardCharsets.UTF_8);
+        if (!date.equals(lastDate)) {
+            add(date, offset);
+        }
+    }
+
+    // Datensatz an 'offset' mit Datum 'date' erfassen (nur im Speicher)
+    private void add(String date, long offset) {
+        if (!sorted) return;
+        if (lastDate != null && date.compareTo(lastDate) < 0) {
+            sorted = false;
+            size = 0;
+            return;
+        }
+        boolean newDate = lastDate == null || date.compareTo(lastDate) > 0;
+        lastDate = date;
+        if (newDate && (size == 0 || offset - offsets[size - 1] >= STRIDE)) {
+            if (size == dates.length) {
+                dates = Arrays.copyOf(dates, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            dates[size] = date;
+            offsets[size] = offset;
+            size++;
+        }
+    }
+
+    private void copyFrom(DateIndex other) {
+        dates = other.dates;
+        offsets = other.offsets;
+        size = other.size;
+        sorted = other.sorted;
+        lastDate = other.lastDate;
+        covered = other.covered;
+        archiveLength = other.archiveLength;
+    }
+
+    private boolean readIndexFile() throws IOException {
+        List<String> lines = Files.readAllLines(indexFile.toPath(), StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).equals(ARCHIVE + "," + archiveLength)) {
+            return false; // Vor einer Kompaktierung aufgebaut
+        }
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.equals(UNSORTED)) {
+                sorted = false;
+                size = 0;
+                covered = logFile.length();
+                return true;
+            }
+            int comma = line.lastIndexOf(',');
+            if (comma < 0) return false;
+            String date = line.substring(0, comma);
+            long offset;
+            try {
+                offset = Long.parseLong(line.substring(comma + 1));
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (size > 0 && (date.compareTo(dates[size - 1]) <= 0 || offset <= offsets[size - 1])) {
+                return false;
+            }
+            if (size == dates.length) {
+                dates = Arrays.copyOf(dates, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            dates[size] = date;
+            offsets[size] = offset;
+            size++;
+        }
+        return true;
+    }
+
+    // Prüft, ob an der Position des letzten Eintrags noch eine Zeile mit diesem Datum beginnt
+    private boolean lastEntryMatches() throws IOException {
+        if (!sorted || size == 0) return true;
+        long offset = offsets[size - 1];
+        byte[] expected = (dates[size - 1] + ",").getBytes(StandardCharsets.UTF_8);
+        if (offset + expected.length > logFile.length()) return false;
+        try (FileChannel channel = FileChannel.open(logFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(expected.length + 1);
+            long from = offset == 0 ? 0 : offset - 1;
+            while (buffer.hasRemaining() && channel.read(buffer, from + buffer.position()) > 0) {
+                // weiterlesen
+            }
+            byte[] actual = buffer.array();
+            int shift = offset == 0 ? 0 : 1;
+            if (offset > 0 && actual[0] != '\n') return false;
+            return Arrays.equals(actual, shift, shift + expected.length, expected, 0, expected.length);
+        }
+    }
+
+    private void writeIndexFile() throws IOException {
+        if (!logFile.exists()) return;
+        StringBuilder sb = new StringBuilder();
+        sb.append(ARCHIVE).append(',').append(archiveLength).append('\n');
+        if (!sorted) {
+            sb.append(UNSORTED).append('\n');
+        } else {
+            for (int i = 0; i < size; i++) {
+                sb.append(dates[i]).append(',').append(offsets[i]).append('\n');
+            }
+        }
+        Path target = indexFile.toPath();
+        Path tmp = Files.createTempFile(target.getParent(), indexFile.getName(), ".tmp");
+        Files.write(tmp, sb.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void appendIndexFile(int from, boolean sortedBefore) throws IOException {
+        if (!logFile.exists() || (size == from && sorted == sortedBefore)) return;
+        StringBuilder sb = new StringBuilder();
+        if (sortedBefore && !sorted) {
+            sb.append(UNSORTED).append('\n');
+        } else {
+            for (int i = from; i < size; i++) {
+                sb.append(dates[i]).append(',').append(offsets[i]).append('\n');
+            }
+        }
+        try (OutputStream out = new FileOutputStream(indexFile, true)) {
+            out.write(sb.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
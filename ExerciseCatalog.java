@@ -0,0 +1,208 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Übungsverzeichnis je Benutzer im Speicher, statt bei jedem Aufruf das Verzeichnis zu listen.
+ *
+ * Beim ersten Zugriff auf einen Benutzer wird sein Verzeichnis einmal gelesen und bei einem
+ * {@link WatchService} angemeldet. Ein Hintergrund-Thread übernimmt danach angelegte und gelöschte
+ * {@code .txt}-Dateien; {@code createExercise} meldet neue Übungen zusätzlich direkt, damit sie
+ * ohne Verzögerung erscheinen. Aufrufer bekommen immer eine sortierte, unveränderliche Momentaufnahme,
+ * die bei jeder Änderung neu erzeugt wird; das Auflisten selbst kostet nichts mehr.
+ * Es werden höchstens {@value #MAX_USERS} Benutzer vorgehalten, die am längsten unbenutzten werden abgemeldet.
+ */
+public class ExerciseCatalog {
+
+    private static final String EXTENSION = ".txt";
+    private static final int MAX_USERS = 256;
+
+    private static final LinkedHashMap<String, UserCatalog> CATALOGS = new LinkedHashMap<String, UserCatalog>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, UserCatalog> eldest) {
+            if (size() <= MAX_USERS) return false;
+            if (eldest.getValue().key != null) eldest.getValue().key.cancel();
+            return true;
+        }
+    };
+
+    private static WatchService watcher;
+    private static boolean watcherUnavailable;
+
+    /**
+     * Sortierte, unveränderliche Liste der Übungen eines Benutzers.
+     * @return leere Liste, wenn das Benutzerverzeichnis nicht existiert
+     */
+    public static List<String> list(String username) {
+        UserCatalog catalog;
+        synchronized (ExerciseCatalog.class) {
+            catalog = CATALOGS.get(username);
+        }
+        if (catalog != null) {
+            return catalog.get();
+        }
+        return load(username);
+    }
+
+    /**
+     * Meldet eine neu angelegte Übung, ohne auf den {@link WatchService} zu warten.
+     */
+    public static void added(String username, String exName) {
+        UserCatalog catalog;
+        synchronized (ExerciseCatalog.class) {
+            catalog = CATALOGS.get(username);
+        }
+        if (catalog != null) {
+            catalog.add(exName);
+        }
+    }
+
+    /**
+     * Verwirft alle Verzeichnisse, z.B. nach Änderungen am Dateisystem, die nicht gemeldet wurden.
+     */
+    public static synchronized void clear() {
+        for (UserCatalog catalog : CATALOGS.values()) {
+            if (catalog.key != null) catalog.key.cancel();
+        }
+        CATALOGS.clear();
+    }
+
+    private static List<String> load(String username) {
+        Path dir = Paths.get(FitnessApp.BASE_DIR, username);
+        if (!Files.isDirectory(dir)) {
+            return Collections.emptyList(); // Nicht vorhalten, das Verzeichnis kann noch angelegt werden
+        }
+        UserCatalog catalog = new UserCatalog(dir);
+        synchronized (ExerciseCatalog.class) {
+            UserCatalog existing = CATALOGS.get(username);
+            if (existing != null) {
+                catalog = existing;
+            } else {
+                // Erst anmelden, dann lesen: was dazwischen angelegt wird, kommt spätestens als Ereignis
+                catalog.key = register(dir);
+                CATALOGS.put(username, catalog);
+            }
+        }
+        // Außerhalb der Klassensperre lesen; wer den Katalog vorher findet, wartet in get() auf das Lesen
+        return catalog.get();
+    }
+
+    private static WatchKey register(Path dir) {
+        if (watcherUnavailable) {
+            return null;
+        }
+        try {
+            if (watcher == null) {
+                watcher = dir.getFileSystem().newWatchService();
+                Thread thread = new Thread(ExerciseCatalog::watch, "exercise-catalog-watch");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            return dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.OVERFLOW);
+        } catch (IOException | UnsupportedOperationException e) {
+            // Ohne WatchService bleiben nur die direkten Meldungen von createExercise
+            System.err.println("Übungen werden nicht überwacht: " + e.getMessage());
+            watcherUnavailable = true;
+            return null;
+        }
+    }
+
+    private static void watch() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watcher.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            UserCatalog catalog = find(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (catalog == null) continue;
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    catalog.rescan();
+                    continue;
+                }
+                String fileName = event.context().toString();
+                if (!fileName.endsWith(EXTENSION)) continue;
+                String exName = fileName.substring(0, fileName.length() - EXTENSION.length());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                    catalog.add(exName);
+                } else {
+                    catalog.remove(exName);
+                }
+            }
+            if (!key.reset() && catalog != null) {
+                // Verzeichnis gelöscht oder nicht mehr erreichbar
+                synchronized (ExerciseCatalog.class) {
+                    CATALOGS.values().remove(catalog);
+                }
+            }
+        }
+    }
+
+    private static synchronized UserCatalog find(WatchKey key) {
+        for (UserCatalog catalog : CATALOGS.values()) {
+            if (catalog.key == key) return catalog;
+        }
+        return null;
+    }
+
+    /**
+     * Übungen eines Benutzers; Änderungen ersetzen die Momentaufnahme (copy-on-write).
+     */
+    private static class UserCatalog {
+        final Path dir;
+        WatchKey key;
+        // null, bis das Verzeichnis zum ersten Mal gelesen wurde
+        private volatile List<String> snapshot;
+
+        UserCatalog(Path dir) {
+            this.dir = dir;
+        }
+
+        List<String> get() {
+            List<String> current = snapshot;
+            return current != null ? current : firstScan();
+        }
+
+        private synchronized List<String> firstScan() {
+            if (snapshot == null) {
+                rescan();
+            }
+            return snapshot;
+        }
+
+        synchronized void rescan() {
+            String[] files = dir.toFile().list((d, name) -> name.endsWith(EXTENSION) && new File(d, name).isFile());
+            List<String> names = new ArrayList<>();
+            if (files != null) {
+                for (String file : files) {
+                    names.add(file.substring(0, file.length() - EXTENSION.length()));
+                }
+            }
+            Collections.sort(names);
+            snapshot = Collections.unmodifiableList(names);
+        }
+
+        synchronized void add(String exName) {
+            if (snapshot == null) return; // Das erste Lesen findet die Datei
+            int pos = Collections.binarySearch(snapshot, exName);
+            if (pos >= 0) return;
+            List<String> names = new ArrayList<>(snapshot.size() + 1);
+            names.addAll(snapshot);
+            names.add(-pos - 1, exName);
+            snapshot = Collections.unmodifiableList(names);
+        }
+
+        synchronized void remove(String exName) {
+            if (snapshot == null) return;
+            int pos = Collections.binarySearch(snapshot, exName);
+            if (pos < 0) return;
+            List<String> names = new ArrayList<>(snapshot);
+            names.remove(pos);
+            snapshot = Collections.unmodifiableList(names);
+        }
+    }
+}
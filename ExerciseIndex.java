@@ -0,0 +1,228 @@
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Präfix-Index (Trie) über die Übungen eines Benutzers für die Suche beim Tippen.
+ *
+ * Gefunden wird eine Übung, wenn die Eingabe ein Präfix ihres Namens oder eines Wortes darin ist
+ * ("drück" findet "Kurzhantel-Drücken"). Groß-/Kleinschreibung und Akzente spielen keine Rolle,
+ * Umlaute dürfen auch umschrieben werden: "Ubung", "Uebung" und "übung" finden alle "Übung".
+ *
+ * Jeder Knoten kennt die ersten {@value #TOP} Übungen (in Reihenfolge der Liste) darunter, eine
+ * Anfrage bis zu dieser Anzahl kostet also nur den Weg entlang der Eingabe, unabhängig von der
+ * Größe des Katalogs. Erst für mehr Treffer wird der Teilbaum durchsucht.
+ * Der Index ist unveränderlich; bei geänderter Übungsliste wird ein neuer erstellt.
+ */
+public final class ExerciseIndex {
+
+    // Vorberechnete Treffer je Knoten
+    public static final int TOP = 16;
+
+    private static final ExerciseIndex EMPTY = new ExerciseIndex(Collections.emptyList());
+
+    private final List<String> names;
+    private final Map<String, Integer> ids;
+    private final Node root = new Node();
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_IDS = new int[0];
+
+    private static final class Node {
+        // Nach Zeichen sortiert, für die binäre Suche
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        // Kleinste Nummern der Übungen in diesem Teilbaum, aufsteigend
+        int[] top = NO_IDS;
+        int topSize;
+        // Übungen, deren Schlüssel hier endet (für die Suche nach mehr als TOP Treffern)
+        int[] ends = NO_IDS;
+        int endsSize;
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node addChild(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            i = -i - 1;
+            Node node = new Node();
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, i);
+            System.arraycopy(children, 0, newChildren, 0, i);
+            newKeys[i] = c;
+            newChildren[i] = node;
+            System.arraycopy(keys, i, newKeys, i + 1, keys.length - i);
+            System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+            keys = newKeys;
+            children = newChildren;
+            return node;
+        }
+
+        // Nummern kommen aufsteigend an, dieselbe Übung kann über mehrere Schlüssel kommen
+        void offer(int id) {
+            if (topSize == TOP || (topSize > 0 && top[topSize - 1] == id)) {
+                return;
+            }
+            if (topSize == top.length) {
+                top = Arrays.copyOf(top, Math.min(TOP, Math.max(2, topSize * 2)));
+            }
+            top[topSize++] = id;
+        }
+
+        void end(int id) {
+            if (endsSize > 0 && ends[endsSize - 1] == id) {
+                return;
+            }
+            if (endsSize == ends.length) {
+                ends = Arrays.copyOf(ends, Math.max(1, endsSize * 2));
+            }
+            ends[endsSize++] = id;
+        }
+    }
+
+    private ExerciseIndex(List<String> names) {
+        this.names = names;
+        this.ids = new HashMap<>(names.size() * 2);
+        for (int id = 0; id < names.size(); id++) {
+            String name = names.get(id);
+            ids.putIfAbsent(name, id);
+            root.offer(id);
+            boolean inserted = false;
+            for (int start = 0; start < name.length(); start++) {
+                if (start > 0 && Character.isLetterOrDigit(name.charAt(start - 1))) continue;
+                if (!Character.isLetterOrDigit(name.charAt(start))) continue;
+                // Wortanfang: mit weggelassenen und mit umschriebenen Umlauten ablegen
+                String suffix = name.substring(start);
+                String plain = fold(suffix, false);
+                insert(plain, id);
+                String spelled = fold(suffix, true);
+                if (!spelled.equals(plain)) {
+                    insert(spelled, id);
+                }
+                inserted = true;
+            }
+            if (!inserted) {
+                root.end(id); // Ohne Buchstaben und Ziffern nur über die leere Eingabe zu finden
+            }
+        }
+    }
+
+    /**
+     * Erstellt den Index über eine Übungsliste; Treffer werden in ihrer Reihenfolge geliefert.
+     * @param names Übungen, z.B. sortiert aus {@link FitnessApp#listExercises}
+     */
+    public static ExerciseIndex of(List<String> names) {
+        if (names.isEmpty()) {
+            return EMPTY;
+        }
+        return new ExerciseIndex(Collections.unmodifiableList(new ArrayList<>(names)));
+    }
+
+    private void insert(String key, int id) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.addChild(key.charAt(i));
+            node.offer(id);
+        }
+        node.end(id);
+    }
+
+    /**
+     * Alle Übungen in der Reihenfolge beim Erstellen.
+     */
+    public List<String> names() {
+        return names;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public boolean contains(String exName) {
+        return exName != null && ids.containsKey(exName);
+    }
+
+    /**
+     * Die ersten passenden Übungen zu einer Eingabe.
+     * @param query Anfang des Namens oder eines Wortes darin; leer = alle Übungen
+     * @param limit höchstens so viele Treffer
+     * @return Treffer in Reihenfolge der Übungsliste
+     */
+    public List<String> complete(String query, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Mindestens ein Treffer: " + limit);
+        }
+        Node node = root;
+        String key = fold(query.trim(), false);
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) {
+            return Collections.emptyList();
+        }
+        if (limit <= node.topSize || node.topSize < TOP) {
+            List<String> result = new ArrayList<>(Math.min(limit, node.topSize));
+            for (int i = 0; i < node.topSize && i < limit; i++) {
+                result.add(names.get(node.top[i]));
+            }
+            return result;
+        }
+        // Mehr als vorberechnet: Teilbaum durchsuchen, Nummern über BitSet ordnen und entdoppeln
+        BitSet found = new BitSet(names.size());
+        collect(node, found);
+        List<String> result = new ArrayList<>(Math.min(limit, found.cardinality()));
+        for (int id = found.nextSetBit(0); id >= 0 && result.size() < limit; id = found.nextSetBit(id + 1)) {
+            result.add(names.get(id));
+        }
+        return result;
+    }
+
+    private static void collect(Node node, BitSet found) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Node current = stack.pop();
+            if (current.topSize < TOP) {
+                for (int i = 0; i < current.topSize; i++) found.set(current.top[i]);
+                continue; // Der Teilbaum hat nicht mehr Übungen
+            }
+            for (int i = 0; i < current.endsSize; i++) found.set(current.ends[i]);
+            for (Node child : current.children) stack.push(child);
+        }
+    }
+
+    /**
+     * Vergleichsform eines Namens bzw. einer Eingabe: klein, ohne Akzente, ß als ss.
+     * @param spellUmlauts Umlaute als ae/oe/ue statt als a/o/u
+     */
+    static String fold(String text, boolean spellUmlauts) {
+        StringBuilder sb = new StringBuilder(text.length() + 4);
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c < 128) {
+                sb.append(c);
+                continue;
+            }
+            switch (c) {
+                case 'ä': sb.append(spellUmlauts ? "ae" : "a"); break;
+                case 'ö': sb.append(spellUmlauts ? "oe" : "o"); break;
+                case 'ü': sb.append(spellUmlauts ? "ue" : "u"); break;
+                case 'ß': sb.append("ss"); break;
+                default:
+                    // Sonstige Akzente (é, ñ, ...) abtrennen und weglassen
+                    String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+                    for (int j = 0; j < decomposed.length(); j++) {
+                        char d = decomposed.charAt(j);
+                        if (Character.getType(d) != Character.NON_SPACING_MARK) sb.append(d);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,272 @@
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.*;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Übungsauswahl mit Suche beim Tippen, statt einer {@link JComboBox} mit allen Übungen.
+ *
+ * Das Textfeld zeigt die gewählte Übung. Beim Tippen erscheinen darunter die ersten
+ * {@value #VISIBLE_ROWS} passenden Übungen aus dem {@link ExerciseIndex}; mehr werden nie erzeugt,
+ * auch nicht bei tausenden Übungen. Pfeiltasten wählen in der Liste, Enter oder Klick übernimmt,
+ * Escape oder Verlassen des Feldes stellt die gewählte Übung wieder her. Der Knopf daneben zeigt
+ * die Liste ohne Eingabe.
+ *
+ * ActionListener werden nur benachrichtigt, wenn der Benutzer eine andere Übung wählt, nicht bei
+ * {@link #setExercises}. Alle Methoden müssen auf dem Swing-EDT aufgerufen werden.
+ */
+public class ExerciseSelector extends JPanel {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int VISIBLE_ROWS = 10;
+
+    private final JTextField field = new JTextField();
+    private final JButton showAllButton = new JButton("▾");
+    private final SuggestionModel suggestions = new SuggestionModel();
+    private final JList<String> list = new JList<>(suggestions);
+    private final JPopupMenu popup = new JPopupMenu();
+
+    private ExerciseIndex index = ExerciseIndex.of(Collections.emptyList());
+    private String selected;
+    // Gesetzt, während das Feld selbst beschrieben wird (keine Suche auslösen)
+    private boolean settingText;
+
+    /**
+     * Listenmodell, das immer nur die angezeigten Treffer hält und sie mit einem Ereignis ersetzt.
+     */
+    private static final class SuggestionModel extends AbstractListModel<String> {
+        private static final long serialVersionUID = 1L;
+
+        private List<String> items = Collections.emptyList();
+
+        void setItems(List<String> items) {
+            int oldSize = this.items.size();
+            this.items = items;
+            if (oldSize > 0) fireIntervalRemoved(this, 0, oldSize - 1);
+            if (!items.isEmpty()) fireIntervalAdded(this, 0, items.size() - 1);
+        }
+
+        @Override
+        public int getSize() {
+            return items.size();
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            return items.get(index);
+        }
+    }
+
+    public ExerciseSelector() {
+        super(new BorderLayout());
+        add(field, BorderLayout.CENTER);
+        add(showAllButton, BorderLayout.EAST);
+        showAllButton.setFocusable(false);
+        showAllButton.setMargin(new Insets(0, 6, 0, 6));
+
+        list.setFocusable(false);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setPrototypeCellValue("Kurzhantel-Schrägbankdrücken");
+        JScrollPane scroll = new JScrollPane(list, ScrollPaneConstants.VERTICAL_SCROLLBAR_NEVER,
+                ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        scroll.setBorder(BorderFactory.createEmptyBorder());
+        popup.setFocusable(false);
+        popup.setLayout(new BorderLayout());
+        popup.add(scroll, BorderLayout.CENTER);
+
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) { search(); }
+            public void removeUpdate(DocumentEvent e) { search(); }
+            public void changedUpdate(DocumentEvent e) { search(); }
+        });
+        field.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN: moveSelection(1); e.consume(); break;
+                    case KeyEvent.VK_UP: moveSelection(-1); e.consume(); break;
+                    case KeyEvent.VK_ENTER: accept(); e.consume(); break;
+                    case KeyEvent.VK_ESCAPE: cancel(); e.consume(); break;
+                    default: break;
+                }
+            }
+        });
+        field.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusGained(FocusEvent e) {
+                field.selectAll(); // Tippen ersetzt den Namen und startet die Suche
+            }
+
+            @Override
+            public void focusLost(FocusEvent e) {
+                if (!e.isTemporary()) cancel();
+            }
+        });
+        list.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = list.locationToIndex(e.getPoint());
+                if (row >= 0) {
+                    list.setSelectedIndex(row);
+                    accept();
+                }
+            }
+        });
+        showAllButton.addActionListener(e -> {
+            if (popup.isVisible()) {
+                cancel();
+            } else {
+                field.requestFocusInWindow();
+                showSuggestions("");
+            }
+        });
+    }
+
+    /**
+     * Ersetzt die Übungen, ohne die ActionListener zu benachrichtigen.
+     * @param exercises neue Übungen
+     * @param selectedEx wird gewählt, falls vorhanden, sonst die erste Übung
+     */
+    public void setExercises(ExerciseIndex exercises, String selectedEx) {
+        index = exercises;
+        if (exercises.contains(selectedEx)) {
+            selected = selectedEx;
+        } else {
+            selected = exercises.size() > 0 ? exercises.names().get(0) : null;
+        }
+        popup.setVisible(false);
+        showSelected();
+    }
+
+    /**
+     * Alle Übungen in der Reihenfolge des Index.
+     */
+    public List<String> getExercises() {
+        return index.names();
+    }
+
+    // Gewählte Übung oder null, wenn es keine gibt
+    public String getSelectedExercise() {
+        return selected;
+    }
+
+    public void addActionListener(ActionListener listener) {
+        listenerList.add(ActionListener.class, listener);
+    }
+
+    public void removeActionListener(ActionListener listener) {
+        listenerList.remove(ActionListener.class, listener);
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        super.setEnabled(enabled);
+        field.setEnabled(enabled);
+        showAllButton.setEnabled(enabled);
+        if (!enabled) popup.setVisible(false);
+    }
+
+    @Override
+    public void setFont(Font font) {
+        super.setFont(font);
+        if (field != null) {
+            field.setFont(font);
+            list.setFont(font);
+        }
+    }
+
+    @Override
+    public void setBackground(Color color) {
+        super.setBackground(color);
+        if (field != null) {
+            field.setBackground(color);
+            list.setBackground(color);
+        }
+    }
+
+    @Override
+    public void setForeground(Color color) {
+        super.setForeground(color);
+        if (field != null) {
+            field.setForeground(color);
+            list.setForeground(color);
+        }
+    }
+
+    private void search() {
+        // Nur Eingaben des Benutzers, nicht das Anzeigen der gewählten Übung
+        if (!settingText && field.isFocusOwner()) {
+            showSuggestions(field.getText());
+        }
+    }
+
+    private void showSuggestions(String query) {
+        if (!field.isShowing()) {
+            return;
+        }
+        List<String> matches = index.complete(query, VISIBLE_ROWS);
+        suggestions.setItems(matches);
+        if (matches.isEmpty()) {
+            popup.setVisible(false);
+            return;
+        }
+        list.setVisibleRowCount(matches.size());
+        list.setSelectedIndex(0);
+        popup.setPreferredSize(null);
+        Dimension size = popup.getPreferredSize();
+        popup.setPreferredSize(new Dimension(Math.max(size.width, getWidth()), size.height));
+        if (popup.isVisible()) {
+            popup.pack();
+        } else {
+            popup.show(this, 0, getHeight());
+        }
+    }
+
+    private void moveSelection(int delta) {
+        if (!popup.isVisible()) {
+            showSuggestions(field.getText().equals(selected) ? "" : field.getText());
+            return;
+        }
+        int row = Math.max(0, Math.min(suggestions.getSize() - 1, list.getSelectedIndex() + delta));
+        list.setSelectedIndex(row);
+    }
+
+    // Übernimmt den markierten Treffer
+    private void accept() {
+        String chosen = popup.isVisible() ? list.getSelectedValue() : null;
+        popup.setVisible(false);
+        if (chosen != null && !chosen.equals(selected)) {
+            selected = chosen;
+            showSelected();
+            fireActionPerformed();
+        } else {
+            showSelected();
+        }
+    }
+
+    private void cancel() {
+        popup.setVisible(false);
+        showSelected();
+    }
+
+    private void showSelected() {
+        settingText = true;
+        try {
+            field.setText(selected == null ? "" : selected);
+            field.setCaretPosition(field.getText().length());
+        } finally {
+            settingText = false;
+        }
+    }
+
+    private void fireActionPerformed() {
+        ActionEvent event = new ActionEvent(this, ActionEvent.ACTION_PERFORMED, selected);
+        for (ActionListener listener : listenerList.getListeners(ActionListener.class)) {
+            listener.actionPerformed(event);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Sperren für Protokolldateien, innerhalb der JVM und zwischen Prozessen.
+ *
+ * Innerhalb der JVM gibt es {@value #STRIPES} Lese-/Schreibsperren; jede Datei gehört fest zu
+ * einer davon. Schreiber verschiedener Übungen blockieren sich so nur, wenn ihre Dateien zufällig
+ * auf dieselbe Sperre fallen, statt alle über eine gemeinsame Sperre zu laufen.
+ *
+ * Zwischen Prozessen (z.B. GUI und Import) sichern {@link FileLock}s ab: Schreiber halten eine
+ * exklusive Sperre, Leser eine gemeinsame. Weil Java {@link FileLock}s je JVM und nicht je Thread
+ * vergibt, teilen sich alle Leser einer Datei in dieser JVM eine einzige gemeinsame Sperre (mit Zähler).
+ * Leser sehen damit nie eine halb geschriebene Zeile.
+ *
+ * Gesperrt wird nicht die Datei selbst, sondern die Sperrdatei {@code <datei>.lock} daneben, die nur
+ * hier geöffnet und nie gelesen oder geschrieben wird. POSIX-Sperren gehören dem Prozess: Schließt
+ * irgendein Teil des Programms einen eigenen Deskriptor auf die Datei (Parser, Rückwärtsleser, Index),
+ * verliert der Prozess alle Sperren darauf, obwohl {@link FileLock#isValid()} weiter true meldet.
+ * Unterstützt das Dateisystem keine Sperren, wird nur innerhalb der JVM gesperrt.
+ *
+ * Abgeleitete Dateien (Kennzahlen, Rollups, Datumsindex) werden je Datei mit {@link #update} gepflegt,
+ * damit Anhängen und Neuaufbau verschiedener Übungen nicht über eine gemeinsame Klassensperre laufen.
+ */
+public final class FileLocks {
+
+    public static final String LOCK_EXTENSION = ".lock";
+
+    private static final int STRIPES = 64;
+
+    private static final long LOCK_RETRY_NANOS = 10_000_000_000L;
+
+    private static final ReentrantReadWriteLock[] LOCKS = new ReentrantReadWriteLock[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) {
+            LOCKS[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    // Gemeinsame Prozess-Sperren der gerade gelesenen Dateien
+    private static final Map<File, SharedLock> SHARED = new HashMap<>();
+
+    // Pflegesperren der gerade bearbeiteten abgeleiteten Dateien
+    private static final Map<File, UpdateLock> UPDATES = new HashMap<>();
+
+    private static volatile boolean warned;
+
+    private FileLocks() {
+    }
+
+    /**
+     * Gehaltene Sperre, wird mit {@link #release()} freigegeben (im finally-Block).
+     */
+    public interface Hold {
+        void release();
+    }
+
+    /**
+     * Sperrt die Datei zum Lesen. Mehrere Leser derselben Datei laufen gleichzeitig.
+     * @param file Protokolldatei (muss nicht existieren)
+     */
+    public static Hold read(File file) {
+        ReentrantReadWriteLock lock = stripe(file);
+        lock.readLock().lock();
+        if (lock.isWriteLockedByCurrentThread() || !file.exists()) {
+            // Eigene exklusive Prozess-Sperre reicht bzw. es gibt nichts zu sperren
+            return () -> lock.readLock().unlock();
+        }
+        SharedLock shared;
+        synchronized (SHARED) {
+            shared = SHARED.computeIfAbsent(file, SharedLock::new);
+            shared.users++;
+        }
+        shared.acquire();
+        return () -> {
+            synchronized (SHARED) {
+                if (--shared.users == 0) {
+                    SHARED.remove(file);
+                    shared.release();
+                }
+            }
+            lock.readLock().unlock();
+        };
+    }
+
+    /**
+     * Sperrt die Datei zum Schreiben, exklusiv in der JVM und über die Sperrdatei auch für andere Prozesse.
+     * @param file Protokolldatei
+     */
+    public static Hold write(File file) {
+        ReentrantReadWriteLock lock = stripe(file);
+        lock.writeLock().lock();
+        if (lock.getWriteHoldCount() > 1) {
+            return () -> lock.writeLock().unlock(); // Die äußere Sperre hält schon die Prozess-Sperre
+        }
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(lockFile(file).toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            warnOnce(file, e);
+            return () -> lock.writeLock().unlock();
+        }
+        try {
+            lock(file, channel, false);
+        } catch (RuntimeException | Error e) {
+            close(file, channel);
+            lock.writeLock().unlock();
+            throw e;
+        }
+        return () -> {
+            try {
+                close(file, channel); // Gibt auch die Sperre frei
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+    }
+
+    /**
+     * Sperrdatei einer Datei, siehe Klassenbeschreibung.
+     */
+    static File lockFile(File file) {
+        return new File(file.getParentFile(), file.getName() + LOCK_EXTENSION);
+    }
+
+    private static void close(File file, FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error releasing lock on " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sperrt eine abgeleitete Datei (z.B. {@code .stats}) für Fortschreiben und Neuaufbau, nur innerhalb der JVM.
+     * Die Sperre ist wiedereintrittsfähig und gilt nur für diese eine Datei. Unter ihr darf das Protokoll
+     * gesperrt werden (z.B. beim Neuaufbau); wer das Protokoll gesperrt hält, darf nur Pflegesperren nehmen,
+     * unter denen das Protokoll nicht erneut gesperrt wird (wie beim Datumsindex).
+     * @param file abgeleitete Datei (muss nicht existieren)
+     */
+    public static Hold update(File file) {
+        UpdateLock update;
+        synchronized (UPDATES) {
+            update = UPDATES.computeIfAbsent(file, f -> new UpdateLock());
+            update.users++;
+        }
+        update.lock.lock();
+        return () -> {
+            update.lock.unlock();
+            synchronized (UPDATES) {
+                if (--update.users == 0) {
+                    UPDATES.remove(file);
+                }
+            }
+        };
+    }
+
+    /**
+     * Sperrt die ganze Datei. POSIX-Sperren gehören dem Prozess, nicht dem Thread; halten zwei Prozesse
+     * je eine Datei und warten auf die des anderen, meldet das Betriebssystem einen (scheinbaren)
+     * Deadlock, obwohl verschiedene Threads beteiligt sind. Dann wird mit tryLock erneut versucht.
+     * @return die Sperre oder null, wenn das Dateisystem keine Sperren unterstützt
+     */
+    private static FileLock lock(File file, FileChannel channel, boolean shared) {
+        IOException failure;
+        try {
+            return channel.lock(0, Long.MAX_VALUE, shared);
+        } catch (IOException e) {
+            failure = e;
+        }
+        long deadline = System.nanoTime() + LOCK_RETRY_NANOS;
+        long sleepMillis = 1;
+        while (System.nanoTime() < deadline && channel.isOpen()) {
+            try {
+                FileLock fileLock = channel.tryLock(0, Long.MAX_VALUE, shared);
+                if (fileLock != null) {
+                    return fileLock;
+                }
+                Thread.sleep(sleepMillis);
+                sleepMillis = Math.min(sleepMillis * 2, 50);
+            } catch (IOException e) {
+                failure = e;
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        warnOnce(file, failure);
+        return null;
+    }
+
+    private static ReentrantReadWriteLock stripe(File file) {
+        int h = file.hashCode();
+        h ^= h >>> 16;
+        return LOCKS[(h & 0x7fffffff) % STRIPES];
+    }
+
+    private static void warnOnce(File file, IOException e) {
+        if (!warned) {
+            warned = true;
+            System.err.println("Dateisperre für " + file + " nicht möglich, sperre nur innerhalb der JVM: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Pflegesperre einer abgeleiteten Datei; bleibt im Verzeichnis, solange sie jemand hält oder darauf wartet.
+     */
+    private static class UpdateLock {
+        final ReentrantLock lock = new ReentrantLock();
+        int users; // geschützt durch UPDATES
+    }
+
+    /**
+     * Gemeinsame Prozess-Sperre einer Datei für alle Leser dieser JVM.
+     */
+    private static class SharedLock {
+        final File file;
+        int users; // geschützt durch SHARED
+        private FileChannel channel;
+        private boolean released;
+
+        SharedLock(File file) {
+            this.file = file;
+        }
+
+        // Der erste Leser wartet auf die Sperre, alle weiteren warten auf ihn
+        synchronized void acquire() {
+            if (channel != null || released) return;
+            try {
+                channel = FileChannel.open(lockFile(file).toPath(), StandardOpenOption.CREATE,
+                        StandardOpenOption.READ, StandardOpenOption.WRITE);
+            } catch (NoSuchFileException e) {
+                return; // Verzeichnis inzwischen gelöscht, nichts zu sperren
+            } catch (IOException e) {
+                warnOnce(file, e);
+                return;
+            }
+            lock(file, channel, true);
+        }
+
+        synchronized void release() {
+            released = true;
+            if (channel == null) return;
+            try {
+                channel.close(); // Gibt auch die Sperre frei
+            } catch (IOException e) {
+                System.err.println("Error releasing lock on " + file + ": " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+}
@@ -1,94 +1,251 @@
-import java.io.*;
 import java.util.*;
+import java.util.stream.Stream;
 
 public class FitnessApp{
 
 
-    private static final String BASE_DIR = "users";
+    static final String BASE_DIR = "users";
 
-    
+    // Zwischenspeicher für bereits gelesene Übungsprotokolle
+    private static final RecordCache RECORD_CACHE = new RecordCache(32);
 
-    // Neue Übung anlegen
-    public static boolean createExercise(String username, String exName) {
-        File userDir = new File(BASE_DIR, username);
-        File exFile = new File(userDir, exName + ".txt");
-        if (exFile.exists()) {
-            return false;
-        } else {
-            try {
-                return exFile.createNewFile();
-            } catch (IOException e) {
-                return false;
-            }
+    // Beim Start gewählter Speicher (-Dfitness.store=text|mapped|memory, siehe RecordStore)
+    private static volatile RecordStore store = createStore(System.getProperty("fitness.store", "text"));
+
+
+    private static RecordStore createStore(String name) {
+        try {
+            return RecordStore.create(name);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ", verwende text.");
+            return TextRecordStore.getDefault();
         }
     }
 
-    // Alle Übungen eines Benutzers auflisten
+    public static RecordStore getStore() {
+        return store;
+    }
+
+    // Anderen Speicher verwenden, z.B. MemoryRecordStore in Tests und Benchmarks
+    public static void setStore(RecordStore recordStore) {
+        store = Objects.requireNonNull(recordStore);
+    }
+
+    // Benutzer anlegen (nur das Verzeichnis bzw. den Eintrag im Speicher, registriert wird in LoginWindow)
+    public static boolean createUser(String username) {
+        return store.createUser(username);
+    }
+
+    public static List<String> listUsers() {
+        return store.listUsers();
+    }
+
+    public static boolean hasUser(String username) {
+        return store.hasUser(username);
+    }
+
+    // Neue Übung anlegen, fehlende Benutzer werden mit angelegt
+    public static boolean createExercise(String username, String exName) {
+        return store.createExercise(username, exName);
+    }
+
+    // Alle Übungen eines Benutzers auflisten (sortiert, nicht veränderbar)
     public static List<String> listExercises(String username) {
-        File userDir = new File(BASE_DIR, username);
-        String[] exercises = userDir.list((BASE_DIR, name) -> name.endsWith(".txt"));
-        if (exercises == null) return new ArrayList<>();
-        List<String> result = new ArrayList<>();
-        for (String ex : exercises) {
-            result.add(ex.replace(".txt", ""));
+        Metrics.Timer timer = Metrics.start(Metrics.Op.LIST_EXERCISES, username, null);
+        try {
+            List<String> exercises = store.listExercises(username);
+            timer.records(exercises.size());
+            return exercises;
+        } finally {
+            timer.stop();
         }
-        return result;
     }
 // test
+    // Benutzer- bzw. Übungsname, der als Datei- oder Verzeichnisname unterhalb von BASE_DIR taugt
+    // (nicht leer, keine Pfadtrenner, nicht "." oder "..")
+    static boolean isValidName(String name) {
+        return name != null && !name.isEmpty() && !name.equals(".") && !name.equals("..")
+                && name.indexOf('/') < 0 && name.indexOf('\\') < 0 && name.indexOf('\0') < 0;
+    }
+
+    // Datum im Format yyyy-MM-dd, das genau so wieder ausgegeben wird (z.B. nicht "2024-1-5" oder "2024-02-30");
+    // DateIndex, Rollups und Archiv verlassen sich auf die Sortierbarkeit als Text
+    static boolean isValidDate(String date) {
+        if (date == null || date.length() != 10) {
+            return false;
+        }
+        try {
+            return java.time.LocalDate.parse(date).toString().equals(date);
+        } catch (java.time.format.DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    // Datensatz, den alle Speicher gleich übernehmen und RecordParser wieder liest:
+    // gültiges Datum und mindestens ein vollständiges Paar aus Wiederholungen und Gewicht
+    static boolean isValidRecord(String date, List<Integer> repsAndWeights) {
+        if (!isValidDate(date) || repsAndWeights == null || repsAndWeights.size() < 2 || repsAndWeights.size() % 2 != 0) {
+            return false;
+        }
+        for (Integer value : repsAndWeights) {
+            if (value == null) return false; // contains(null) wirft bei List.of
+        }
+        return true;
+    }
+
     // Datensatz hinzufügen
     public static boolean addRecord(String username, String exName, String date, List<Integer> repsAndWeights) {
-        File exFile = new File(BASE_DIR + "/" + username, exName + ".txt");
-        try (FileWriter fw = new FileWriter(exFile, true)) {
-            StringBuilder sb = new StringBuilder();
-            sb.append(date);
-            for (int val : repsAndWeights) sb.append(",").append(val);
-            fw.write(sb.toString() + System.lineSeparator());
-            return true;
-        } catch (IOException e) {
-            return false;
+        Metrics.Timer timer = Metrics.start(Metrics.Op.ADD_RECORD, username, exName);
+        try {
+            boolean added = store.addRecord(username, exName, date, repsAndWeights);
+            if (!added) {
+                timer.failed();
+            }
+            return added;
+        } finally {
+            timer.stop();
         }
     }
 
-    // Datensätze auslesen
+    // Datensätze auslesen (die Liste ist nicht veränderbar)
     public static List<Record> getRecords(String username, String exName) {
-        File exFile = new File(BASE_DIR + "/" + username, exName + ".txt");
-        List<Record> records = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(exFile))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 3) {
-                    List<Integer> repsAndWeights = new ArrayList<>();
-                    for (int i = 1; i < parts.length; i++) {
-                        repsAndWeights.add(Integer.parseInt(parts[i]));
-                    }
-                    records.add(new Record(parts[0], repsAndWeights));
-                }
-            }
-        } catch (IOException e) {
-            // Fehler ignorieren, leere Liste zurückgeben
+        Metrics.Timer timer = Metrics.start(Metrics.Op.GET_RECORDS, username, exName);
+        try {
+            List<Record> records = store.getRecords(username, exName);
+            timer.records(records.size());
+            return records;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    // Datensätze mit from <= Datum <= to (yyyy-MM-dd, null = offen) in Dateireihenfolge, archivierte zuerst
+    public static List<Record> getRecords(String username, String exName, String from, String to) {
+        Metrics.Timer timer = Metrics.start(Metrics.Op.GET_RECORD_RANGE, username, exName);
+        try {
+            List<Record> records = store.getRecords(username, exName, from, to);
+            timer.records(records.size());
+            return records;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    // Anzahl der Datensätze, aus den laufenden Kennzahlen
+    public static int countRecords(String username, String exName) {
+        return store.stats(username, exName).count;
+    }
+
+    /**
+     * Datensätze als Stream, ohne die ganze Übung zu laden; mit try-with-resources schließen.
+     * Beispiel: {@code try (Stream<Record> s = streamRecords(u, e, new RecordScan().firstSets(1))) { ... }}
+     */
+    public static Stream<Record> streamRecords(String username, String exName, RecordScan scan) {
+        return store.streamRecords(username, exName, scan);
+    }
+
+    // Tages- und Wochenwerte (Volumen, bester Satz, e1RM), ohne das ganze Protokoll zu lesen
+    public static Rollups getRollups(String username, String exName) {
+        return store.rollups(username, exName);
+    }
+
+    // Seite von Datensätzen, neueste zuerst: überspringt die 'skip' neuesten und liefert höchstens 'limit'
+    public static List<Record> getRecordPage(String username, String exName, int skip, int limit) {
+        Metrics.Timer timer = Metrics.start(Metrics.Op.GET_RECORD_PAGE, username, exName);
+        try {
+            List<Record> page = store.getRecordPage(username, exName, skip, limit);
+            timer.records(page.size());
+            return page;
+        } finally {
+            timer.stop();
         }
-        return records;
-    }  
+    }
+
+    // Die letzten n Datensätze, neueste zuerst
+    public static List<Record> getLastRecords(String username, String exName, int n) {
+        return getRecordPage(username, exName, 0, n);
+    }
+
+    // Alle Datensätze der letzten Trainingseinheit (gleiches Datum wie der neueste Datensatz), neueste zuerst
+    public static List<Record> getLastSession(String username, String exName) {
+        return store.getLastSession(username, exName);
+    }
+
+    // Cache der Datensätze, z.B. für Treffer-/Fehlzugriffszähler
+    public static RecordCache getRecordCache() {
+        return RECORD_CACHE;
+    }
 
     // Datensatz-Klasse
+    // Wiederholungen und Gewichte liegen abwechselnd als int in einem (ggf. mit anderen
+    // Datensätzen geteilten) Array, es wird also nichts geboxt.
     public static class Record {
         public String date;
-        public List<Integer> repsAndWeights;
+        private final int[] values;
+        private final int offset;
+        private final int length;
+
         public Record(String date, List<Integer> repsAndWeights) {
             this.date = date;
-            this.repsAndWeights = repsAndWeights;
+            this.values = new int[repsAndWeights.size()];
+            for (int i = 0; i < values.length; i++) values[i] = repsAndWeights.get(i);
+            this.offset = 0;
+            this.length = values.length;
         }
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder(date + " | ");
-            for (int i = 0; i < repsAndWeights.size(); i += 2) {
+
+        // Ausschnitt [offset, offset + length) eines gemeinsamen Werte-Arrays, das nicht mehr verändert wird
+        public Record(String date, int[] values, int offset, int length) {
+            this.date = date;
+            this.values = values;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        // Anzahl der Werte (Wiederholungen und Gewichte zusammen)
+        public int size() {
+            return length;
+        }
+
+        // i-ter Wert, gerade Indizes sind Wiederholungen, ungerade Gewichte
+        public int get(int index) {
+            if (index < 0 || index >= length) throw new IndexOutOfBoundsException("Index: " + index + ", Größe: " + length);
+            return values[offset + index];
+        }
+
+        public int getSetCount() {
+            return (length + 1) / 2;
+        }
+
+        // Unveränderliche Listenansicht für Aufrufer, die mit List<Integer> arbeiten
+        public List<Integer> getRepsAndWeights() {
+            return new AbstractList<Integer>() {
+                @Override
+                public Integer get(int index) {
+                    return Record.this.get(index);
+                }
+
+                @Override
+                public int size() {
+                    return length;
+                }
+            };
+        }
+
+        // Sätze ohne Datum, z.B. "Wdh: 9, Gewicht: 90kg | Wdh: 8, Gewicht: 12kg"
+        public String setsToString() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < length; i += 2) {
                 if (i > 0) sb.append(" | ");
-                sb.append("Wdh: ").append(repsAndWeights.get(i));
-                if (i + 1 < repsAndWeights.size()) sb.append(", Gewicht: ").append(repsAndWeights.get(i + 1)).append("kg");
+                sb.append("Wdh: ").append(values[offset + i]);
+                if (i + 1 < length) sb.append(", Gewicht: ").append(values[offset + i + 1]).append("kg");
             }
             return sb.toString();
         }
+
+        @Override
+        public String toString() {
+            return date + " | " + setsToString();
+        }
     }
 
 
@@ -106,33 +263,38 @@ public class FitnessApp{
      * @return Gewichtsvorschlag (auch wenn unverändert)
      */
     public static double calculateNextWeight(String username, String exName) {
-        List<Record> records = getRecords(username, exName);
-        if (records.isEmpty()) {
-            throw new IllegalArgumentException("Keine Datensätze vorhanden.");
-        }
-        // Wir nehmen den ersten Satz aller Einträge als Beispiel (kann angepasst werden)
-        List<Integer> reps = new ArrayList<>();
-        for (Record r : records) {
-            if (!r.repsAndWeights.isEmpty()) {
-                reps.add(r.repsAndWeights.get(0)); // Nur die Wiederholungen des 1. Satzes
-            }
+        Metrics.Timer timer = Metrics.start(Metrics.Op.NEXT_WEIGHT, username, exName);
+        try {
+            return nextWeight(username, exName);
+        } catch (IllegalArgumentException e) {
+            timer.failed();
+            throw e;
+        } finally {
+            timer.stop();
         }
-        if (reps.isEmpty()) {
-            throw new IllegalArgumentException("Keine Wiederholungen gefunden.");
+    }
+
+    private static double nextWeight(String username, String exName) {
+        // Laufende Kennzahlen statt aller Datensätze (beim Textspeicher nur bei veralteten Kennzahlen gelesen)
+        WeightPlan.Suggestion suggestion = suggest(username, exName, store.stats(username, exName));
+        if (!suggestion.isOk()) {
+            throw new IllegalArgumentException(suggestion.error);
         }
-        // Das aktuelle Gewicht des letzten Eintrags, 2. Wert im letzten Record (1. Satz)
-        int currentWeight = 0;
-        List<Integer> last = records.get(records.size() - 1).repsAndWeights;
-        if (last.size() > 1) {
-            currentWeight = last.get(1);
-        } else {
-            throw new IllegalArgumentException("Kein Gewicht im letzten Datensatz gefunden.");
+        return suggestion.weight;
+    }
+
+    // Regel von calculateNextWeight; Fehler stehen im Ergebnis statt als Ausnahme (für WeightPlan)
+    static WeightPlan.Suggestion suggest(String username, String exName, ProgressionStats stats) {
+        if (stats.count == 0) {
+            return WeightPlan.Suggestion.failed(username, exName, "Keine Datensätze vorhanden.");
         }
-        int total = 0;
-        for (int r : reps) {
-            total += r;
+        // Das aktuelle Gewicht des letzten Eintrags, 2. Wert im letzten Record (1. Satz)
+        if (!stats.hasLastWeight) {
+            return WeightPlan.Suggestion.failed(username, exName, "Kein Gewicht im letzten Datensatz gefunden.");
         }
-        double avg = (double) total / reps.size();
+        int currentWeight = stats.lastWeight;
+        // Durchschnitt der Wiederholungen des 1. Satzes aller Einträge
+        double avg = stats.averageFirstReps();
         double nextWeight;
         if (avg > 8) {
             nextWeight = currentWeight * 1.05;
@@ -141,7 +303,7 @@ public class FitnessApp{
         } else {
             nextWeight = currentWeight;
         }
-        return Math.round(nextWeight * 10.0) / 10.0;
+        return new WeightPlan.Suggestion(username, exName, Math.round(nextWeight * 10.0) / 10.0, null);
     }
 
 }
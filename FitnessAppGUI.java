@@ -2,9 +2,12 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.*;
 import java.util.List; // Explicitly import List to avoid ambiguity with java.awt.List
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 
 /**
  * The FitnessAppGUI class represents the main application window that opens
@@ -13,14 +16,19 @@ import java.util.List; // Explicitly import List to avoid ambiguity with java.aw
  */
 public class FitnessAppGUI extends JFrame { // Changed class name from FitnessApp to FitnessAppGUI
 
-    private static final String BASE_DIR = "users";
     private String currentLoggedInUser; // To store the username of the logged-in user
 
     // GUI Components (example, you'll expand this)
     private JLabel welcomeLabel;
     private JButton createExerciseButton;
-    private JComboBox<String> exerciseDropdown;
-    private JTextArea recordsDisplayArea;
+    private ExerciseSelector exerciseSelector; // Type-ahead search over the exercises (see ExerciseIndex)
+    private RecordTableModel recordsModel; // Newest first, pages are loaded lazily while scrolling
+    private JTable recordsTable;
+    private JLabel recordsMessageLabel; // Shown instead of the table while loading or when there are no records
+    private JScrollPane recordsScrollPane;
+    private JTabbedPane recordsTabs; // "Sätze" (table) and "Verlauf" (progress chart)
+    private ProgressChart progressChart;
+    private String chartExercise; // Exercise whose history the chart shows or is loading, null if outdated
     private JButton addRecordButton;
     private JButton calculateWeightButton;
     private JLabel suggestionLabel;
@@ -28,6 +36,9 @@ public class FitnessAppGUI extends JFrame { // Changed class name from FitnessAp
     private List<JTextField> repsFields = new ArrayList<>();
     private List<JTextField> weightFields = new ArrayList<>();
     private JButton finishAddRecordButton;
+    private int pendingOperations; // Background storage operations in flight (EDT only)
+    private int displayGeneration; // Incremented per displayRecords call to drop outdated results
+    private final SessionSnapshot session; // What the window showed last time, rendered before the logs are read
 
     /**
      * Constructor for the FitnessAppGUI class.
@@ -36,12 +47,19 @@ public class FitnessAppGUI extends JFrame { // Changed class name from FitnessAp
      */
     public FitnessAppGUI(String username) { // Changed constructor name
         this.currentLoggedInUser = username; // Store the logged-in username
+        this.session = SessionSnapshot.load(username); // Small file, read synchronously so the first frame is complete
 
         // Window settings
         setTitle("MyGym - Willkommen, " + username + "!"); // Dynamic title
         setSize(800, 600); // Set an appropriate size for your fitness app
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE); // Exits the application when this window is closed
         setLocationRelativeTo(null); // Centers the window on the screen
+        addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    session.save(); // Runs before EXIT_ON_CLOSE ends the JVM
+                }
+            });
 
         // Create a main panel for the fitness app content
         JPanel mainPanel = new JPanel();
@@ -66,8 +84,8 @@ public class FitnessAppGUI extends JFrame { // Changed class name from FitnessAp
         gbc.insets = new Insets(10, 10, 10, 10);
         gbc.fill = GridBagConstraints.HORIZONTAL;
 
-        // Initialize exerciseDropdown before using it
-        exerciseDropdown = new JComboBox<>();
+        // Initialize exerciseSelector before using it
+        exerciseSelector = new ExerciseSelector();
 
         // Exercise Management - improved layout
         JPanel exPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 15, 0));
@@ -75,29 +93,55 @@ public class FitnessAppGUI extends JFrame { // Changed class name from FitnessAp
         JLabel exLabel = new JLabel("Übung auswählen/erstellen:");
         exLabel.setForeground(new Color(220, 220, 220)); // Softer light gray
         exLabel.setFont(new Font("Arial", Font.BOLD, 18));
-        exerciseDropdown.setPreferredSize(new Dimension(220, 36));
-        exerciseDropdown.setFont(new Font("Arial", Font.PLAIN, 16));
-        exerciseDropdown.setBackground(Color.WHITE);
-        exerciseDropdown.setForeground(Color.DARK_GRAY);
+        exerciseSelector.setPreferredSize(new Dimension(220, 36));
+        exerciseSelector.setFont(new Font("Arial", Font.PLAIN, 16));
+        exerciseSelector.setBackground(Color.WHITE);
+        exerciseSelector.setForeground(Color.DARK_GRAY);
         createExerciseButton = new RoundedButton("Neue Übung", Color.decode("#007BFF"), Color.WHITE);
         createExerciseButton.setFont(new Font("Arial", Font.BOLD, 16));
         createExerciseButton.setPreferredSize(new Dimension(170, 36));
         exPanel.add(exLabel);
-        exPanel.add(exerciseDropdown);
+        exPanel.add(exerciseSelector);
         exPanel.add(createExerciseButton);
         gbc.gridx = 0; gbc.gridy = 0; gbc.gridwidth = 3; gbc.anchor = GridBagConstraints.WEST; gbc.fill = GridBagConstraints.HORIZONTAL;
         centerPanel.add(exPanel, gbc);
 
         // Records Display
-        recordsDisplayArea = new JTextArea(10, 40);
-        recordsDisplayArea.setEditable(false);
-        recordsDisplayArea.setBackground(Color.LIGHT_GRAY);
-        recordsDisplayArea.setForeground(Color.BLACK);
-        JScrollPane scrollPane = new JScrollPane(recordsDisplayArea);
+        recordsModel = new RecordTableModel();
+        recordsTable = new JTable(recordsModel);
+        recordsTable.setBackground(Color.LIGHT_GRAY);
+        recordsTable.setForeground(Color.BLACK);
+        recordsTable.setFillsViewportHeight(true);
+        recordsTable.getColumnModel().getColumn(0).setMaxWidth(110);
+        recordsMessageLabel = new JLabel(" ", SwingConstants.CENTER);
+        recordsMessageLabel.setOpaque(true);
+        recordsMessageLabel.setBackground(Color.LIGHT_GRAY);
+        recordsMessageLabel.setForeground(Color.BLACK);
+        recordsScrollPane = new JScrollPane(recordsTable);
+        recordsScrollPane.setPreferredSize(new Dimension(600, 200));
+
+        // Progress chart, loaded when its tab is shown (weight or volume per record over time)
+        progressChart = new ProgressChart();
+        JComboBox<ProgressChart.Metric> metricDropdown = new JComboBox<>(ProgressChart.Metric.values());
+        metricDropdown.addActionListener(e -> progressChart.setMetric((ProgressChart.Metric) metricDropdown.getSelectedItem()));
+        JLabel chartHint = new JLabel("Mausrad: Zoom, Ziehen: Verschieben, Doppelklick: alles");
+        chartHint.setForeground(new Color(220, 220, 220));
+        JPanel chartControls = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 4));
+        chartControls.setBackground(Color.decode("#343A40"));
+        chartControls.add(metricDropdown);
+        chartControls.add(chartHint);
+        JPanel chartPanel = new JPanel(new BorderLayout());
+        chartPanel.add(chartControls, BorderLayout.NORTH);
+        chartPanel.add(progressChart, BorderLayout.CENTER);
+
+        recordsTabs = new JTabbedPane();
+        recordsTabs.addTab("Sätze", recordsScrollPane);
+        recordsTabs.addTab("Verlauf", chartPanel);
+        recordsTabs.addChangeListener(e -> updateChart());
         gbc.gridx = 0; gbc.gridy = 1; gbc.gridwidth = 3;
         gbc.fill = GridBagConstraints.BOTH; // Allow text area to fill space
         gbc.weightx = 1.0; gbc.weighty = 1.0; // Allow text area to grow
-        centerPanel.add(scrollPane, gbc);
+        centerPanel.add(recordsTabs, gbc);
 
         // --- Add Record Panel (dynamic input fields) ---
         addRecordPanel = new JPanel();
@@ -114,19 +158,26 @@ public class FitnessAppGUI extends JFrame { // Changed class name from FitnessAp
         calculateWeightButton.addActionListener(new ActionListener() {
                 @Override
                 public void actionPerformed(ActionEvent e) {
-                    String selectedEx = (String) exerciseDropdown.getSelectedItem();
+                    String selectedEx = exerciseSelector.getSelectedExercise();
                     if (selectedEx == null || selectedEx.isEmpty()) {
                         JOptionPane.showMessageDialog(FitnessAppGUI.this, "Bitte wählen Sie eine Übung aus.", "Fehler", JOptionPane.WARNING_MESSAGE); // Changed reference
                         return;
                     }
-                    try {
-                        double nextWeight = FitnessApp.calculateNextWeight(currentLoggedInUser, selectedEx);
-                        suggestionLabel.setText("Vorgeschlagenes Gewicht für " + selectedEx + ": " + nextWeight + " kg");
-                        suggestionLabel.setForeground(Color.CYAN);
-                    } catch (IllegalArgumentException ex) {
-                        suggestionLabel.setText("Fehler: " + ex.getMessage());
-                        suggestionLabel.setForeground(Color.RED);
-                    }
+                    suggestionLabel.setText("Berechne Vorschlag für " + selectedEx + " ...");
+                    suggestionLabel.setForeground(Color.WHITE);
+                    calculateWeightButton.setEnabled(false);
+                    runInBackground(AsyncFitnessApp.calculateNextWeight(currentLoggedInUser, selectedEx), (nextWeight, error) -> {
+                        calculateWeightButton.setEnabled(true);
+                        if (error == null) {
+                            suggestionLabel.setText("Vorgeschlagenes Gewicht für " + selectedEx + ": " + nextWeight + " kg");
+                            suggestionLabel.setForeground(Color.CYAN);
+                            session.setSuggestion(selectedEx, nextWeight);
+                            AsyncFitnessApp.saveSession(session);
+                        } else {
+                            suggestionLabel.setText("Fehler: " + error.getMessage());
+                            suggestionLabel.setForeground(Color.RED);
+                        }
+                    });
                 }
             });
         gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 3;
@@ -142,186 +193,212 @@ public class FitnessAppGUI extends JFrame { // Changed class name from FitnessAp
 
         mainPanel.add(centerPanel, BorderLayout.CENTER);
 
-        // --- Event Listener for Dropdown ---
-        exerciseDropdown.addActionListener(new ActionListener() {
+        // --- Event Listener for the exercise selector (only fired when the user picks another exercise) ---
+        exerciseSelector.addActionListener(new ActionListener() {
                 @Override
                 public void actionPerformed(ActionEvent e) {
-                    String selectedEx = (String) exerciseDropdown.getSelectedItem();
+                    String selectedEx = exerciseSelector.getSelectedExercise();
                     if (selectedEx != null) {
                         displayRecords(selectedEx);
                     } else {
-                        recordsDisplayArea.setText(""); // Clear if no exercise selected
+                        displayGeneration++; // Drop records still being loaded for the previous selection
+                        showRecordsMessage(" "); // Clear if no exercise selected
                         suggestionLabel.setText(" "); // Clear suggestion
                     }
                 }
             });
 
-        // Initialize the exercise dropdown and records display
-        updateExerciseDropdown();
-        if (exerciseDropdown.getItemCount() > 0) {
-            exerciseDropdown.setSelectedIndex(0); // Select the first item
-            displayRecords((String) exerciseDropdown.getSelectedItem());
+        // Show the last session right away, then verify exercises and records in the background
+        if (!session.isEmpty()) {
+            exerciseSelector.setExercises(ExerciseIndex.of(session.getExercises()), session.getSelected());
+            String selectedEx = exerciseSelector.getSelectedExercise();
+            SessionSnapshot.Entry entry = selectedEx == null ? null : session.get(selectedEx);
+            if (entry != null) {
+                showEntry(selectedEx, entry);
+            }
         }
+        updateExerciseSelector();
 
         setVisible(true); // Make the FitnessAppGUI window visible
     }
 
     /**
-     * Updates the exercise dropdown with exercises for the current user.
+     * Updates the exercise selector with exercises for the current user.
+     * The exercises and their search index are loaded in the background; the selection is kept if the
+     * exercise still exists, otherwise the first one is selected. The selector stays usable if it already
+     * shows the last session.
      */
-    private void updateExerciseDropdown() {
-        exerciseDropdown.removeAllItems();
-        List<String> exercises = listExercises(currentLoggedInUser);
-        for (String ex : exercises) {
-            exerciseDropdown.addItem(ex);
-        }
+    private void updateExerciseSelector() {
+        boolean fromSession = !exerciseSelector.getExercises().isEmpty();
+        exerciseSelector.setEnabled(fromSession);
+        runInBackground(AsyncFitnessApp.exerciseIndex(currentLoggedInUser), (index, error) -> {
+            exerciseSelector.setEnabled(true);
+            if (error != null) {
+                if (!fromSession) {
+                    showRecordsMessage("Fehler beim Laden der Übungen: " + error.getMessage());
+                }
+                return;
+            }
+            session.setExercises(index.names());
+            if (!index.names().equals(exerciseSelector.getExercises())) {
+                exerciseSelector.setExercises(index, exerciseSelector.getSelectedExercise());
+            }
+            String selectedEx = exerciseSelector.getSelectedExercise();
+            if (selectedEx != null) {
+                displayRecords(selectedEx);
+            } else {
+                showRecordsMessage(" ");
+                AsyncFitnessApp.saveSession(session);
+            }
+        });
     }
 
     /**
-     * Displays the records for the selected exercise in the text area.
+     * Displays the records for the selected exercise in the table, newest first.
+     * The state from the session snapshot is shown immediately; the record count and the newest page
+     * are then loaded in the background and only replace the table if they differ. The table model
+     * fetches further pages while scrolling.
      * @param exName The name of the exercise.
      */
     private void displayRecords(String exName) {
-        recordsDisplayArea.setText(""); // Clear previous records
-        List<Record> records = getRecords(currentLoggedInUser, exName);
-        if (records.isEmpty()) {
-            recordsDisplayArea.setText("Keine Sätze für " + exName + " gefunden.");
-        } else {
-            for (Record record : records) {
-                recordsDisplayArea.append(record.toString() + "\n");
+        int generation = ++displayGeneration;
+        session.setSelected(exName);
+        updateChart();
+        SessionSnapshot.Entry entry = session.get(exName);
+        if (entry == null) {
+            showRecordsMessage("Lade Sätze für " + exName + " ...");
+            suggestionLabel.setText(" ");
+        } else if (!exName.equals(recordsModel.getExercise())) {
+            showEntry(exName, entry);
+        }
+        CompletableFuture<Integer> count = AsyncFitnessApp.countRecords(currentLoggedInUser, exName);
+        CompletableFuture<List<FitnessApp.Record>> newest =
+                AsyncFitnessApp.getRecordPage(currentLoggedInUser, exName, 0, RecordTableModel.PAGE_SIZE);
+        runInBackground(count.thenCombine(newest, (n, page) -> {
+            // On the worker thread: compare with the snapshot and persist changes (e.g. after addRecord)
+            if (session.update(exName, n, page)) {
+                session.save();
+                return true;
             }
+            return false;
+        }), (changed, error) -> {
+            if (generation != displayGeneration) {
+                return; // Another exercise was selected in the meantime
+            }
+            if (error != null) {
+                showRecordsMessage("Fehler beim Laden der Sätze: " + error.getMessage());
+            } else if (changed || entry == null) {
+                showEntry(exName, session.get(exName));
+            }
+        });
+    }
+
+    /**
+     * Loads the progress chart of the selected exercise if the chart tab is visible and it is not loaded yet.
+     * The history is streamed in the background; zooming and panning then only work on the loaded series.
+     */
+    private void updateChart() {
+        String selectedEx = exerciseSelector.getSelectedExercise();
+        if (recordsTabs.getSelectedIndex() != 1 || selectedEx == null || selectedEx.equals(chartExercise)) {
+            return;
         }
+        chartExercise = selectedEx;
+        progressChart.setMessage("Lade Verlauf für " + selectedEx + " ...");
+        runInBackground(AsyncFitnessApp.loadProgress(currentLoggedInUser, selectedEx), (series, error) -> {
+            if (!selectedEx.equals(chartExercise)) {
+                return; // Another exercise was selected or a record was added in the meantime
+            }
+            if (error != null) {
+                chartExercise = null;
+                progressChart.setMessage("Fehler beim Laden des Verlaufs: " + error.getMessage());
+            } else {
+                progressChart.setSeries(series);
+            }
+        });
     }
 
-    // --- Backend Logic (from your original FitnessApp) ---
-    // Ensure the base directory exists
-    static {
-        File baseDirFile = new File(BASE_DIR);
-        if (!baseDirFile.exists()) {
-            baseDirFile.mkdirs();
+    /**
+     * Shows the records and the cached suggestion of an exercise as stored in the session snapshot.
+     */
+    private void showEntry(String exName, SessionSnapshot.Entry entry) {
+        if (entry.count == 0) {
+            showRecordsMessage("Keine Sätze für " + exName + " gefunden.");
+        } else {
+            recordsModel.setExercise(currentLoggedInUser, exName, entry.count, entry.newest);
+            recordsScrollPane.setViewportView(recordsTable);
+            recordsTable.scrollRectToVisible(recordsTable.getCellRect(0, 0, true));
+        }
+        if (entry.hasSuggestion()) {
+            suggestionLabel.setText("Vorgeschlagenes Gewicht für " + exName + ": " + entry.suggestion + " kg");
+            suggestionLabel.setForeground(Color.CYAN);
+        } else {
+            suggestionLabel.setText(" ");
         }
     }
 
+    /**
+     * Replaces the records table with a status message.
+     * @param message The message to show.
+     */
+    private void showRecordsMessage(String message) {
+        recordsModel.clear();
+        recordsMessageLabel.setText(message);
+        recordsScrollPane.setViewportView(recordsMessageLabel);
+    }
+
+    /**
+     * Runs the callback on the EDT once the background operation completes and shows a wait cursor meanwhile.
+     * @param future The background storage operation.
+     * @param callback Receives the result or the error on the EDT.
+     */
+    private <T> void runInBackground(CompletableFuture<T> future, BiConsumer<? super T, ? super Throwable> callback) {
+        if (pendingOperations++ == 0) {
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        }
+        AsyncFitnessApp.onEdt(future, (result, error) -> {
+            if (--pendingOperations == 0) {
+                setCursor(Cursor.getDefaultCursor());
+            }
+            callback.accept(result, error);
+        });
+    }
+
+    // --- Backend Logic ---
+    // All storage goes through FitnessApp and its RecordStore, so the GUI cannot drift from it again
+
     /**
      * Creates a user directory. This method is now available if needed by other parts of the application.
-     * Note: User registration (adding to users.ser) is handled by LoginWindow.
+     * Note: User registration (adding to the registry) is handled by LoginWindow.
      * @param username The username for which to create a directory.
-     * @return true if the directory was created or already exists, false otherwise.
+     * @return true if the user was created, false if it already exists or could not be created.
      */
     public static boolean createUser(String username) {
-        File userDir = new File(BASE_DIR, username);
-        if (userDir.exists()) {
-            return false; // Benutzer existiert bereits
-        } else {
-            return userDir.mkdirs(); // Create the directory
-        }
+        return FitnessApp.createUser(username);
     }
 
     // Alle Benutzer auflisten (Not directly used in FitnessApp GUI, but kept for completeness)
     public static List<String> listUsers() {
-        File base = new File(BASE_DIR);
-        String[] users = base.list((dir, name) -> new File(dir, name).isDirectory());
-        if (users == null) return new ArrayList<>();
-        return Arrays.asList(users);
+        return FitnessApp.listUsers();
     }
 
-    // Neue Übung anlegen
+    // Neue Übung anlegen (the user directory is created if missing)
     public static boolean createExercise(String username, String exName) {
-        File userDir = new File(BASE_DIR, username);
-        if (!userDir.exists()) {
-            userDir.mkdirs(); // Ensure user directory exists
-        }
-        File exFile = new File(userDir, exName + ".txt");
-        if (exFile.exists()) {
-            return false;
-        } else {
-            try {
-                return exFile.createNewFile();
-            } catch (IOException e) {
-                System.err.println("Error creating exercise file: " + e.getMessage());
-                return false;
-            }
-        }
+        return FitnessApp.createExercise(username, exName);
     }
 
-    // Alle Übungen eines Benutzers auflisten
+    // Alle Übungen eines Benutzers auflisten (sortiert und nicht veränderbar)
     public static List<String> listExercises(String username) {
-        File userDir = new File(BASE_DIR, username);
-        if (!userDir.exists()) {
-            return new ArrayList<>(); // Return empty list if user directory doesn't exist
-        }
-        String[] exercises = userDir.list((dir, name) -> name.endsWith(".txt"));
-        if (exercises == null) return new ArrayList<>();
-        List<String> result = new ArrayList<>();
-        for (String ex : exercises) {
-            result.add(ex.replace(".txt", ""));
-        }
-        return result;
+        return FitnessApp.listExercises(username);
     }
 
     // Satz hinzufügen
     public static boolean addRecord(String username, String exName, String date, List<Integer> repsAndWeights) {
-        File exFile = new File(BASE_DIR + File.separator + username, exName + ".txt");
-        try (FileWriter fw = new FileWriter(exFile, true)) { // true for append mode
-            StringBuilder sb = new StringBuilder();
-            sb.append(date);
-            for (int val : repsAndWeights) sb.append(",").append(val);
-            fw.write(sb.toString() + System.lineSeparator());
-            return true;
-        } catch (IOException e) {
-            System.err.println("Error adding record: " + e.getMessage());
-            return false;
-        }
+        return FitnessApp.addRecord(username, exName, date, repsAndWeights);
     }
 
-    // Datensätze auslesen
-    public static List<Record> getRecords(String username, String exName) {
-        File exFile = new File(BASE_DIR + File.separator + username, exName + ".txt");
-        List<Record> records = new ArrayList<>();
-        if (!exFile.exists()) {
-            return records; // Return empty list if file doesn't exist
-        }
-        try (BufferedReader br = new BufferedReader(new FileReader(exFile))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 3) { // Date, Reps, Weight (at least one set)
-                    List<Integer> repsAndWeights = new ArrayList<>();
-                    for (int i = 1; i < parts.length; i++) {
-                        repsAndWeights.add(Integer.parseInt(parts[i]));
-                    }
-                    records.add(new Record(parts[0], repsAndWeights));
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading records: " + e.getMessage());
-            // Fehler ignorieren, leere Liste zurückgeben
-        } catch (NumberFormatException e) {
-            System.err.println("Error parsing record data: " + e.getMessage());
-        }
-        return records;
-    }
-
-    // Satz-Klasse
-    public static class Record {
-        public String date;
-        public List<Integer> repsAndWeights;
-
-        public Record(String date, List<Integer> repsAndWeights) {
-            this.date = date;
-            this.repsAndWeights = repsAndWeights;
-        }
-
-        @Override
-        public String toString() {
-            StringBuilder sb = new StringBuilder(date + " | ");
-            for (int i = 0; i < repsAndWeights.size(); i += 2) {
-                if (i > 0) sb.append(" | ");
-                sb.append("Wdh: ").append(repsAndWeights.get(i));
-                if (i + 1 < repsAndWeights.size()) sb.append(", Gewicht: ").append(repsAndWeights.get(i + 1)).append("kg");
-            }
-            return sb.toString();
-        }
+    // Datensätze auslesen (invalid lines are skipped, see RecordParser)
+    public static List<FitnessApp.Record> getRecords(String username, String exName) {
+        return FitnessApp.getRecords(username, exName);
     }
 
 
@@ -397,7 +474,7 @@ public class FitnessAppGUI extends JFrame { // Changed class name from FitnessAp
         finishAddRecordButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                String selectedEx = (String) exerciseDropdown.getSelectedItem();
+                String selectedEx = exerciseSelector.getSelectedExercise();
                 if (selectedEx == null || selectedEx.isEmpty()) {
                     JOptionPane.showMessageDialog(FitnessAppGUI.this, "Bitte wählen Sie eine Übung aus.", "Fehler", JOptionPane.WARNING_MESSAGE);
                     return;
@@ -421,13 +498,22 @@ public class FitnessAppGUI extends JFrame { // Changed class name from FitnessAp
                     return;
                 }
                 String date = new java.text.SimpleDateFormat("yyyy-MM-dd").format(new Date());
-                if (addRecord(currentLoggedInUser, selectedEx, date, repsAndWeights)) {
-                    JOptionPane.showMessageDialog(FitnessAppGUI.this, "Sätze erfolgreich hinzugefügt.");
-                    displayRecords(selectedEx);
-                    setupAddRecordPanel(); // Reset input fields
-                } else {
-                    JOptionPane.showMessageDialog(FitnessAppGUI.this, "Fehler beim Hinzufügen der Sätze.", "Fehler", JOptionPane.ERROR_MESSAGE);
-                }
+                finishAddRecordButton.setEnabled(false); // Prevent double submission while the write is in flight
+                runInBackground(AsyncFitnessApp.addRecord(currentLoggedInUser, selectedEx, date, repsAndWeights), (added, error) -> {
+                    finishAddRecordButton.setEnabled(true);
+                    if (error == null && added) {
+                        JOptionPane.showMessageDialog(FitnessAppGUI.this, "Sätze erfolgreich hinzugefügt.");
+                        if (selectedEx.equals(chartExercise)) {
+                            chartExercise = null; // Reloaded with the new record when shown
+                        }
+                        if (selectedEx.equals(exerciseSelector.getSelectedExercise())) {
+                            displayRecords(selectedEx);
+                        }
+                        setupAddRecordPanel(); // Reset input fields
+                    } else {
+                        JOptionPane.showMessageDialog(FitnessAppGUI.this, "Fehler beim Hinzufügen der Sätze.", "Fehler", JOptionPane.ERROR_MESSAGE);
+                    }
+                });
             }
         });
         addRecordPanel.add(finishAddRecordButton);
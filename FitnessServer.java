@@ -0,0 +1,318 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Headless-Betrieb: stellt das {@link FitnessApp}-Backend als JSON-API über HTTP bereit.
+ *
+ * Endpunkte ({@code user} und {@code exercise} URL-kodiert):
+ * <pre>
+ * GET  /users/{user}/exercises                          Übungen auflisten
+ * POST /users/{user}/exercises           {"name": ...}  Übung anlegen
+ * GET  /users/{user}/exercises/{exercise}/records       Datensätze (optional ?skip=&amp;limit=, dann neueste zuerst)
+ * POST /users/{user}/exercises/{exercise}/records       {"date": "yyyy-MM-dd", "repsAndWeights": [...]}
+ * GET  /users/{user}/exercises/{exercise}/next-weight   Gewichtsvorschlag
+ * </pre>
+ * Jede Anfrage läuft auf einem eigenen virtuellen Thread, sofern die JVM sie anbietet (ab Java 21),
+ * sonst auf einem Pool mit {@value #FALLBACK_THREADS} Threads. Gleichzeitig angenommene Anfragen werden
+ * auf {@code fitness.server.maxConcurrent} begrenzt; die Erlaubnis wird vor dem Übergeben an den
+ * Executor geholt, darüber hinaus wird sofort mit 503 geantwortet statt unbegrenzt zu warten.
+ *
+ * Konfiguration über System-Properties: {@code fitness.server.port} (8080),
+ * {@code fitness.server.backlog} (1024), {@code fitness.server.maxConcurrent} (10000 mit virtuellen
+ * Threads, sonst {@value #FALLBACK_THREADS}),
+ * {@code fitness.server.maxConnections} (offene Verbindungen, wird an den JDK-Server weitergereicht).
+ */
+public class FitnessServer {
+
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    // Threads des Pools, wenn es keine virtuellen Threads gibt
+    static final int FALLBACK_THREADS = 200;
+    // Gesetzt, während eine abgewiesene Anfrage direkt auf dem Thread des JDK-Servers beantwortet wird
+    private static final ThreadLocal<Boolean> REJECTED = ThreadLocal.withInitial(() -> false);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+
+    /**
+     * @param port          TCP-Port
+     * @param backlog       Länge der Warteschlange für noch nicht angenommene Verbindungen
+     * @param maxConcurrent maximale Anzahl gleichzeitig bearbeiteter Anfragen
+     * @throws IOException wenn der Port nicht gebunden werden kann
+     */
+    public FitnessServer(int port, int backlog, int maxConcurrent) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(port), backlog);
+        this.executor = newRequestExecutor(maxConcurrent);
+        this.permits = new Semaphore(maxConcurrent);
+        server.createContext("/users/", this::handle);
+        server.setExecutor(this::dispatch);
+    }
+
+    // Holt die Erlaubnis vor dem Einreihen, damit die Warteschlange nie über maxConcurrent wächst
+    private void dispatch(Runnable exchangeTask) {
+        if (permits.tryAcquire()) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        exchangeTask.run();
+                    } finally {
+                        permits.release();
+                    }
+                });
+                return;
+            } catch (RejectedExecutionException e) {
+                permits.release(); // z.B. beim Beenden
+            }
+        }
+        REJECTED.set(true);
+        try {
+            exchangeTask.run(); // Beantwortet nur mit 503, siehe handle
+        } finally {
+            REJECTED.set(false);
+        }
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("FitnessServer läuft auf Port " + server.getAddress().getPort() + ".");
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if (REJECTED.get()) {
+            try {
+                send(exchange, 503, error("Server ausgelastet, bitte später erneut versuchen."));
+            } finally {
+                exchange.close();
+            }
+            return;
+        }
+        try {
+            route(exchange);
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, error(e.getMessage()));
+        } catch (Exception e) {
+            System.err.println("Fehler bei " + exchange.getRequestURI() + ": " + e);
+            send(exchange, 500, error("Interner Fehler"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        // getPath() liefert die Segmente bereits URL-dekodiert
+        String[] segments = exchange.getRequestURI().getPath().substring("/users/".length()).split("/");
+        if (segments.length < 2 || !segments[1].equals("exercises")) {
+            send(exchange, 404, error("Unbekannter Pfad"));
+            return;
+        }
+        String username = validName(segments[0]);
+        if (!FitnessApp.hasUser(username)) {
+            send(exchange, 404, error("Unbekannter Benutzer"));
+            return;
+        }
+
+        if (segments.length == 2) {
+            if (method.equals("GET")) {
+                send(exchange, 200, FitnessApp.listExercises(username));
+            } else if (method.equals("POST")) {
+                String exName = validName(string(readBody(exchange), "name"));
+                boolean created = FitnessApp.createExercise(username, exName);
+                send(exchange, created ? 201 : 409, Collections.singletonMap("created", created));
+            } else {
+                send(exchange, 405, error("Methode nicht erlaubt"));
+            }
+            return;
+        }
+
+        String exName = validName(segments[2]);
+        String action = segments.length == 4 ? segments[3] : "";
+        if (segments.length > 4 || !FitnessApp.listExercises(username).contains(exName)) {
+            send(exchange, 404, error("Unbekannte Übung"));
+        } else if (action.equals("records") && method.equals("GET")) {
+            Map<String, String> query = query(exchange);
+            List<FitnessApp.Record> records = query.containsKey("limit") || query.containsKey("skip")
+                    ? FitnessApp.getRecordPage(username, exName, intParam(query, "skip", 0), intParam(query, "limit", 100))
+                    : FitnessApp.getRecords(username, exName);
+            List<Map<String, Object>> json = new ArrayList<>(records.size());
+            for (FitnessApp.Record record : records) {
+                json.add(toJson(record));
+            }
+            send(exchange, 200, json);
+        } else if (action.equals("records") && method.equals("POST")) {
+            Map<String, Object> body = readBody(exchange);
+            String date = validDate(string(body, "date"));
+            List<Integer> repsAndWeights = validRepsAndWeights(ints(body, "repsAndWeights"));
+            boolean added = FitnessApp.addRecord(username, exName, date, repsAndWeights);
+            send(exchange, added ? 201 : 500, Collections.singletonMap("added", added));
+        } else if (action.equals("next-weight") && method.equals("GET")) {
+            try {
+                double nextWeight = FitnessApp.calculateNextWeight(username, exName);
+                send(exchange, 200, Collections.singletonMap("nextWeight", nextWeight));
+            } catch (IllegalArgumentException e) {
+                send(exchange, 422, error(e.getMessage()));
+            }
+        } else {
+            send(exchange, 404, error("Unbekannter Pfad"));
+        }
+    }
+
+    static Map<String, Object> toJson(FitnessApp.Record record) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("date", record.date);
+        int[] values = new int[record.size()];
+        for (int i = 0; i < values.length; i++) values[i] = record.get(i);
+        json.put("repsAndWeights", values);
+        return json;
+    }
+
+    // Verhindert Pfade außerhalb von users/ (z.B. "..") und leere Namen
+    private static String validName(String name) {
+        if (!FitnessApp.isValidName(name)) {
+            throw new IllegalArgumentException("Ungültiger Name: " + name);
+        }
+        return name;
+    }
+
+    private static String validDate(String date) {
+        if (!FitnessApp.isValidDate(date)) {
+            throw new IllegalArgumentException("'date' muss ein gültiges Datum im Format yyyy-MM-dd sein");
+        }
+        return date;
+    }
+
+    private static List<Integer> validRepsAndWeights(List<Integer> repsAndWeights) {
+        if (repsAndWeights.size() < 2 || repsAndWeights.size() % 2 != 0) {
+            throw new IllegalArgumentException("'repsAndWeights' muss Paare aus Wiederholungen und Gewicht enthalten");
+        }
+        return repsAndWeights;
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Anfrage zu groß");
+            }
+            return Json.parseObject(new String(body, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String string(Map<String, Object> body, String key) {
+        Object value = body.get(key);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("'" + key + "' muss ein String sein");
+        }
+        return (String) value;
+    }
+
+    private static List<Integer> ints(Map<String, Object> body, String key) {
+        Object value = body.get(key);
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("'" + key + "' muss ein Array sein");
+        }
+        List<Integer> result = new ArrayList<>();
+        for (Object element : (List<?>) value) {
+            if (!(element instanceof Long) || (Long) element != ((Long) element).intValue()) {
+                throw new IllegalArgumentException("'" + key + "' darf nur ganze Zahlen enthalten");
+            }
+            result.add(((Long) element).intValue());
+        }
+        return result;
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getQuery();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) params.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return params;
+    }
+
+    private static int intParam(Map<String, String> query, String key, int defaultValue) {
+        String value = query.get(key);
+        if (value == null) return defaultValue;
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 0) throw new NumberFormatException();
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("'" + key + "' muss eine nicht-negative ganze Zahl sein");
+        }
+    }
+
+    private static Map<String, Object> error(String message) {
+        return Collections.singletonMap("error", message);
+    }
+
+    private static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Ein virtueller Thread pro Anfrage, wenn verfügbar (Java 21+); sonst ein begrenzter Pool mit
+     * begrenzter Warteschlange. Der Zugriff erfolgt per Reflection, damit das Projekt weiterhin mit
+     * älteren JDKs kompiliert.
+     */
+    static ExecutorService newRequestExecutor(int maxConcurrent) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.max(4, Math.min(maxConcurrent, FALLBACK_THREADS));
+            // Mehr als maxConcurrent Aufgaben gibt es wegen der Erlaubnisse nie; voll heißt abweisen (503)
+            return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, maxConcurrent)), new ThreadPoolExecutor.AbortPolicy());
+        }
+    }
+
+    static boolean hasVirtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Startet den Server ohne Swing-Oberfläche.
+     * @param args Kommandozeilenargumente (werden nicht verwendet, Konfiguration über System-Properties).
+     */
+    public static void main(String[] args) throws IOException {
+        String maxConnections = System.getProperty("fitness.server.maxConnections");
+        if (maxConnections != null) {
+            System.setProperty("sun.net.httpserver.maxConnections", maxConnections);
+        }
+        FitnessServer server = new FitnessServer(
+                Integer.getInteger("fitness.server.port", 8080),
+                Integer.getInteger("fitness.server.backlog", 1024),
+                Integer.getInteger("fitness.server.maxConcurrent", hasVirtualThreads() ? 10000 : FALLBACK_THREADS));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "fitness-server-shutdown"));
+        server.start();
+        Archive.startBackgroundCompaction();
+    }
+}
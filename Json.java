@@ -0,0 +1,265 @@
+import java.util.*;
+
+/**
+ * Minimaler JSON-Leser und -Schreiber für Server und Import/Export, ohne externe Bibliothek.
+ *
+ * Gelesen werden Objekte als {@link LinkedHashMap}, Arrays als {@link ArrayList}, Zahlen als
+ * {@link Long} bzw. {@link Double}, dazu Strings, Booleans und null. Geschrieben werden dieselben
+ * Typen sowie beliebige {@link Number}s, {@link Collection}s und {@link Map}s mit String-Schlüsseln.
+ * Objekte und Arrays werden rekursiv gelesen; tiefer als {@value #MAX_DEPTH} Ebenen verschachteltes
+ * JSON wird abgelehnt, damit eine Anfrage keinen StackOverflowError auslösen kann.
+ */
+public final class Json {
+
+    static final int MAX_DEPTH = 256;
+
+    private final String text;
+    private int pos;
+    // Anzahl der gerade offenen Objekte und Arrays
+    private int depth;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Liest einen vollständigen JSON-Wert.
+     * @throws IllegalArgumentException bei ungültigem JSON
+     */
+    public static Object parse(String text) {
+        Json parser = new Json(text);
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.pos != text.length()) {
+            throw parser.error("Unerwartete Zeichen nach dem JSON-Wert");
+        }
+        return value;
+    }
+
+    /**
+     * Liest ein JSON-Objekt.
+     * @throws IllegalArgumentException wenn der Text kein JSON-Objekt ist
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> parseObject(String text) {
+        Object value = parse(text);
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("JSON-Objekt erwartet");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    public static String write(Object value) {
+        StringBuilder sb = new StringBuilder();
+        write(sb, value);
+        return sb.toString();
+    }
+
+    public static void write(StringBuilder sb, Object value) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof String) {
+            writeString(sb, (String) value);
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof Map) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!first) sb.append(',');
+                first = false;
+                writeString(sb, String.valueOf(entry.getKey()));
+                sb.append(':');
+                write(sb, entry.getValue());
+            }
+            sb.append('}');
+        } else if (value instanceof Collection) {
+            sb.append('[');
+            boolean first = true;
+            for (Object element : (Collection<?>) value) {
+                if (!first) sb.append(',');
+                first = false;
+                write(sb, element);
+            }
+            sb.append(']');
+        } else if (value instanceof int[]) {
+            sb.append('[');
+            int[] array = (int[]) value;
+            for (int i = 0; i < array.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(array[i]);
+            }
+            sb.append(']');
+        } else {
+            writeString(sb, value.toString());
+        }
+    }
+
+    private static void writeString(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    private Object readValue() {
+        skipWhitespace();
+        if (pos >= text.length()) {
+            throw error("Unerwartetes Ende");
+        }
+        char c = text.charAt(pos);
+        switch (c) {
+            case '{':
+            case '[':
+                if (++depth > MAX_DEPTH) throw error("Mehr als " + MAX_DEPTH + " Ebenen verschachtelt");
+                Object nested = c == '{' ? readObject() : readArray();
+                depth--;
+                return nested;
+            case '"': return readString();
+            case 't': return readLiteral("true", Boolean.TRUE);
+            case 'f': return readLiteral("false", Boolean.FALSE);
+            case 'n': return readLiteral("null", null);
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) return readNumber();
+                throw error("Unerwartetes Zeichen '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> readObject() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        pos++; // {
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return map;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') throw error("Schlüssel erwartet");
+            String key = readString();
+            skipWhitespace();
+            expect(':');
+            map.put(key, readValue());
+            skipWhitespace();
+            char c = next();
+            if (c == '}') return map;
+            if (c != ',') throw error("',' oder '}' erwartet");
+        }
+    }
+
+    private List<Object> readArray() {
+        List<Object> list = new ArrayList<>();
+        pos++; // [
+        skipWhitespace();
+        if (peek() == ']') {
+            pos++;
+            return list;
+        }
+        while (true) {
+            list.add(readValue());
+            skipWhitespace();
+            char c = next();
+            if (c == ']') return list;
+            if (c != ',') throw error("',' oder ']' erwartet");
+        }
+    }
+
+    private String readString() {
+        pos++; // "
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') return sb.toString();
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"': case '\\': case '/': sb.append(escaped); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (pos + 4 > text.length()) throw error("Ungültige Unicode-Escape-Sequenz");
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Ungültige Unicode-Escape-Sequenz");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    throw error("Ungültige Escape-Sequenz");
+            }
+        }
+    }
+
+    private Number readNumber() {
+        int start = pos;
+        if (peek() == '-') pos++;
+        boolean decimal = false;
+        while (pos < text.length()) {
+            char c = text.charAt(pos);
+            if (c >= '0' && c <= '9') {
+                pos++;
+            } else if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                decimal = true;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        String number = text.substring(start, pos);
+        try {
+            return decimal ? (Number) Double.parseDouble(number) : (Number) Long.parseLong(number);
+        } catch (NumberFormatException e) {
+            throw error("Ungültige Zahl '" + number + "'");
+        }
+    }
+
+    private Object readLiteral(String literal, Object value) {
+        if (!text.startsWith(literal, pos)) throw error("Unbekanntes Literal");
+        pos += literal.length();
+        return value;
+    }
+
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+    }
+
+    private char peek() {
+        if (pos >= text.length()) throw error("Unerwartetes Ende");
+        return text.charAt(pos);
+    }
+
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+
+    private void expect(char c) {
+        if (next() != c) throw error("'" + c + "' erwartet");
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Ungültiges JSON an Position " + pos + ": " + message);
+    }
+}
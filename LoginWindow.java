@@ -3,8 +3,6 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.*;
-import java.util.HashSet;
-import java.util.Set;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import java.awt.geom.RoundRectangle2D;
@@ -13,7 +11,7 @@ import java.awt.geom.RoundRectangle2D;
 /**
  * The LoginWindow class creates a simple login window for a fitness app.
  * It contains a field for username, as well as login and register buttons.
- * Usernames are stored persistently using Java Serialization (in a file).
+ * Usernames are stored persistently in an append-only registry (see UserRegistry).
  * Case-insensitivity is implemented for usernames.
  * Real-time feedback for username availability is provided.
  * After successful registration, the username remains in the text field.
@@ -36,12 +34,9 @@ public class LoginWindow extends JFrame implements ActionListener, DocumentListe
     private final Color BACKGROUND_DARK = Color.decode("#343A40"); // Dark gray
     private final Color TEXT_LIGHT = Color.WHITE;
 
-    // Set to store registered usernames in memory
+    // Registry of usernames (snapshot + append-only log), kept in memory after loading
     // All usernames will be stored in lowercase to ensure case-insensitivity.
-    private static Set<String> registeredUsernames = new HashSet<>();
-
-    // Filename for persistent storage
-    private static final String FILENAME = "users.ser";
+    private static UserRegistry registeredUsernames;
 
     /**
      * Constructor for the LoginWindow class.
@@ -155,38 +150,58 @@ public class LoginWindow extends JFrame implements ActionListener, DocumentListe
     }
 
     /**
-    * Loads registered usernames from the specified file using object deserialization.
+    * Loads registered usernames by replaying the registry snapshot and log.
+    * On the first run an existing users.ser is migrated into the registry.
+    * The registry is opened only once per JVM, later windows reuse it.
     */
-    @SuppressWarnings("unchecked") // Suppress warning for unchecked cast
     private void loadUsernames() {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(FILENAME))) {
-            Object obj = ois.readObject();
-            if (obj instanceof Set) {
-                registeredUsernames = (Set<String>) obj;
-                System.out.println("Es wurden " + registeredUsernames.size() + " Benutzer aus '" + FILENAME + "' geladen.");
-            }
-        } catch (FileNotFoundException e) {
-            System.out.println("Keine vorhandene Benutzerdatei '" + FILENAME + "' gefunden. Starte mit leerer Liste.");
-            // Dies ist normal beim ersten Start der Anwendung
+        if (registeredUsernames != null) {
+            return;
+        }
+        Metrics.Timer timer = Metrics.start(Metrics.Op.REGISTRY_LOAD);
+        try {
+            registeredUsernames = UserRegistry.open();
+            timer.records(registeredUsernames.size());
+            System.out.println("Es wurden " + registeredUsernames.size() + " Benutzer aus '" + UserRegistry.SNAPSHOT_FILE + "' geladen.");
         } catch (IOException e) {
+            timer.failed();
             System.err.println("Fehler beim Laden der Benutzer: " + e.getMessage());
-        } catch (ClassNotFoundException e) {
-            System.err.println("Fehler: Klasse des geladenen Objekts nicht gefunden: " + e.getMessage());
+        } finally {
+            timer.stop();
         }
     }
 
     /**
-     * Saves the current set of registered usernames to the specified file using object serialization.
+     * Registers a username with a single append to the registry log.
+     * @param username The lowercase username.
+     * @return true if the username was saved.
      */
-    private void saveUsernames() {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(FILENAME))) {
-            oos.writeObject(registeredUsernames);
-            System.out.println("Benutzerdaten in '" + FILENAME + "' gespeichert.");
+    private boolean saveUsername(String username) {
+        if (registeredUsernames == null) {
+            System.err.println("Fehler beim Speichern der Benutzer: Benutzerverzeichnis nicht geladen.");
+            return false;
+        }
+        Metrics.Timer timer = Metrics.start(Metrics.Op.REGISTRY_SAVE, username, null);
+        try {
+            registeredUsernames.register(username);
+            System.out.println("Benutzer '" + username + "' in '" + UserRegistry.LOG_FILE + "' gespeichert.");
+            return true;
         } catch (IOException e) {
+            timer.failed();
             System.err.println("Fehler beim Speichern der Benutzer: " + e.getMessage());
+            return false;
+        } finally {
+            timer.stop();
         }
     }
 
+    /**
+     * Checks whether a username is registered.
+     */
+    private static boolean isRegistered(String username) {
+        return registeredUsernames != null && registeredUsernames.contains(username);
+    }
+
     /**
      * Checks username availability and updates messageLabel in real-time.
      */
@@ -197,7 +212,7 @@ public class LoginWindow extends JFrame implements ActionListener, DocumentListe
             messageLabel.setText(""); // Clear when the field is empty
             registerButton.setEnabled(true); // Enable register button
         } else {
-            if (registeredUsernames.contains(username)) {
+            if (isRegistered(username)) {
                 messageLabel.setText("Benutzername bereits vergeben!");
                 messageLabel.setForeground(ENERGETIC_ORANGE);
                 registerButton.setEnabled(false); // Disable register button
@@ -224,7 +239,7 @@ public class LoginWindow extends JFrame implements ActionListener, DocumentListe
                 messageLabel.setText("Bitte Benutzername eingeben.");
                 messageLabel.setForeground(ENERGETIC_ORANGE);
             } else {
-                if (registeredUsernames.contains(username)) {
+                if (isRegistered(username)) {
                     messageLabel.setText("Anmeldung erfolgreich für '" + userText.getText().trim() + "'!"); // Anzeige des originalen Namens
                     messageLabel.setForeground(INVIGORATING_GREEN);
 
@@ -241,12 +256,15 @@ public class LoginWindow extends JFrame implements ActionListener, DocumentListe
             if (username.isEmpty()) {
                 messageLabel.setText("Bitte Benutzername für die Registrierung eingeben.");
                 messageLabel.setForeground(ENERGETIC_ORANGE);
-            } else if (registeredUsernames.contains(username)) {
+            } else if (isRegistered(username)) {
                 messageLabel.setText("Benutzername existiert bereits. Bitte wählen Sie einen anderen.");
                 messageLabel.setForeground(ENERGETIC_ORANGE);
             } else {
-                registeredUsernames.add(username); // Add to in-memory set (already lowercase)
-                saveUsernames(); // Save the updated set to file
+                if (!saveUsername(username)) { // Append to the registry log (already lowercase)
+                    messageLabel.setText("Fehler beim Speichern der Registrierung.");
+                    messageLabel.setForeground(ENERGETIC_ORANGE);
+                    return;
+                }
 
                 messageLabel.setText("Registrierung erfolgreich für '" + userText.getText().trim() + "'! Sie können sich jetzt anmelden."); // Anzeige des originalen Namens
                 messageLabel.setForeground(INVIGORATING_GREEN);
@@ -283,6 +301,7 @@ public class LoginWindow extends JFrame implements ActionListener, DocumentListe
      * @param args Command line arguments (not used).
      */
     public static void main(String[] args) {
+        Archive.startBackgroundCompaction();
         SwingUtilities.invokeLater(new Runnable() {
                 @Override
                 public void run() {
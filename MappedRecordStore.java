@@ -0,0 +1,49 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Textspeicher, der ganze Protokolle aus gemappten Binärdateien ({@link BinaryRecordFile}) liest.
+ *
+ * Geschrieben wird weiterhin in das Textprotokoll, es bleibt maßgeblich; Datumsindex, Seiten und
+ * Kennzahlen kommen wie bei {@link TextRecordStore} daraus. Nur {@link #getRecords(String, String)}
+ * liest, wenn die Übung nicht im Cache liegt, die {@code .bin}-Datei über einen {@link java.nio.MappedByteBuffer},
+ * ohne Text zu parsen. Passt deren festgehaltener Stand (Länge und Änderungszeit) nicht mehr zum
+ * Protokoll, wird einmal das Protokoll gelesen und die Binärdatei neu geschrieben.
+ */
+public class MappedRecordStore extends TextRecordStore {
+
+    @Override
+    public List<FitnessApp.Record> getRecords(String username, String exName) {
+        File exFile = logFile(username, exName);
+        RecordAppender.getDefault().flush(exFile);
+        return FitnessApp.getRecordCache().get(username, exName, exFile, () -> load(username, exName, exFile));
+    }
+
+    private static List<FitnessApp.Record> load(String username, String exName, File exFile) {
+        // Stand vor dem Lesen; wird danach angehängt, ist die Binärdatei beim nächsten Mal veraltet
+        long length = exFile.length();
+        long modified = exFile.lastModified();
+        File binFile = BinaryRecordFile.fileFor(username, exName);
+        if (binFile.exists()) {
+            try (BinaryRecordFile.Reader reader = BinaryRecordFile.open(binFile)) {
+                if (reader.sourceLength() == length && reader.sourceModified() == modified) {
+                    Metrics.BYTES_READ.add(binFile.length());
+                    return reader.records();
+                }
+            } catch (IOException e) {
+                System.err.println("Fehler beim Lesen von " + binFile + ": " + e.getMessage());
+            }
+        }
+        List<FitnessApp.Record> records = readRecords(exFile);
+        if (exFile.exists()) {
+            try {
+                BinaryRecordFile.write(binFile, records, length, modified);
+            } catch (IOException e) {
+                // z.B. ein Datum, das das Binärformat nicht darstellen kann; es bleibt beim Textprotokoll
+                System.err.println("Binärdatei für " + username + "/" + exName + " nicht geschrieben: " + e.getMessage());
+            }
+        }
+        return records;
+    }
+}
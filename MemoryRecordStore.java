@@ -0,0 +1,128 @@
+import java.util.*;
+
+/**
+ * Speicher nur im Arbeitsspeicher, z.B. für Tests und Benchmarks ohne Dateizugriffe.
+ *
+ * Jede Übung ist eine Liste, an die nur angehängt wird. Leser bekommen eine Momentaufnahme
+ * (Array und Länge zum Zeitpunkt des Aufrufs), es wird also weder kopiert noch beim Lesen gesperrt.
+ * Wie beim Textspeicher muss der Benutzer existieren, die Übung wird beim ersten Datensatz angelegt.
+ */
+public class MemoryRecordStore implements RecordStore {
+
+    private final Map<String, TreeMap<String, Log>> users = new HashMap<>();
+
+    @Override
+    public synchronized boolean createUser(String username) {
+        return users.putIfAbsent(username, new TreeMap<>()) == null;
+    }
+
+    @Override
+    public synchronized List<String> listUsers() {
+        List<String> names = new ArrayList<>(users.keySet());
+        Collections.sort(names);
+        return Collections.unmodifiableList(names);
+    }
+
+    @Override
+    public synchronized boolean hasUser(String username) {
+        return users.containsKey(username);
+    }
+
+    @Override
+    public synchronized boolean createExercise(String username, String exName) {
+        return users.computeIfAbsent(username, u -> new TreeMap<>()).putIfAbsent(exName, new Log()) == null;
+    }
+
+    @Override
+    public synchronized List<String> listExercises(String username) {
+        TreeMap<String, Log> exercises = users.get(username);
+        if (exercises == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(exercises.keySet()));
+    }
+
+    @Override
+    public synchronized boolean addRecord(String username, String exName, String date, List<Integer> repsAndWeights) {
+        TreeMap<String, Log> exercises = users.get(username);
+        if (exercises == null || !FitnessApp.isValidRecord(date, repsAndWeights)) {
+            return false; // Wie beim Textspeicher, der z.B. Datensätze mit weniger als zwei Werten nicht liest
+        }
+        exercises.computeIfAbsent(exName, e -> new Log()).add(new FitnessApp.Record(date, repsAndWeights));
+        return true;
+    }
+
+    @Override
+    public List<FitnessApp.Record> getRecords(String username, String exName) {
+        return snapshot(username, exName);
+    }
+
+    @Override
+    public List<FitnessApp.Record> getRecords(String username, String exName, String from, String to) {
+        List<FitnessApp.Record> result = new ArrayList<>();
+        for (FitnessApp.Record record : snapshot(username, exName)) {
+            if (from != null && record.date.compareTo(from) < 0) continue;
+            if (to != null && record.date.compareTo(to) > 0) continue;
+            result.add(record);
+        }
+        return result;
+    }
+
+    @Override
+    public List<FitnessApp.Record> getRecordPage(String username, String exName, int skip, int limit) {
+        List<FitnessApp.Record> records = snapshot(username, exName);
+        int end = Math.max(0, records.size() - skip);
+        int start = Math.max(0, end - limit);
+        List<FitnessApp.Record> page = new ArrayList<>(end - start);
+        for (int i = end - 1; i >= start; i--) {
+            page.add(records.get(i));
+        }
+        return page;
+    }
+
+    private synchronized List<FitnessApp.Record> snapshot(String username, String exName) {
+        TreeMap<String, Log> exercises = users.get(username);
+        Log log = exercises == null ? null : exercises.get(exName);
+        return log == null ? Collections.emptyList() : log.snapshot();
+    }
+
+    /**
+     * Datensätze einer Übung; belegte Einträge werden nie verändert, beim Wachsen wird in ein neues Array kopiert.
+     */
+    private static class Log {
+        private FitnessApp.Record[] records = new FitnessApp.Record[16];
+        private int size;
+
+        void add(FitnessApp.Record record) {
+            if (size == records.length) {
+                records = Arrays.copyOf(records, size * 2);
+            }
+            records[size++] = record;
+        }
+
+        List<FitnessApp.Record> snapshot() {
+            return new Snapshot(records, size);
+        }
+    }
+
+    private static class Snapshot extends AbstractList<FitnessApp.Record> implements RandomAccess {
+        private final FitnessApp.Record[] records;
+        private final int size;
+
+        Snapshot(FitnessApp.Record[] records, int size) {
+            this.records = records;
+            this.size = size;
+        }
+
+        @Override
+        public FitnessApp.Record get(int index) {
+            if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Größe: " + size);
+            return records[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,425 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Laufzeitmessung und Zähler für die Speicherzugriffe.
+ *
+ * Jede gemessene Operation ({@link Op}) hat ein Latenz-Histogramm nach Art von HdrHistogram:
+ * logarithmische Stufen mit je {@value #SUB_BUCKETS} linearen Unterteilungen, also etwa 3 % Auflösung
+ * bei fester Größe und ohne Sperren. Dazu kommen globale Zähler für gelesene und geschriebene Bytes,
+ * übersprungene Zeilen, Parse-Fehler und gelieferte Datensätze.
+ *
+ * Alles ist über JMX sichtbar ({@code fitness:type=Operation,name=<op>} und {@code fitness:type=Storage},
+ * z.B. in JConsole). Zusätzlich erzeugt jede Messung ein JFR-Ereignis {@code fitness.StorageOperation};
+ * solange keine Aufzeichnung läuft, wird es gar nicht erst angelegt.
+ *
+ * Verwendung wie bei {@link FileLocks}:
+ * <pre>
+ * Metrics.Timer timer = Metrics.start(Metrics.Op.GET_RECORDS, username, exName);
+ * try { ... timer.records(n); } catch (IOException e) { timer.failed(); } finally { timer.stop(); }
+ * </pre>
+ */
+public final class Metrics {
+
+    /**
+     * Gemessene Operationen.
+     */
+    public enum Op {
+        GET_RECORDS("getRecords"),
+        GET_RECORD_RANGE("getRecordRange"),
+        GET_RECORD_PAGE("getRecordPage"),
+        ADD_RECORD("addRecord"),
+        LIST_EXERCISES("listExercises"),
+        NEXT_WEIGHT("calculateNextWeight"),
+        REGISTRY_LOAD("registryLoad"),
+        REGISTRY_SAVE("registrySave");
+
+        final String label;
+        final Operation operation = new Operation();
+
+        Op(String label) {
+            this.label = label;
+        }
+
+        public Operation get() {
+            return operation;
+        }
+    }
+
+    public static final LongAdder BYTES_READ = new LongAdder();
+    public static final LongAdder BYTES_WRITTEN = new LongAdder();
+    public static final LongAdder LINES_SKIPPED = new LongAdder();
+    public static final LongAdder PARSE_ERRORS = new LongAdder();
+    public static final LongAdder RECORDS_RETURNED = new LongAdder();
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    // Werte bis 2^63 in Nanosekunden: 2 * SUB_BUCKETS lineare Zellen, danach SUB_BUCKETS je Zweierpotenz
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    private static final EventType STORAGE_EVENT = EventType.getEventType(StorageEvent.class);
+    // Innerste laufende Messung des Threads, damit Operation#failed() sie als fehlgeschlagen markieren kann
+    private static final ThreadLocal<Timer> CURRENT = new ThreadLocal<>();
+
+    static {
+        register();
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Startet eine Messung; mit {@link Timer#stop()} im finally-Block beenden.
+     */
+    public static Timer start(Op op, String username, String exName) {
+        return new Timer(op, username, exName);
+    }
+
+    public static Timer start(Op op) {
+        return new Timer(op, null, null);
+    }
+
+    /**
+     * Laufende Messung einer Operation.
+     */
+    public static final class Timer {
+        private final Op op;
+        private final long startNanos;
+        private final StorageEvent event;
+        private final Timer outer;
+        private int records;
+        private boolean failed;
+
+        private Timer(Op op, String username, String exName) {
+            this.op = op;
+            if (STORAGE_EVENT.isEnabled()) {
+                event = new StorageEvent();
+                event.operation = op.label;
+                event.user = username;
+                event.exercise = exName;
+                event.begin();
+            } else {
+                event = null;
+            }
+            this.outer = CURRENT.get();
+            CURRENT.set(this);
+            this.startNanos = System.nanoTime();
+        }
+
+        // Anzahl der gelieferten Datensätze
+        public void records(int count) {
+            records = count;
+        }
+
+        // Die Operation ist fehlgeschlagen (auch wenn der Aufrufer nur eine leere Liste sieht)
+        public void failed() {
+            failed = true;
+        }
+
+        public void stop() {
+            long nanos = System.nanoTime() - startNanos;
+            if (outer == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(outer);
+            }
+            op.operation.record(nanos, failed);
+            if (records > 0) {
+                RECORDS_RETURNED.add(records);
+            }
+            if (event != null && event.shouldCommit()) {
+                event.records = records;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Histogramm und Zähler einer Operation, per JMX als {@link OperationMXBean} sichtbar.
+     */
+    public static final class Operation implements OperationMXBean {
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        // Fehler ohne laufende Messung: zählen als Aufruf, aber ohne Latenz
+        private final LongAdder untimed = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, boolean failed) {
+            if (nanos < 0) nanos = 0;
+            counts.incrementAndGet(bucket(nanos));
+            count.increment();
+            totalNanos.add(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        // Fehler, den der Speicher selbst abfängt (der Aufrufer sieht nur eine leere Liste). Läuft auf dem
+        // Thread eine Messung dieser Operation, wird sie als fehlgeschlagen gezählt, sonst ein eigener Aufruf.
+        public void failed() {
+            Timer timer = CURRENT.get();
+            if (timer != null && timer.op.operation == this) {
+                timer.failed();
+                return;
+            }
+            count.increment();
+            errors.increment();
+            untimed.increment();
+        }
+
+        @Override
+        public long getCount() {
+            return count.sum();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        @Override
+        public double getMeanMillis() {
+            long n = count.sum() - untimed.sum();
+            return n <= 0 ? 0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        @Override
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        @Override
+        public double getP50Millis() {
+            return percentileMillis(50);
+        }
+
+        @Override
+        public double getP90Millis() {
+            return percentileMillis(90);
+        }
+
+        @Override
+        public double getP99Millis() {
+            return percentileMillis(99);
+        }
+
+        @Override
+        public double getP999Millis() {
+            return percentileMillis(99.9);
+        }
+
+        /**
+         * @param percentile Perzentil zwischen 0 und 100
+         * @return Latenz in Millisekunden (Mitte der Zelle, höchstens das gemessene Maximum)
+         */
+        public double percentileMillis(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Perzentil muss zwischen 0 und 100 liegen: " + percentile);
+            }
+            long total = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min(midpoint(i), maxNanos.get()) / 1e6;
+                }
+            }
+            return maxNanos.get() / 1e6;
+        }
+
+        @Override
+        public void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                counts.set(i, 0);
+            }
+            count.reset();
+            errors.reset();
+            untimed.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d, Fehler=%d, Mittel=%.3f ms, p50=%.3f ms, p99=%.3f ms, max=%.3f ms",
+                    getCount(), getErrors(), getMeanMillis(), getP50Millis(), getP99Millis(), getMaxMillis());
+        }
+    }
+
+    // Zelle eines Werts: unterhalb von 2 * SUB_BUCKETS exakt, darüber SUB_BUCKETS Zellen je Zweierpotenz
+    static int bucket(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long midpoint(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (bucket - shift * SUB_BUCKETS) << shift;
+        return lower + (1L << shift) / 2;
+    }
+
+    /**
+     * JMX-Sicht auf eine Operation.
+     */
+    public interface OperationMXBean {
+        long getCount();
+
+        long getErrors();
+
+        double getMeanMillis();
+
+        double getMaxMillis();
+
+        double getP50Millis();
+
+        double getP90Millis();
+
+        double getP99Millis();
+
+        double getP999Millis();
+
+        void reset();
+    }
+
+    /**
+     * JMX-Sicht auf die globalen Zähler.
+     */
+    public interface StorageMXBean {
+        long getBytesRead();
+
+        long getBytesWritten();
+
+        long getLinesSkipped();
+
+        long getParseErrors();
+
+        long getRecordsReturned();
+
+        long getCacheHits();
+
+        long getCacheMisses();
+    }
+
+    private static final class Storage implements StorageMXBean {
+        @Override
+        public long getBytesRead() {
+            return BYTES_READ.sum();
+        }
+
+        @Override
+        public long getBytesWritten() {
+            return BYTES_WRITTEN.sum();
+        }
+
+        @Override
+        public long getLinesSkipped() {
+            return LINES_SKIPPED.sum();
+        }
+
+        @Override
+        public long getParseErrors() {
+            return PARSE_ERRORS.sum();
+        }
+
+        @Override
+        public long getRecordsReturned() {
+            return RECORDS_RETURNED.sum();
+        }
+
+        @Override
+        public long getCacheHits() {
+            return FitnessApp.getRecordCache().getHits();
+        }
+
+        @Override
+        public long getCacheMisses() {
+            return FitnessApp.getRecordCache().getMisses();
+        }
+    }
+
+    private static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (Op op : Op.values()) {
+                ObjectName name = new ObjectName("fitness:type=Operation,name=" + op.label);
+                if (!server.isRegistered(name)) server.registerMBean(op.operation, name);
+            }
+            ObjectName storage = new ObjectName("fitness:type=Storage");
+            if (!server.isRegistered(storage)) server.registerMBean(new Storage(), storage);
+        } catch (JMException | SecurityException e) {
+            System.err.println("Kennzahlen nicht per JMX verfügbar: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Übersicht aller Operationen und Zähler, z.B. für die Konsole.
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Op op : Op.values()) {
+            sb.append(op.label).append(": ").append(op.operation).append('\n');
+        }
+        sb.append("Bytes gelesen: ").append(BYTES_READ.sum())
+                .append(", geschrieben: ").append(BYTES_WRITTEN.sum())
+                .append(", Zeilen übersprungen: ").append(LINES_SKIPPED.sum())
+                .append(", Parse-Fehler: ").append(PARSE_ERRORS.sum())
+                .append(", Datensätze geliefert: ").append(RECORDS_RETURNED.sum()).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * JFR-Ereignis je gemessener Operation.
+     */
+    @Name("fitness.StorageOperation")
+    @Label("Storage Operation")
+    @Category("Fitness")
+    @Description("Lese- oder Schreibzugriff auf Protokolle bzw. das Benutzerverzeichnis")
+    static final class StorageEvent extends jdk.jfr.Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Benutzer")
+        String user;
+
+        @Label("Übung")
+        String exercise;
+
+        @Label("Datensätze")
+        int records;
+
+        @Label("Fehlgeschlagen")
+        boolean failed;
+    }
+}
@@ -0,0 +1,457 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+/**
+ * Verlaufsdiagramm einer Übung: schwerstes Gewicht bzw. Volumen je Datensatz über die Zeit.
+ *
+ * Gezeichnet werden nie alle Punkte, sondern die sichtbaren werden mit Largest-Triangle-Three-Buckets
+ * (LTTB) auf etwa einen Punkt je Pixel reduziert; Spitzen und Einbrüche bleiben dabei erhalten.
+ * Das Ergebnis liegt in einem {@link BufferedImage}, das nur neu gezeichnet wird, wenn sich Daten,
+ * Kennzahl, Ausschnitt oder Größe ändern; ein gewöhnliches repaint kopiert nur das Bild.
+ *
+ * Mausrad zoomt um die Mausposition, Ziehen verschiebt den Ausschnitt, Doppelklick zeigt wieder alles.
+ * Alle Methoden müssen auf dem Swing-EDT aufgerufen werden.
+ */
+public class ProgressChart extends JComponent {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Dargestellte Kennzahl je Datensatz.
+     */
+    public enum Metric {
+        WEIGHT("Gewicht (kg)"),
+        VOLUME("Volumen (kg)");
+
+        private final String label;
+
+        Metric(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private static final int MARGIN_LEFT = 60;
+    private static final int MARGIN_RIGHT = 15;
+    private static final int MARGIN_TOP = 15;
+    private static final int MARGIN_BOTTOM = 30;
+    private static final int TICKS = 5;
+    private static final double ZOOM_STEP = 1.25;
+    // Kleinster Ausschnitt in Tagen
+    private static final double MIN_SPAN = 7;
+
+    private static final Color BACKGROUND = Color.decode("#212529");
+    private static final Color GRID = Color.decode("#495057");
+    private static final Color LINE = Color.decode("#FFC107");
+    private static final Color TEXT = new Color(220, 220, 220);
+    private static final Font FONT = new Font("Arial", Font.PLAIN, 11);
+
+    private Series series;
+    private Metric metric = Metric.WEIGHT;
+    private String message = " ";
+    // Sichtbarer Zeitraum in Tagen seit 1970-01-01
+    private double viewFrom;
+    private double viewTo;
+
+    private BufferedImage cache;
+    private boolean dirty = true;
+    private int drawnPoints;
+
+    private int dragX = -1;
+    private double dragFrom;
+    private double dragTo;
+
+    public ProgressChart() {
+        setOpaque(true);
+        setPreferredSize(new Dimension(600, 200));
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoom(e.getX(), Math.pow(ZOOM_STEP, e.getPreciseWheelRotation()));
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragX = e.getX();
+                dragFrom = viewFrom;
+                dragTo = viewTo;
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragX < 0 || plotWidth() <= 0) return;
+                double shift = (dragX - e.getX()) * (dragTo - dragFrom) / plotWidth();
+                setView(dragFrom + shift, dragTo + shift);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                dragX = -1;
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) resetView();
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /**
+     * Zeigt einen neuen Verlauf, der ganze Zeitraum ist sichtbar.
+     */
+    public void setSeries(Series series) {
+        this.series = series;
+        this.message = series.size == 0 ? "Keine Datensätze mit gültigem Datum." : null;
+        resetView();
+    }
+
+    // Statt des Diagramms nur einen Text anzeigen (z.B. beim Laden oder bei Fehlern)
+    public void setMessage(String message) {
+        this.series = null;
+        this.message = message;
+        invalidateImage();
+    }
+
+    public void setMetric(Metric metric) {
+        if (this.metric != metric) {
+            this.metric = metric;
+            invalidateImage();
+        }
+    }
+
+    public Metric getMetric() {
+        return metric;
+    }
+
+    // Anzahl der zuletzt gezeichneten Punkte (nach dem Ausdünnen)
+    int getDrawnPoints() {
+        return drawnPoints;
+    }
+
+    public void resetView() {
+        if (series != null && series.size > 0) {
+            double first = series.days[0];
+            double pad = (fullSpan() - Math.max(MIN_SPAN, series.days[series.size - 1] - first)) / 2;
+            viewFrom = first - pad;
+            viewTo = viewFrom + fullSpan();
+        }
+        invalidateImage();
+    }
+
+    // Zeitraum aller Daten mit etwas Rand, weiter wird nicht herausgezoomt
+    private double fullSpan() {
+        return Math.max(MIN_SPAN, series.days[series.size - 1] - series.days[0]) * 1.04;
+    }
+
+    private void zoom(int mouseX, double factor) {
+        if (series == null || series.size == 0 || plotWidth() <= 0) return;
+        double span = viewTo - viewFrom;
+        double anchor = viewFrom + (mouseX - MARGIN_LEFT) * span / plotWidth();
+        double newSpan = Math.max(MIN_SPAN, Math.min(fullSpan(), span * factor));
+        double ratio = (anchor - viewFrom) / span;
+        setView(anchor - ratio * newSpan, anchor + (1 - ratio) * newSpan);
+    }
+
+    // Ausschnitt setzen, höchstens bis knapp über die Daten hinaus
+    private void setView(double from, double to) {
+        if (series == null || series.size == 0) return;
+        double span = to - from;
+        double first = series.days[0] - span / 2;
+        double last = series.days[series.size - 1] + span / 2;
+        if (from < first) { to += first - from; from = first; }
+        if (to > last) { from -= to - last; to = last; }
+        viewFrom = from;
+        viewTo = to;
+        invalidateImage();
+    }
+
+    private void invalidateImage() {
+        dirty = true;
+        repaint();
+    }
+
+    private int plotWidth() {
+        return getWidth() - MARGIN_LEFT - MARGIN_RIGHT;
+    }
+
+    private int plotHeight() {
+        return getHeight() - MARGIN_TOP - MARGIN_BOTTOM;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) return;
+        if (cache == null || dirty || cache.getWidth() != width || cache.getHeight() != height) {
+            if (cache == null || cache.getWidth() != width || cache.getHeight() != height) {
+                GraphicsConfiguration gc = getGraphicsConfiguration();
+                cache = gc != null ? gc.createCompatibleImage(width, height)
+                        : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            }
+            Graphics2D g2 = cache.createGraphics();
+            try {
+                render(g2, width, height);
+            } finally {
+                g2.dispose();
+            }
+            dirty = false;
+        }
+        g.drawImage(cache, 0, 0, null);
+    }
+
+    private void render(Graphics2D g, int width, int height) {
+        g.setColor(BACKGROUND);
+        g.fillRect(0, 0, width, height);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(FONT);
+        drawnPoints = 0;
+        if (series == null || series.size == 0 || plotWidth() < 10 || plotHeight() < 10) {
+            g.setColor(TEXT);
+            String text = message != null ? message : " ";
+            g.drawString(text, (width - g.getFontMetrics().stringWidth(text)) / 2, height / 2);
+            return;
+        }
+        double[] x = series.days;
+        double[] y = metric == Metric.WEIGHT ? series.weights : series.volumes;
+        // Sichtbare Punkte plus je ein Nachbar, damit die Linie bis zum Rand reicht
+        int from = Math.max(0, lowerBound(x, series.size, viewFrom) - 1);
+        int to = Math.min(series.size, lowerBound(x, series.size, Math.nextUp(viewTo)) + 1);
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            if (x[i] < viewFrom || x[i] > viewTo) continue;
+            min = Math.min(min, y[i]);
+            max = Math.max(max, y[i]);
+        }
+        if (min > max) { // Nichts sichtbar
+            min = 0;
+            max = 1;
+        }
+        if (max - min < 1e-9) {
+            min -= 1;
+            max += 1;
+        }
+        double pad = (max - min) * 0.05;
+        min -= pad;
+        max += pad;
+        drawAxes(g, min, max);
+
+        int[] sampled = downsample(x, y, from, to, plotWidth());
+        int[] px = new int[sampled.length];
+        int[] py = new int[sampled.length];
+        for (int i = 0; i < sampled.length; i++) {
+            px[i] = xToPixel(x[sampled[i]]);
+            py[i] = MARGIN_TOP + (int) Math.round((max - y[sampled[i]]) * plotHeight() / (max - min));
+        }
+        drawnPoints = sampled.length;
+        Shape clip = g.getClip();
+        g.clipRect(MARGIN_LEFT, MARGIN_TOP, plotWidth() + 1, plotHeight() + 1);
+        g.setColor(LINE);
+        if (sampled.length < plotWidth() / 4) {
+            // Wenige Punkte: geglättet und einzeln markiert
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setStroke(new BasicStroke(1.5f));
+            g.drawPolyline(px, py, sampled.length);
+            for (int i = 0; i < sampled.length; i++) g.fillOval(px[i] - 2, py[i] - 2, 5, 5);
+        } else {
+            // Etwa ein Punkt je Pixel: Glätten bringt kaum etwas, kostet aber ein Vielfaches
+            g.drawPolyline(px, py, sampled.length);
+        }
+        g.setClip(clip);
+    }
+
+    private void drawAxes(Graphics2D g, double min, double max) {
+        FontMetrics fm = g.getFontMetrics();
+        int bottom = MARGIN_TOP + plotHeight();
+        for (int i = 0; i <= TICKS; i++) {
+            int py = bottom - i * plotHeight() / TICKS;
+            g.setColor(GRID);
+            g.drawLine(MARGIN_LEFT, py, MARGIN_LEFT + plotWidth(), py);
+            String label = String.format("%.0f", min + i * (max - min) / TICKS);
+            g.setColor(TEXT);
+            g.drawString(label, MARGIN_LEFT - 6 - fm.stringWidth(label), py + fm.getAscent() / 2);
+        }
+        for (int i = 0; i <= TICKS; i++) {
+            double day = viewFrom + i * (viewTo - viewFrom) / TICKS;
+            String label = LocalDate.ofEpochDay((long) Math.floor(day)).toString();
+            int px = xToPixel(day);
+            g.setColor(TEXT);
+            int labelX = Math.max(0, Math.min(getWidth() - fm.stringWidth(label), px - fm.stringWidth(label) / 2));
+            g.drawString(label, labelX, bottom + fm.getAscent() + 6);
+        }
+        g.setColor(TEXT);
+        g.drawString(metric.toString(), MARGIN_LEFT + 4, MARGIN_TOP + fm.getAscent());
+    }
+
+    private int xToPixel(double day) {
+        return MARGIN_LEFT + (int) Math.round((day - viewFrom) * plotWidth() / (viewTo - viewFrom));
+    }
+
+    // Erster Index mit x[i] >= value (x aufsteigend sortiert)
+    private static int lowerBound(double[] x, int size, double value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (x[mid] < value) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets: wählt aus {@code [from, to)} höchstens {@code threshold} Punkte.
+     * Erster und letzter Punkt bleiben, dazwischen wird je Eimer der Punkt genommen, der mit dem zuletzt
+     * gewählten Punkt und dem Mittel des nächsten Eimers das größte Dreieck bildet.
+     * @return gewählte Indizes, aufsteigend
+     */
+    static int[] downsample(double[] x, double[] y, int from, int to, int threshold) {
+        int n = to - from;
+        if (threshold >= n || threshold < 3) {
+            int[] all = new int[Math.max(0, n)];
+            for (int i = 0; i < all.length; i++) all[i] = from + i;
+            return all;
+        }
+        int[] sampled = new int[threshold];
+        int count = 0;
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = from;
+        sampled[count++] = a;
+        for (int i = 0; i < threshold - 2; i++) {
+            int avgStart = from + (int) ((i + 1) * every) + 1;
+            int avgEnd = Math.min(from + (int) ((i + 2) * every) + 1, to);
+            double avgX = 0;
+            double avgY = 0;
+            for (int j = avgStart; j < avgEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            int avgLength = avgEnd - avgStart;
+            if (avgLength > 0) {
+                avgX /= avgLength;
+                avgY /= avgLength;
+            } else {
+                avgX = x[to - 1];
+                avgY = y[to - 1];
+            }
+            int rangeStart = from + (int) (i * every) + 1;
+            int rangeEnd = from + (int) ((i + 1) * every) + 1;
+            double maxArea = -1;
+            int chosen = rangeStart;
+            for (int j = rangeStart; j < rangeEnd; j++) {
+                double area = Math.abs((x[a] - avgX) * (y[j] - y[a]) - (x[a] - x[j]) * (avgY - y[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = j;
+                }
+            }
+            sampled[count++] = chosen;
+            a = chosen;
+        }
+        sampled[count++] = to - 1;
+        return sampled;
+    }
+
+    /**
+     * Verlauf einer Übung: je Datensatz mit gültigem Datum der Tag, das schwerste Gewicht und das
+     * Volumen (Wiederholungen × Gewicht), nach Tag sortiert. Primitive Arrays, damit auch sehr lange
+     * Verläufe wenig Speicher brauchen.
+     */
+    public static final class Series {
+        final double[] days;
+        final double[] weights;
+        final double[] volumes;
+        final int size;
+
+        Series(double[] days, double[] weights, double[] volumes, int size) {
+            this.days = days;
+            this.weights = weights;
+            this.volumes = volumes;
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Liest den Verlauf über {@link FitnessApp#streamRecords}, ohne die Datensätze zu behalten.
+         */
+        public static Series load(String username, String exName) {
+            double[] days = new double[1024];
+            double[] weights = new double[1024];
+            double[] volumes = new double[1024];
+            int size = 0;
+            boolean sorted = true;
+            String lastDate = null;
+            double lastDay = Double.NaN;
+            try (Stream<FitnessApp.Record> records = FitnessApp.streamRecords(username, exName, new RecordScan())) {
+                for (FitnessApp.Record record : (Iterable<FitnessApp.Record>) records::iterator) {
+                    if (!record.date.equals(lastDate)) {
+                        lastDate = record.date;
+                        lastDay = epochDay(record.date);
+                    }
+                    if (Double.isNaN(lastDay) || record.size() < 2) continue; // Ohne vollständigen Satz kein Punkt
+                    int best = Integer.MIN_VALUE;
+                    long volume = 0;
+                    for (int i = 0; i + 1 < record.size(); i += 2) {
+                        best = Math.max(best, record.get(i + 1));
+                        volume += (long) record.get(i) * record.get(i + 1);
+                    }
+                    if (size == days.length) {
+                        days = Arrays.copyOf(days, size * 2);
+                        weights = Arrays.copyOf(weights, size * 2);
+                        volumes = Arrays.copyOf(volumes, size * 2);
+                    }
+                    sorted &= size == 0 || days[size - 1] <= lastDay;
+                    days[size] = lastDay;
+                    weights[size] = best;
+                    volumes[size] = volume;
+                    size++;
+                }
+            }
+            if (!sorted) {
+                // Nachgetragene Daten: nach Tag sortieren, gleiche Tage bleiben in Protokollreihenfolge
+                long[] keys = new long[size];
+                for (int i = 0; i < size; i++) keys[i] = ((long) days[i] << 32) | i;
+                Arrays.sort(keys);
+                double[] sortedWeights = new double[size];
+                double[] sortedVolumes = new double[size];
+                for (int i = 0; i < size; i++) {
+                    int index = (int) keys[i];
+                    sortedWeights[i] = weights[index];
+                    sortedVolumes[i] = volumes[index];
+                    keys[i] >>= 32;
+                }
+                for (int i = 0; i < size; i++) days[i] = keys[i];
+                weights = sortedWeights;
+                volumes = sortedVolumes;
+            }
+            return new Series(days, weights, volumes, size);
+        }
+
+        private static double epochDay(String date) {
+            try {
+                return LocalDate.parse(date).toEpochDay();
+            } catch (DateTimeParseException e) {
+                return Double.NaN;
+            }
+        }
+    }
+}
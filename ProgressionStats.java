@@ -0,0 +1,237 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+
+/**
+ * Laufende Kennzahlen einer Übung für den Gewichtsvorschlag.
+ *
+ * Gespeichert werden Anzahl der Datensätze, Summe der Wiederholungen des jeweils ersten Satzes,
+ * das Gewicht und Datum des letzten Datensatzes sowie Größe und Änderungszeit des Protokolls,
+ * auf dessen Stand die Kennzahlen beruhen. Die Datei {@code <Übung>.stats} liegt neben dem
+ * Protokoll und wird von {@code addRecord} bei jedem Anhängen fortgeschrieben.
+ * Fehlt sie oder passt sie nicht mehr zum Protokoll, wird sie einmalig aus den Datensätzen neu aufgebaut.
+ */
+public class ProgressionStats {
+
+    public static final String EXTENSION = ".stats";
+
+    // Änderungszeit unbekannt, weil die Zeile beim Fortschreiben noch nicht geschrieben war
+    private static final long UNKNOWN_MODIFIED = 0;
+
+    // Größere Lücken werden nicht nachgelesen, sondern neu aufgebaut
+    private static final long MAX_CATCH_UP_BYTES = 1024 * 1024;
+
+    public final int count;
+    public final long sumFirstReps;
+    public final boolean hasLastWeight;
+    public final int lastWeight;
+    public final String lastDate;
+
+    // Stand des Protokolls, auf dem die Kennzahlen beruhen
+    private final long logLength;
+    private final long logModified;
+
+    private ProgressionStats(int count, long sumFirstReps, boolean hasLastWeight, int lastWeight,
+                             String lastDate, long logLength, long logModified) {
+        this.count = count;
+        this.sumFirstReps = sumFirstReps;
+        this.hasLastWeight = hasLastWeight;
+        this.lastWeight = lastWeight;
+        this.lastDate = lastDate;
+        this.logLength = logLength;
+        this.logModified = logModified;
+    }
+
+    /**
+     * Durchschnitt der Wiederholungen des ersten Satzes über alle Datensätze.
+     */
+    public double averageFirstReps() {
+        return (double) sumFirstReps / count;
+    }
+
+    /**
+     * Liefert die Kennzahlen einer Übung, ohne das Protokoll zu lesen, sofern sie aktuell sind.
+     * @param username Benutzername
+     * @param exName   Name der Übung
+     * @return aktuelle Kennzahlen (bei fehlendem Protokoll mit Anzahl 0)
+     */
+    public static ProgressionStats load(String username, String exName) {
+        File exFile = logFile(username, exName);
+        RecordAppender.getDefault().flush(exFile);
+        // Aktuelle Kennzahlen ohne Sperre, damit parallele Abfragen (z.B. WeightPlan) nicht warten;
+        // die Datei wird nur atomar ersetzt
+        ProgressionStats stats = read(statsFile(username, exName));
+        if (stats != null && stats.logLength == exFile.length() && stats.logModified == exFile.lastModified()) {
+            return stats;
+        }
+        return loadLocked(username, exName);
+    }
+
+    // Unter der Sperre der Übung: veraltete Kennzahlen verschiedener Übungen werden parallel neu aufgebaut
+    private static ProgressionStats loadLocked(String username, String exName) {
+        FileLocks.Hold lock = FileLocks.update(statsFile(username, exName));
+        try {
+            File exFile = logFile(username, exName);
+            ProgressionStats stats = read(statsFile(username, exName));
+            if (stats != null && stats.logLength == exFile.length()) {
+                if (stats.logModified == exFile.lastModified()) {
+                    return stats;
+                }
+                if (stats.logModified == UNKNOWN_MODIFIED) {
+                    stats = new ProgressionStats(stats.count, stats.sumFirstReps, stats.hasLastWeight, stats.lastWeight,
+                            stats.lastDate, stats.logLength, exFile.lastModified());
+                    write(statsFile(username, exName), stats);
+                    return stats;
+                }
+            }
+            return rebuild(username, exName);
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Baut die Kennzahlen aus allen Datensätzen neu auf und speichert sie.
+     * @param username Benutzername
+     * @param exName   Name der Übung
+     * @return neu berechnete Kennzahlen
+     */
+    public static ProgressionStats rebuild(String username, String exName) {
+        FileLocks.Hold lock = FileLocks.update(statsFile(username, exName));
+        try {
+            File exFile = logFile(username, exName);
+            RecordAppender.getDefault().flush(exFile);
+            ProgressionStats stats;
+            // Nur der erste Satz wird gebraucht, das Protokoll wird blockweise gelesen. Der Stand kommt
+            // vom Cursor: ein gleichzeitig angehängter Datensatz ist entweder gezählt und im Stand
+            // enthalten oder keines von beiden, sonst würde recordAppended ihn ein zweites Mal zählen.
+            try (RecordCursor cursor = RecordCursor.open(exFile, new RecordScan().firstSets(1))) {
+                stats = of(() -> cursor, cursor.length(), cursor.lastModified());
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("Error reading records: " + e.getMessage());
+                return of(List.of()); // Nicht speichern, beim nächsten Zugriff wird es erneut versucht
+            }
+            write(statsFile(username, exName), stats);
+            return stats;
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Berechnet die Kennzahlen aus den Datensätzen, ohne sie zu speichern (z.B. für andere Speicher).
+     * @param records Datensätze in Protokollreihenfolge
+     */
+    public static ProgressionStats of(Iterable<FitnessApp.Record> records) {
+        return of(records, 0, 0);
+    }
+
+    private static ProgressionStats of(Iterable<FitnessApp.Record> records, long length, long modified) {
+        ProgressionStats stats = new ProgressionStats(0, 0, false, 0, "", length, modified);
+        for (FitnessApp.Record record : records) {
+            stats = stats.plus(record.date, record.size(), record.size() > 0 ? record.get(0) : 0,
+                    record.size() > 1 ? record.get(1) : 0, length, modified);
+        }
+        return stats;
+    }
+
+    /**
+     * Schreibt die Kennzahlen nach einem erfolgreichen Anhängen fort.
+     * Haben andere Schreiber (z.B. ein zweiter Prozess) seit dem gespeicherten Stand angehängt,
+     * werden nur diese Zeilen nachgelesen; passt der Stand gar nicht, wird neu aufgebaut.
+     * @param username     Benutzername
+     * @param exName       Name der Übung
+     * @param date         Datum des neuen Datensatzes
+     * @param repsAndWeights Wiederholungen und Gewichte des neuen Datensatzes
+     * @param lengthBefore Größe des Protokolls vor dem Anhängen (inklusive noch gesammelter Zeilen)
+     * @param lengthAfter  Größe des Protokolls nach dem Anhängen
+     */
+    public static void recordAppended(String username, String exName, String date,
+                                      List<Integer> repsAndWeights, long lengthBefore, long lengthAfter) {
+        FileLocks.Hold lock = FileLocks.update(statsFile(username, exName));
+        try {
+            File exFile = logFile(username, exName);
+            long modified = RecordAppender.getDefault().hasPending(exFile) ? UNKNOWN_MODIFIED : exFile.lastModified();
+            ProgressionStats stats = read(statsFile(username, exName));
+            if (stats != null && stats.logLength < lengthBefore && modified != UNKNOWN_MODIFIED) {
+                stats = catchUp(exFile, stats, lengthBefore);
+            }
+            if (stats == null || stats.logLength != lengthBefore) {
+                rebuild(username, exName);
+                return;
+            }
+            int size = repsAndWeights.size();
+            write(statsFile(username, exName), stats.plus(date, size, size > 0 ? repsAndWeights.get(0) : 0,
+                    size > 1 ? repsAndWeights.get(1) : 0, lengthAfter, modified));
+        } finally {
+            lock.release();
+        }
+    }
+
+    // Liest die Zeilen zwischen dem gespeicherten Stand und 'length' nach, null wenn das nicht geht
+    private static ProgressionStats catchUp(File exFile, ProgressionStats stats, long length) {
+        List<FitnessApp.Record> appended = TextRecordStore.readAppended(exFile, stats.logLength, length, MAX_CATCH_UP_BYTES);
+        if (appended == null) {
+            return null;
+        }
+        long modified = exFile.lastModified();
+        for (FitnessApp.Record record : appended) {
+            stats = stats.plus(record.date, record.size(), record.get(0), record.get(1), length, modified);
+        }
+        return new ProgressionStats(stats.count, stats.sumFirstReps, stats.hasLastWeight, stats.lastWeight,
+                stats.lastDate, length, modified);
+    }
+
+    // Nur Datensätze mit mindestens einem Satz (Wdh + Gewicht) werden vom Parser übernommen
+    private ProgressionStats plus(String date, int valueCount, int firstReps, int firstWeight, long length, long modified) {
+        if (valueCount < 2) {
+            return new ProgressionStats(count, sumFirstReps, hasLastWeight, lastWeight, lastDate, length, modified);
+        }
+        return new ProgressionStats(count + 1, sumFirstReps + firstReps, true, firstWeight, date, length, modified);
+    }
+
+    private static File logFile(String username, String exName) {
+        return new File(FitnessApp.BASE_DIR + File.separator + username, exName + ".txt");
+    }
+
+    private static File statsFile(String username, String exName) {
+        return new File(FitnessApp.BASE_DIR + File.separator + username, exName + EXTENSION);
+    }
+
+    // Format: count,sumFirstReps,hasLastWeight,lastWeight,lastDate,logLength,logModified
+    private static ProgressionStats read(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim().split(",", -1);
+            if (parts.length != 7) {
+                return null;
+            }
+            return new ProgressionStats(Integer.parseInt(parts[0]), Long.parseLong(parts[1]),
+                    Boolean.parseBoolean(parts[2]), Integer.parseInt(parts[3]), parts[4],
+                    Long.parseLong(parts[5]), Long.parseLong(parts[6]));
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error reading progression stats: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static void write(File file, ProgressionStats stats) {
+        if (!file.getParentFile().exists()) {
+            return; // Kein Benutzerverzeichnis, nichts zu speichern
+        }
+        String line = stats.count + "," + stats.sumFirstReps + "," + stats.hasLastWeight + "," + stats.lastWeight
+                + "," + stats.lastDate + "," + stats.logLength + "," + stats.logModified;
+        Path target = file.toPath();
+        try {
+            // Eigener Name je Schreibvorgang, falls mehrere Prozesse gleichzeitig schreiben
+            Path tmp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+            Files.write(tmp, line.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error writing progression stats: " + e.getMessage());
+        }
+    }
+}
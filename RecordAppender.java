@@ -0,0 +1,328 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Hält die Protokolldateien zum Anhängen offen und schreibt neue Zeilen gesammelt.
+ *
+ * Statt pro Datensatz einen {@code FileWriter} zu öffnen und zu schließen, bleibt je Datei ein
+ * {@link FileChannel} im Append-Modus offen (höchstens {@value #MAX_OPEN_FILES}, die am längsten
+ * unbenutzten werden geschlossen). Wann geschrieben wird, bestimmt die {@link Durability}:
+ * <ul>
+ * <li>{@code FLUSH_PER_CALL}: jede Zeile wird sofort geschrieben (Standard, Verhalten wie bisher)</li>
+ * <li>{@code FSYNC_PER_BATCH}: Zeilen werden gesammelt, gemeinsam geschrieben und mit fsync gesichert</li>
+ * <li>{@code TIME_BOUNDED}: Zeilen werden gesammelt und spätestens nach dem Intervall geschrieben</li>
+ * </ul>
+ * Gesammelte Zeilen werden geschrieben, sobald {@code fitness.batchSize} erreicht ist, das Intervall
+ * {@code fitness.flushIntervalMillis} abläuft, ein Leser {@link #flush(File)} aufruft oder die JVM beendet wird.
+ * Die Richtlinie wird über die System-Property {@code fitness.durability} gewählt.
+ *
+ * Schlägt das Schreiben fehl, bleiben die noch nicht geschriebenen Bytes gesammelt und werden beim
+ * nächsten Schreiben erneut versucht. Bis das gelingt, lehnt {@link #append} neue Zeilen für die Datei
+ * ab (Rückgabe null), der Fehler wird also beim nächsten Anhängen gemeldet. Eine Zeile, deren eigenes
+ * Schreiben fehlschlägt, wird nicht angenommen. Verloren gehen können Zeilen, die schon angenommen sind:
+ * <ul>
+ * <li>{@code FLUSH_PER_CALL}: nur bei einem Absturz des Betriebssystems, weil nicht mit fsync gesichert wird</li>
+ * <li>{@code FSYNC_PER_BATCH} und {@code TIME_BOUNDED}: gesammelte Zeilen bei jedem Absturz der JVM, außerdem
+ *     wenn das Schreiben beim Schließen der Datei (Verdrängen, Beenden) immer noch fehlschlägt; das wird
+ *     als Fehler ausgegeben. {@code TIME_BOUNDED} sichert auch Geschriebenes nicht mit fsync.</li>
+ * </ul>
+ *
+ * Jede offene Datei hat ihre eigene Sperre; Zugriffe auf verschiedene Dateien laufen parallel,
+ * nur das Verzeichnis der offenen Dateien wird kurz gemeinsam gesperrt. Geschrieben wird unter
+ * {@link FileLocks#write}, damit Leser und andere Prozesse keine halben Zeilen sehen.
+ */
+public class RecordAppender {
+
+    public enum Durability { FLUSH_PER_CALL, FSYNC_PER_BATCH, TIME_BOUNDED }
+
+    private static final int MAX_OPEN_FILES = 64;
+
+    private static final RecordAppender DEFAULT = new RecordAppender(
+            durabilityFromProperty(), Integer.getInteger("fitness.batchSize", 64),
+            Long.getLong("fitness.flushIntervalMillis", 200L));
+
+    static {
+        // Auch bei EXIT_ON_CLOSE (System.exit) gehen keine gesammelten Zeilen verloren
+        Runtime.getRuntime().addShutdownHook(new Thread(DEFAULT::close, "record-appender-shutdown"));
+    }
+
+    private final Durability durability;
+    private final int batchSize;
+    private final LinkedHashMap<File, OpenFile> openFiles; // geschützt durch sich selbst
+    private final ScheduledExecutorService flusher;
+    private volatile boolean closed;
+
+    /**
+     * @param durability    wann geschrieben und gesichert wird
+     * @param batchSize     maximale Anzahl gesammelter Zeilen je Datei
+     * @param intervalMillis maximale Wartezeit gesammelter Zeilen
+     */
+    public RecordAppender(Durability durability, int batchSize, long intervalMillis) {
+        this.durability = durability;
+        this.batchSize = Math.max(1, batchSize);
+        this.openFiles = new LinkedHashMap<>(16, 0.75f, true);
+        if (durability == Durability.FLUSH_PER_CALL) {
+            flusher = null;
+        } else {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "record-appender-flush");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flushAll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static RecordAppender getDefault() {
+        return DEFAULT;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Lage einer angehängten Zeile in der Datei, Positionen inklusive noch nicht geschriebener Zeilen.
+     */
+    public static final class Position {
+        // Beginn der Zeile, also die Länge der Datei davor
+        public final long start;
+        // Ende der Zeile inklusive Zeilenumbruch
+        public final long end;
+
+        Position(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * Hängt eine Zeile an die Datei an (der Zeilenumbruch wird ergänzt).
+     * @param file Protokolldatei, das Verzeichnis muss existieren
+     * @param line Zeile ohne Zeilenumbruch
+     * @return wo die Zeile steht bzw. stehen wird, oder null, wenn sie nicht angehängt werden konnte.
+     *         Wird sofort geschrieben, ist es die tatsächliche Position (auch wenn ein anderer Prozess
+     *         zwischendurch angehängt hat), sonst die Position hinter den schon gesammelten Zeilen.
+     */
+    public Position append(File file, String line) {
+        byte[] bytes = (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        while (!closed) {
+            try {
+                OpenFile open = open(file);
+                synchronized (open) {
+                    if (open.closed) {
+                        continue; // Gerade verdrängt, neu öffnen
+                    }
+                    // Im selben Block wie das Anhängen, damit gleichzeitige Aufrufe verschiedene Positionen erhalten
+                    long end = file.length() + open.pending.size() + bytes.length;
+                    open.add(bytes);
+                    // Nach einem Schreibfehler erst wieder annehmen, wenn die aufgehobenen Zeilen geschrieben sind
+                    if (durability == Durability.FLUSH_PER_CALL || open.pendingLines >= batchSize || open.failed) {
+                        try {
+                            end = open.flush(durability == Durability.FSYNC_PER_BATCH); // Die Zeile ist die letzte
+                        } catch (IOException e) {
+                            if (open.pending.size() < bytes.length) {
+                                // Schon teilweise geschrieben: wird mit den übrigen Zeilen vervollständigt
+                                System.err.println("Error writing records to " + file + ": " + e.getMessage());
+                                return new Position(end - bytes.length, end);
+                            }
+                            open.removeLast(bytes.length);
+                            throw e;
+                        }
+                    }
+                    return new Position(end - bytes.length, end);
+                }
+            } catch (IOException e) {
+                System.err.println("Error adding record: " + e.getMessage());
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return true, wenn für die Datei noch Zeilen auf das Schreiben warten
+     */
+    public boolean hasPending(File file) {
+        OpenFile open = get(file);
+        if (open == null) {
+            return false;
+        }
+        synchronized (open) {
+            return open.pendingLines > 0;
+        }
+    }
+
+    /**
+     * Schreibt die gesammelten Zeilen einer Datei, z.B. bevor sie gelesen wird.
+     */
+    public void flush(File file) {
+        OpenFile open = get(file);
+        if (open != null) {
+            flushQuietly(open);
+        }
+    }
+
+    public void flushAll() {
+        List<OpenFile> snapshot;
+        synchronized (openFiles) {
+            snapshot = new ArrayList<>(openFiles.values());
+        }
+        for (OpenFile open : snapshot) {
+            flushQuietly(open);
+        }
+    }
+
+    /**
+     * Schreibt alle gesammelten Zeilen und schließt die offenen Dateien.
+     */
+    public void close() {
+        List<OpenFile> snapshot;
+        synchronized (openFiles) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            snapshot = new ArrayList<>(openFiles.values());
+            openFiles.clear();
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        for (OpenFile open : snapshot) {
+            closeQuietly(open);
+        }
+    }
+
+    private OpenFile get(File file) {
+        synchronized (openFiles) {
+            return openFiles.get(file);
+        }
+    }
+
+    private OpenFile open(File file) throws IOException {
+        OpenFile evicted = null;
+        OpenFile open;
+        synchronized (openFiles) {
+            if (closed) {
+                throw new IOException("Appender ist geschlossen");
+            }
+            open = openFiles.get(file);
+            if (open == null) {
+                open = new OpenFile(file);
+                openFiles.put(file, open);
+                if (openFiles.size() > MAX_OPEN_FILES) {
+                    Iterator<OpenFile> eldest = openFiles.values().iterator();
+                    evicted = eldest.next();
+                    eldest.remove();
+                }
+            }
+        }
+        // Außerhalb der Verzeichnis-Sperre, damit andere Dateien nicht auf das Schreiben warten
+        if (evicted != null) {
+            closeQuietly(evicted);
+        }
+        return open;
+    }
+
+    private void closeQuietly(OpenFile open) {
+        synchronized (open) {
+            flushQuietly(open);
+            if (open.pendingLines > 0) {
+                System.err.println(open.pendingLines + " Zeile(n) für " + open.file + " konnten nicht geschrieben werden und gehen verloren.");
+            }
+            open.close();
+        }
+    }
+
+    private void flushQuietly(OpenFile open) {
+        try {
+            synchronized (open) {
+                open.flush(durability == Durability.FSYNC_PER_BATCH);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing records to " + open.file + ": " + e.getMessage());
+        }
+    }
+
+    private static Durability durabilityFromProperty() {
+        String value = System.getProperty("fitness.durability", Durability.FLUSH_PER_CALL.name());
+        try {
+            return Durability.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unbekannte Durability '" + value + "', verwende FLUSH_PER_CALL.");
+            return Durability.FLUSH_PER_CALL;
+        }
+    }
+
+    private static class OpenFile {
+        final File file;
+        final FileChannel channel;
+        final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+        int pendingLines;
+        // Das letzte Schreiben ist fehlgeschlagen, 'pending' enthält die nicht geschriebenen Bytes
+        boolean failed;
+        boolean closed;
+
+        OpenFile(File file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        void add(byte[] line) {
+            pending.write(line, 0, line.length);
+            pendingLines++;
+        }
+
+        // Entfernt die zuletzt gesammelte Zeile wieder
+        void removeLast(int length) {
+            byte[] bytes = pending.toByteArray();
+            pending.reset();
+            pending.write(bytes, 0, bytes.length - length);
+            pendingLines--;
+        }
+
+        // Alle gesammelten Zeilen in einem Schreibvorgang; schlägt er fehl, bleiben die nicht
+        // geschriebenen Bytes für den nächsten Versuch gesammelt. Liefert die Länge der Datei danach
+        long flush(boolean force) throws IOException {
+            if (pendingLines == 0) {
+                return file.length();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+            pending.reset();
+            FileLocks.Hold lock = FileLocks.write(file);
+            try {
+                while (buffer.hasRemaining()) {
+                    Metrics.BYTES_WRITTEN.add(channel.write(buffer));
+                }
+                if (force) {
+                    channel.force(false);
+                }
+                pendingLines = 0;
+                failed = false;
+                return channel.size();
+            } catch (IOException e) {
+                pending.write(buffer.array(), buffer.position(), buffer.remaining());
+                failed = true;
+                throw e;
+            } finally {
+                lock.release();
+            }
+        }
+
+        void close() {
+            closed = true;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing " + file + ": " + e.getMessage());
+            }
+        }
+    }
+}
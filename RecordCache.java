@@ -0,0 +1,129 @@
+import java.io.File;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Größenbegrenzter LRU-Cache für die Datensätze einer Übung, Schlüssel ist (Benutzer, Übung).
+ *
+ * Jeder Eintrag merkt sich Änderungszeit und Größe der Protokolldatei beim Laden.
+ * Weicht eines davon beim nächsten Zugriff ab (z.B. weil die Datei von außen geändert wurde),
+ * wird der Eintrag verworfen und neu geladen. Schreibzugriffe über {@code addRecord}
+ * invalidieren den Eintrag zusätzlich direkt.
+ */
+public class RecordCache {
+
+    private final int capacity;
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity maximale Anzahl gecachter Übungen
+     */
+    public RecordCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Kapazität muss mindestens 1 sein.");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > RecordCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Liefert die gecachten Datensätze oder lädt sie neu, wenn sie fehlen oder veraltet sind.
+     * @param username Benutzername
+     * @param exName   Name der Übung
+     * @param exFile   Protokolldatei der Übung, dient zur Erkennung externer Änderungen
+     * @param loader   liest die Datensätze aus der Datei
+     * @return unveränderliche Liste der Datensätze
+     */
+    public <T> List<T> get(String username, String exName, File exFile, Supplier<List<T>> loader) {
+        String key = key(username, exName);
+        long modified = exFile.lastModified();
+        long length = exFile.length();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.modified == modified && entry.length == length) {
+                hits++;
+                @SuppressWarnings("unchecked")
+                List<T> records = (List<T>) entry.records;
+                return records;
+            }
+            misses++;
+        }
+        // Laden außerhalb der Sperre; der vorher ermittelte Stand sorgt dafür, dass eine
+        // zwischenzeitliche Änderung beim nächsten Zugriff erkannt wird.
+        List<T> records = Collections.unmodifiableList(loader.get());
+        synchronized (this) {
+            entries.put(key, new Entry(modified, length, records));
+        }
+        return records;
+    }
+
+    /**
+     * Liefert die gecachten Datensätze nur, wenn sie vorhanden und aktuell sind; lädt nichts nach.
+     * @return unveränderliche Liste der Datensätze oder null
+     */
+    public synchronized <T> List<T> peek(String username, String exName, File exFile) {
+        Entry entry = entries.get(key(username, exName));
+        if (entry == null || entry.modified != exFile.lastModified() || entry.length != exFile.length()) {
+            return null;
+        }
+        hits++;
+        @SuppressWarnings("unchecked")
+        List<T> records = (List<T>) entry.records;
+        return records;
+    }
+
+    /**
+     * Verwirft den Eintrag einer Übung, z.B. nach einem Schreibzugriff.
+     */
+    public synchronized void invalidate(String username, String exName) {
+        entries.remove(key(username, exName));
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RecordCache[" + entries.size() + "/" + capacity + ", Treffer: " + hits + ", Fehlzugriffe: " + misses + "]";
+    }
+
+    private static String key(String username, String exName) {
+        return username + File.separator + exName;
+    }
+
+    private static class Entry {
+        final long modified;
+        final long length;
+        final List<?> records;
+
+        Entry(long modified, long length, List<?> records) {
+            this.modified = modified;
+            this.length = length;
+            this.records = records;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Liest die Datensätze einer Übung nacheinander, ohne sie alle im Speicher zu halten.
+ *
+ * Zuerst kommen die archivierten Datensätze (je ein Segment im Speicher), dann das Protokoll in
+ * Blöcken von {@value #BUFFER_SIZE} Bytes; ein Block wird erst gelesen, wenn der vorige verbraucht
+ * ist. Die Lesesperre wird nur für das Lesen eines Blocks gehalten, ein langsamer Verbraucher hält
+ * also keine Schreiber auf. Gelesen wird bis zur Länge des Protokolls beim Öffnen; später
+ * angehängte Datensätze gehören nicht mehr dazu.
+ *
+ * Filter und Projektion ({@link RecordScan}) werden beim Parsen angewendet. Ist ein Datumsbereich
+ * gesetzt und das Protokoll sortiert, beginnt das Lesen über den {@link DateIndex} beim ersten
+ * passenden Datensatz und endet beim ersten Datum dahinter.
+ *
+ * Der Cursor muss geschlossen werden, am besten über try-with-resources; das gilt auch für den
+ * {@link #stream()}. Lesefehler während der Iteration werden als {@link UncheckedIOException} gemeldet,
+ * ebenso ein Protokoll, das während des Lesens umgeschrieben wurde (z.B. durch die Archivierung).
+ * Erkannt wird das vor jedem Block am Stand beim Öffnen: Dateischlüssel des Protokolls (ersetzte Datei)
+ * und Länge des Archivs (jedes Kompaktieren hängt ein Segment an oder verwirft eines).
+ */
+public class RecordCursor implements Iterator<FitnessApp.Record>, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File exFile;
+    private final RecordScan scan;
+    private final RecordParser parser = new RecordParser();
+
+    private Archive.Reader archive;
+    private List<FitnessApp.Record> archived = Collections.emptyList();
+    private int archivedIndex;
+
+    private FileChannel channel;
+    private long position;
+    private final long end;
+    private final long modified;
+    // Stand beim Öffnen, siehe checkUnchanged()
+    private Object fileKey;
+    private long archiveLength;
+    // Bei sortiertem Protokoll endet der Bereich beim ersten späteren Datum
+    private final boolean stopAfterRange;
+
+    private byte[] buf = new byte[0];
+    private int bufStart;
+    private int bufEnd;
+
+    private FitnessApp.Record next;
+    private boolean done;
+
+    private RecordCursor(File exFile, RecordScan scan) throws IOException {
+        this.exFile = exFile;
+        this.scan = scan;
+        if (scan.isEmpty() || !exFile.exists()) {
+            this.end = 0;
+            this.modified = 0;
+            this.stopAfterRange = false;
+            this.done = true;
+            return;
+        }
+        FileLocks.Hold lock = FileLocks.read(exFile);
+        try {
+            this.end = exFile.length();
+            this.modified = exFile.lastModified();
+            this.fileKey = fileKey();
+            this.archiveLength = Archive.archiveFile(exFile).length();
+            long start = 0;
+            boolean sorted = false;
+            if (scan.from != null || scan.to != null) {
+                start = DateIndex.rangeStart(exFile, scan.from);
+                sorted = start >= 0;
+                start = Math.max(start, 0);
+            }
+            this.position = start;
+            this.stopAfterRange = sorted && scan.to != null;
+            this.archive = new Archive.Reader(exFile, scan.from, scan.to);
+            try {
+                this.channel = FileChannel.open(exFile.toPath(), StandardOpenOption.READ);
+            } catch (IOException e) {
+                archive.close();
+                throw e;
+            }
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Öffnet einen Cursor über Archiv und Protokoll einer Übung.
+     * Noch gesammelte Zeilen des {@link RecordAppender}s müssen vorher geschrieben sein.
+     * @param exFile Protokolldatei (muss nicht existieren)
+     * @param scan   Datumsbereich und Projektion
+     * @throws IOException wenn Protokoll, Index oder Archiv nicht geöffnet werden können
+     */
+    public static RecordCursor open(File exFile, RecordScan scan) throws IOException {
+        return new RecordCursor(exFile, scan);
+    }
+
+    /**
+     * Länge des Protokolls beim Öffnen; später angehängte Datensätze liest der Cursor nicht mehr.
+     */
+    public long length() {
+        return end;
+    }
+
+    /**
+     * Änderungszeit des Protokolls beim Öffnen, unter derselben Sperre gelesen wie {@link #length()}.
+     */
+    public long lastModified() {
+        return modified;
+    }
+
+    /**
+     * Der Cursor als sequentieller Stream; {@link Stream#close()} schließt den Cursor.
+     */
+    public Stream<FitnessApp.Record> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(this::close);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            try {
+                next = advance();
+            } catch (IOException e) {
+                close();
+                throw new UncheckedIOException(e);
+            }
+            if (next == null) {
+                close();
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public FitnessApp.Record next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        FitnessApp.Record record = next;
+        next = null;
+        return record;
+    }
+
+    // Schließt Archiv und Protokoll; danach liefert der Cursor nichts mehr
+    @Override
+    public void close() {
+        done = true;
+        try {
+            if (archive != null) archive.close();
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing records: " + e.getMessage());
+        }
+        archive = null;
+        channel = null;
+    }
+
+    private FitnessApp.Record advance() throws IOException {
+        while (archive != null) {
+            if (archivedIndex < archived.size()) {
+                return scan.project(archived.get(archivedIndex++));
+            }
+            FileLocks.Hold lock = FileLocks.read(exFile);
+            try {
+                archived = archive.next();
+            } finally {
+                lock.release();
+            }
+            archivedIndex = 0;
+            if (archived == null) {
+                archive.close();
+                archive = null;
+                archived = Collections.emptyList();
+            }
+        }
+        while (true) {
+            int lineEnd = bufStart;
+            while (lineEnd < bufEnd && buf[lineEnd] != '\n' && buf[lineEnd] != '\r') lineEnd++;
+            if (lineEnd == bufEnd && position < end) {
+                fill();
+                continue;
+            }
+            if (lineEnd == bufStart && lineEnd == bufEnd) {
+                return null; // Protokoll zu Ende
+            }
+            // Wie RecordParser.parse: \r und \n trennen Zeilen, die letzte Zeile braucht keinen Umbruch
+            FitnessApp.Record record = parser.parseSingleLine(buf, bufStart, lineEnd, scan);
+            bufStart = Math.min(lineEnd + 1, bufEnd);
+            if (record != null) {
+                return record;
+            }
+            if (stopAfterRange && parser.lastDate() != null && parser.lastDate().compareTo(scan.to) > 0) {
+                return null; // Dahinter kommen nur noch spätere Daten
+            }
+        }
+    }
+
+    // Liest den nächsten Block hinter die noch nicht verbrauchten Bytes
+    private void fill() throws IOException {
+        int remaining = bufEnd - bufStart;
+        if (buf.length == 0) {
+            buf = new byte[(int) Math.min(BUFFER_SIZE, Math.max(end - position, 1))];
+        } else if (remaining == buf.length) {
+            buf = Arrays.copyOf(buf, buf.length * 2); // Zeile länger als der Puffer
+        } else if (bufStart > 0) {
+            System.arraycopy(buf, bufStart, buf, 0, remaining);
+        }
+        bufStart = 0;
+        bufEnd = remaining;
+        ByteBuffer target = ByteBuffer.wrap(buf, bufEnd, (int) Math.min(buf.length - bufEnd, end - position));
+        FileLocks.Hold lock = FileLocks.read(exFile);
+        try {
+            checkUnchanged();
+            while (target.hasRemaining()) {
+                int read = channel.read(target, position);
+                if (read < 0) throw new EOFException(exFile.toString());
+                position += read;
+                bufEnd += read;
+                Metrics.BYTES_READ.add(read);
+            }
+        } finally {
+            lock.release();
+        }
+    }
+
+    // Nur mit gehaltener Lesesperre: die Positionen gelten nur für das Protokoll beim Öffnen
+    private void checkUnchanged() throws IOException {
+        if (channel.size() < end || !Objects.equals(fileKey(), fileKey)
+                || Archive.archiveFile(exFile).length() != archiveLength) {
+            throw new IOException("Protokoll wurde während des Lesens umgeschrieben: " + exFile);
+        }
+    }
+
+    // Identität der Datei (z.B. Inode), null wenn das Dateisystem keine liefert oder die Datei fehlt
+    private Object fileKey() throws IOException {
+        try {
+            return Files.readAttributes(exFile.toPath(), BasicFileAttributes.class).fileKey();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Liest Übungsprotokolle direkt auf Byte-Ebene, ohne {@code split} und ohne Zwischen-Strings.
+ *
+ * Alle Wiederholungen und Gewichte einer Übung landen in einem gemeinsamen {@code int[]},
+ * die einzelnen {@link FitnessApp.Record}s verweisen nur auf ihren Ausschnitt daraus.
+ * Pro Datensatz wird damit nur das Objekt selbst angelegt; aufeinanderfolgende Datensätze
+ * mit gleichem Datum teilen sich sogar denselben Datums-String.
+ *
+ * Die Regeln entsprechen dem bisherigen {@code line.split(",")} mit {@code Integer.parseInt}:
+ * leere Felder am Zeilenende werden ignoriert, Zeilen mit weniger als zwei Werten übersprungen
+ * und Zeilen mit ungültigen Zahlen gemeldet und ausgelassen.
+ */
+public class RecordParser {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Gemeinsames Werte-Array aller Datensätze
+    private int[] values = new int[256];
+    private int valueCount;
+
+    // Je Datensatz: Datum, Start und Anzahl der Werte
+    private String[] dates = new String[64];
+    private int[] starts = new int[64];
+    private int[] lengths = new int[64];
+    private int recordCount;
+
+    // Letztes Datum als Bytes, um den String wiederzuverwenden
+    private byte[] lastDateBytes = new byte[16];
+    private int lastDateLength = -1;
+    private String lastDate;
+
+    private int lineNumber;
+
+    // Filter beim zeilenweisen Lesen (RecordCursor), sonst null
+    private RecordScan scan;
+
+    RecordParser() {
+    }
+
+    /**
+     * Liest genau eine Zeile (ohne Zeilenumbruch). Die Instanz wird dabei zurückgesetzt
+     * und kann für beliebig viele Zeilen wiederverwendet werden.
+     * @return Datensatz mit eigenem Werte-Array oder null, wenn die Zeile übersprungen wird
+     */
+    FitnessApp.Record parseSingleLine(byte[] buf, int start, int end) {
+        valueCount = 0;
+        recordCount = 0;
+        parseLine(buf, start, end);
+        if (recordCount == 0) {
+            return null;
+        }
+        return new FitnessApp.Record(dates[0], Arrays.copyOf(values, valueCount), 0, valueCount);
+    }
+
+    /**
+     * Wie {@link #parseSingleLine(byte[], int, int)}, aber Zeilen außerhalb des Datumsbereichs werden
+     * ohne Parsen der Werte übersprungen und vom Datensatz werden nur die gewünschten Werte behalten.
+     * Geprüft werden weiterhin alle Werte, eine Zeile mit ungültigen Zahlen fehlt also auch hier.
+     */
+    FitnessApp.Record parseSingleLine(byte[] buf, int start, int end, RecordScan scan) {
+        valueCount = 0;
+        recordCount = 0;
+        this.scan = scan;
+        try {
+            parseLine(buf, start, end);
+        } finally {
+            this.scan = null;
+        }
+        if (recordCount == 0) {
+            return null;
+        }
+        int kept = scan.keep(valueCount);
+        return new FitnessApp.Record(dates[0], Arrays.copyOf(values, kept), 0, kept);
+    }
+
+    // Datum der zuletzt gelesenen Zeile (auch wenn sie gefiltert oder übersprungen wurde) oder null
+    String lastDate() {
+        return lastDate;
+    }
+
+    /**
+     * Liest alle Datensätze einer Protokolldatei.
+     * @param file Protokolldatei
+     * @return Datensätze in Dateireihenfolge
+     * @throws IOException wenn die Datei nicht gelesen werden kann
+     */
+    public static List<FitnessApp.Record> parse(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return parse(in);
+        }
+    }
+
+    /**
+     * Liest alle Datensätze aus einem Datenstrom. Der Puffer wächst nur, wenn eine
+     * einzelne Zeile länger als {@value #BUFFER_SIZE} Bytes ist.
+     * @param in Datenstrom im Protokollformat
+     * @return Datensätze in Reihenfolge des Datenstroms
+     * @throws IOException wenn der Datenstrom nicht gelesen werden kann
+     */
+    public static List<FitnessApp.Record> parse(InputStream in) throws IOException {
+        RecordParser parser = new RecordParser();
+        byte[] buf = new byte[BUFFER_SIZE];
+        int filled = 0;
+        int read;
+        long total = 0;
+        while ((read = in.read(buf, filled, buf.length - filled)) != -1) {
+            filled += read;
+            total += read;
+            int consumed = parser.parseLines(buf, 0, filled, false);
+            filled -= consumed;
+            System.arraycopy(buf, consumed, buf, 0, filled);
+            if (filled == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            }
+        }
+        parser.parseLines(buf, 0, filled, true);
+        Metrics.BYTES_READ.add(total);
+        return parser.toRecords();
+    }
+
+    /**
+     * Liest alle Datensätze aus einem bereits geladenen Byte-Bereich.
+     */
+    public static List<FitnessApp.Record> parse(byte[] buf, int from, int to) {
+        RecordParser parser = new RecordParser();
+        parser.parseLines(buf, from, to, true);
+        return parser.toRecords();
+    }
+
+    /**
+     * Verarbeitet alle vollständigen Zeilen im Bereich.
+     * @param last true, wenn eine Zeile ohne Zeilenumbruch am Ende auch verarbeitet werden soll
+     * @return Anzahl der verbrauchten Bytes ab {@code from}
+     */
+    private int parseLines(byte[] buf, int from, int to, boolean last) {
+        int lineStart = from;
+        for (int i = from; i < to; i++) {
+            byte b = buf[i];
+            if (b == '\n' || b == '\r') {
+                parseLine(buf, lineStart, i);
+                lineStart = i + 1;
+            }
+        }
+        if (last && lineStart < to) {
+            parseLine(buf, lineStart, to);
+            lineStart = to;
+        }
+        return lineStart - from;
+    }
+
+    private void parseLine(byte[] buf, int start, int end) {
+        lineNumber++;
+        int comma = start;
+        while (comma < end && buf[comma] != ',') comma++;
+        if (comma == end) {
+            if (end > start) Metrics.LINES_SKIPPED.increment();
+            return; // Kein Wert, nur Datum oder Leerzeile
+        }
+        String date = date(buf, start, comma);
+        if (scan != null && !scan.matches(date)) {
+            return;
+        }
+
+        int recordStart = valueCount;
+        int emptyFields = 0;
+        int pos = comma + 1;
+        while (true) {
+            int fieldEnd = pos;
+            while (fieldEnd < end && buf[fieldEnd] != ',') fieldEnd++;
+            if (fieldEnd == pos) {
+                emptyFields++; // Nur am Zeilenende erlaubt, wie bei split(",")
+            } else {
+                if (emptyFields > 0 || !parseInt(buf, pos, fieldEnd)) {
+                    System.err.println("Error parsing record data in line " + lineNumber);
+                    Metrics.PARSE_ERRORS.increment();
+                    Metrics.LINES_SKIPPED.increment();
+                    valueCount = recordStart;
+                    return;
+                }
+            }
+            if (fieldEnd == end) break;
+            pos = fieldEnd + 1;
+        }
+
+        int length = valueCount - recordStart;
+        if (length < 2) {
+            Metrics.LINES_SKIPPED.increment();
+            valueCount = recordStart;
+            return;
+        }
+        addRecord(date, recordStart, length);
+    }
+
+    // Entspricht Integer.parseInt für ASCII-Ziffern mit optionalem Vorzeichen
+    private boolean parseInt(byte[] buf, int start, int end) {
+        boolean negative = false;
+        int i = start;
+        if (buf[i] == '-' || buf[i] == '+') {
+            negative = buf[i] == '-';
+            i++;
+            if (i == end) return false;
+        }
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) return false;
+            result = result * 10 + digit;
+            if (result > (long) Integer.MAX_VALUE + 1) return false;
+        }
+        if (negative) result = -result;
+        if (result > Integer.MAX_VALUE) return false;
+        if (valueCount == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[valueCount++] = (int) result;
+        return true;
+    }
+
+    private String date(byte[] buf, int start, int end) {
+        int length = end - start;
+        if (length == lastDateLength && Arrays.equals(buf, start, end, lastDateBytes, 0, length)) {
+            return lastDate;
+        }
+        if (length > lastDateBytes.length) {
+            lastDateBytes = new byte[length];
+        }
+        System.arraycopy(buf, start, lastDateBytes, 0, length);
+        lastDateLength = length;
+        lastDate = new String(buf, start, length, StandardCharsets.UTF_8);
+        return lastDate;
+    }
+
+    private void addRecord(String date, int start, int length) {
+        if (recordCount == dates.length) {
+            int capacity = recordCount * 2;
+            dates = Arrays.copyOf(dates, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        dates[recordCount] = date;
+        starts[recordCount] = start;
+        lengths[recordCount] = length;
+        recordCount++;
+    }
+
+    private List<FitnessApp.Record> toRecords() {
+        int[] shared = values.length == valueCount ? values : Arrays.copyOf(values, valueCount);
+        List<FitnessApp.Record> records = new ArrayList<>(recordCount);
+        for (int i = 0; i < recordCount; i++) {
+            records.add(new FitnessApp.Record(dates[i], shared, starts[i], lengths[i]));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,79 @@
+import java.util.Objects;
+
+/**
+ * Was ein {@link RecordCursor} bzw. {@link RecordStore#streamRecords} liefern soll: ein Datumsbereich
+ * und wie viele Werte je Datensatz gebraucht werden. Beides wird beim Lesen angewendet, gefilterte
+ * Zeilen werden nicht geparst, weggelassene Werte nicht aufbewahrt.
+ *
+ * <pre>
+ * // Nur Wiederholungen und Gewicht des ersten Satzes ab 2024
+ * new RecordScan().between("2024-01-01", null).firstSets(1)
+ * </pre>
+ */
+public class RecordScan {
+
+    String from;
+    String to;
+    // Höchstens so viele Werte je Datensatz, 0 = alle
+    int maxValues;
+
+    /**
+     * Nur Datensätze mit {@code from <= datum <= to} (yyyy-MM-dd, null = unbeschränkt).
+     */
+    public RecordScan between(String from, String to) {
+        this.from = from;
+        this.to = to;
+        return this;
+    }
+
+    /**
+     * Nur die ersten Sätze je Datensatz (je Satz Wiederholungen und Gewicht).
+     * Datensätze mit weniger Sätzen bleiben unverändert.
+     */
+    public RecordScan firstSets(int sets) {
+        if (sets < 1) {
+            throw new IllegalArgumentException("Mindestens ein Satz: " + sets);
+        }
+        this.maxValues = sets * 2;
+        return this;
+    }
+
+    // Leerer Bereich (from nach to), dann muss gar nicht gelesen werden
+    boolean isEmpty() {
+        return from != null && to != null && from.compareTo(to) > 0;
+    }
+
+    boolean matches(String date) {
+        return (from == null || date.compareTo(from) >= 0) && (to == null || date.compareTo(to) <= 0);
+    }
+
+    // Anzahl der Werte, die von 'count' behalten werden
+    int keep(int count) {
+        return maxValues == 0 ? count : Math.min(count, maxValues);
+    }
+
+    // Kürzt einen schon gelesenen Datensatz (z.B. aus dem Archiv oder Cache)
+    FitnessApp.Record project(FitnessApp.Record record) {
+        int kept = keep(record.size());
+        if (kept == record.size()) {
+            return record;
+        }
+        int[] values = new int[kept];
+        for (int i = 0; i < kept; i++) values[i] = record.get(i);
+        return new FitnessApp.Record(record.date, values, 0, kept);
+    }
+
+    // Wendet Filter und Projektion auf schon geladene Datensätze an (z.B. aus dem Cache)
+    java.util.stream.Stream<FitnessApp.Record> apply(java.util.List<FitnessApp.Record> records) {
+        if (isEmpty()) {
+            return java.util.stream.Stream.empty();
+        }
+        return records.stream().filter(record -> matches(record.date)).map(this::project);
+    }
+
+    @Override
+    public String toString() {
+        return "RecordScan[" + Objects.toString(from, "") + ".." + Objects.toString(to, "")
+                + (maxValues == 0 ? "" : ", " + maxValues / 2 + " Sätze") + "]";
+    }
+}
@@ -0,0 +1,116 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Speicher für Benutzer, Übungen und Datensätze.
+ *
+ * {@link FitnessApp} (und damit GUI, Server und {@link AsyncFitnessApp}) leitet alle Zugriffe an den
+ * beim Start gewählten Speicher weiter; Messungen ({@link Metrics}) erfolgen dort, also für jeden
+ * Speicher gleich. Gewählt wird über {@code -Dfitness.store=}:
+ * <ul>
+ * <li>{@code text} (Standard): {@link TextRecordStore}, die Textprotokolle unter {@code users/}</li>
+ * <li>{@code mapped}: {@link MappedRecordStore}, wie text, liest ganze Protokolle aber aus gemappten Binärdateien</li>
+ * <li>{@code memory}: {@link MemoryRecordStore}, nur im Speicher, z.B. für Tests und Benchmarks</li>
+ * </ul>
+ * Gelieferte Listen sind nicht veränderbar bzw. gehören dem Aufrufer; Fehler beim Lesen ergeben eine leere Liste.
+ * Wer nur über die Datensätze läuft (Summen, Filter), nimmt besser {@link #streamRecords}.
+ */
+public interface RecordStore {
+
+    /**
+     * Legt einen Benutzer an.
+     * @return false, wenn es ihn schon gibt oder er nicht angelegt werden kann
+     */
+    boolean createUser(String username);
+
+    List<String> listUsers();
+
+    // Ob es den Benutzer in diesem Speicher gibt
+    default boolean hasUser(String username) {
+        return listUsers().contains(username);
+    }
+
+    /**
+     * Legt eine Übung an, der Benutzer wird bei Bedarf mit angelegt.
+     * @return false, wenn es sie schon gibt oder sie nicht angelegt werden kann
+     */
+    boolean createExercise(String username, String exName);
+
+    // Sortiert und nicht veränderbar
+    List<String> listExercises(String username);
+
+    /**
+     * Hängt einen Datensatz an. Jeder Speicher lehnt ab, was der Textspeicher nicht wieder lesen
+     * könnte (siehe {@code FitnessApp.isValidRecord}), damit sich die Speicher nicht unterscheiden.
+     * @return false, wenn der Datensatz ungültig ist oder nicht gespeichert werden kann
+     */
+    boolean addRecord(String username, String exName, String date, List<Integer> repsAndWeights);
+
+    // Alle Datensätze in Protokollreihenfolge
+    List<FitnessApp.Record> getRecords(String username, String exName);
+
+    // Datensätze mit from <= Datum <= to (yyyy-MM-dd, null = offen) in Protokollreihenfolge
+    List<FitnessApp.Record> getRecords(String username, String exName, String from, String to);
+
+    // Neueste zuerst: überspringt die 'skip' neuesten und liefert höchstens 'limit'
+    List<FitnessApp.Record> getRecordPage(String username, String exName, int skip, int limit);
+
+    /**
+     * Alle Datensätze der letzten Trainingseinheit (gleiches Datum wie der neueste Datensatz), neueste zuerst.
+     */
+    default List<FitnessApp.Record> getLastSession(String username, String exName) {
+        List<FitnessApp.Record> records = getRecords(username, exName);
+        List<FitnessApp.Record> session = new ArrayList<>();
+        for (int i = records.size() - 1; i >= 0; i--) {
+            if (!session.isEmpty() && !session.get(0).date.equals(records.get(i).date)) break;
+            session.add(records.get(i));
+        }
+        return session;
+    }
+
+    /**
+     * Datensätze einer Übung als Stream in Protokollreihenfolge, ohne sie vorher alle zu laden.
+     * Datumsbereich und Projektion ({@link RecordScan}) werden möglichst schon beim Lesen angewendet.
+     * Der Stream muss geschlossen werden (try-with-resources). Kann die Übung nicht geöffnet werden,
+     * ist er leer; Lesefehler danach werden als {@link java.io.UncheckedIOException} gemeldet.
+     */
+    default Stream<FitnessApp.Record> streamRecords(String username, String exName, RecordScan scan) {
+        return scan.apply(getRecords(username, exName));
+    }
+
+    /**
+     * Kennzahlen für den Gewichtsvorschlag (braucht nur den ersten Satz je Datensatz).
+     */
+    default ProgressionStats stats(String username, String exName) {
+        try (Stream<FitnessApp.Record> records = streamRecords(username, exName, new RecordScan().firstSets(1))) {
+            return ProgressionStats.of(records::iterator);
+        }
+    }
+
+    /**
+     * Tages- und Wochenwerte (Volumen, bester Satz, e1RM) für Auswertungen.
+     */
+    default Rollups rollups(String username, String exName) {
+        try (Stream<FitnessApp.Record> records = streamRecords(username, exName, new RecordScan())) {
+            return Rollups.of(records::iterator);
+        }
+    }
+
+    /**
+     * Erzeugt den Speicher zum Namen aus {@code fitness.store}.
+     * @throws IllegalArgumentException bei unbekanntem Namen
+     */
+    static RecordStore create(String name) {
+        switch (name) {
+            case "text":
+                return TextRecordStore.getDefault();
+            case "mapped":
+                return new MappedRecordStore();
+            case "memory":
+                return new MemoryRecordStore();
+            default:
+                throw new IllegalArgumentException("Unbekannter Speicher: " + name + " (text, mapped oder memory)");
+        }
+    }
+}
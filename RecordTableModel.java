@@ -0,0 +1,153 @@
+import java.util.*;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Tabellenmodell für die Datensätze einer Übung, neueste zuerst.
+ *
+ * Das Modell kennt nur die Anzahl der Datensätze; die Datensätze selbst werden seitenweise im
+ * Hintergrund nachgeladen, sobald die Tabelle eine Zeile davon anzeigen will. Formatiert wird erst
+ * in {@link #getValueAt(int, int)}, also nur für sichtbare Zeilen. Es werden höchstens
+ * {@value #MAX_PAGES} Seiten gehalten, die am längsten nicht angezeigten fallen heraus.
+ * Schlägt das Laden einer Seite fehl, zeigen ihre Zeilen den Fehler; erneut geladen wird sie erst nach
+ * einer Wartezeit, die sich bei jedem weiteren Fehler verdoppelt, oder beim erneuten Setzen der Übung.
+ * Alle Methoden müssen auf dem Swing-EDT aufgerufen werden.
+ */
+public class RecordTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 16;
+    private static final String[] COLUMNS = { "Datum", "Sätze" };
+    private static final long RETRY_MILLIS = 2000;
+    private static final long MAX_RETRY_MILLIS = 60_000;
+
+    private String username;
+    private String exName;
+    private int rowCount;
+    private int generation; // Erhöht bei jedem Wechsel, verspätete Seiten werden verworfen
+    private final Set<Integer> loading = new HashSet<>();
+    private final Map<Integer, Failure> failed = new HashMap<>();
+    private final LinkedHashMap<Integer, List<FitnessApp.Record>> pages =
+            new LinkedHashMap<Integer, List<FitnessApp.Record>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, List<FitnessApp.Record>> eldest) {
+                    return size() > MAX_PAGES;
+                }
+            };
+
+    /**
+     * Fehlgeschlagenes Laden einer Seite und frühester nächster Versuch.
+     */
+    private static final class Failure {
+        final String message;
+        final long delayMillis;
+        final long retryAt;
+
+        Failure(String message, long delayMillis) {
+            this.message = message;
+            this.delayMillis = delayMillis;
+            this.retryAt = System.currentTimeMillis() + delayMillis;
+        }
+    }
+
+    /**
+     * Zeigt die Datensätze einer Übung an.
+     * @param username Benutzername
+     * @param exName   Name der Übung
+     * @param rowCount Anzahl der Datensätze der Übung
+     */
+    public void setExercise(String username, String exName, int rowCount) {
+        setExercise(username, exName, rowCount, null);
+    }
+
+    /**
+     * Wie {@link #setExercise(String, String, int)}, die erste Seite ist aber schon bekannt
+     * (z.B. aus der {@link SessionSnapshot}) und wird nicht noch einmal geladen.
+     * @param firstPage neueste Datensätze, neueste zuerst; null oder unvollständig = nachladen
+     */
+    public void setExercise(String username, String exName, int rowCount, List<FitnessApp.Record> firstPage) {
+        this.username = username;
+        this.exName = exName;
+        this.rowCount = rowCount;
+        generation++;
+        pages.clear();
+        loading.clear();
+        failed.clear();
+        if (firstPage != null && firstPage.size() == Math.min(rowCount, PAGE_SIZE)) {
+            pages.put(0, firstPage);
+        }
+        fireTableDataChanged();
+    }
+
+    // Angezeigte Übung oder null
+    public String getExercise() {
+        return exName;
+    }
+
+    public void clear() {
+        setExercise(null, null, 0);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int page = row / PAGE_SIZE;
+        List<FitnessApp.Record> records = pages.get(page);
+        if (records == null) {
+            Failure failure = failed.get(page);
+            if (failure != null && System.currentTimeMillis() < failure.retryAt) {
+                return column == 0 ? "Fehler" : failure.message;
+            }
+            loadPage(page);
+            return column == 0 ? "..." : "";
+        }
+        int index = row % PAGE_SIZE;
+        if (index >= records.size()) {
+            return ""; // Protokoll wurde zwischenzeitlich kürzer
+        }
+        FitnessApp.Record record = records.get(index);
+        return column == 0 ? record.date : record.setsToString();
+    }
+
+    private void loadPage(int page) {
+        if (exName == null || !loading.add(page)) {
+            return;
+        }
+        int requested = generation;
+        AsyncFitnessApp.onEdt(AsyncFitnessApp.getRecordPage(username, exName, page * PAGE_SIZE, PAGE_SIZE), (records, error) -> {
+            if (requested != generation) {
+                return;
+            }
+            loading.remove(page);
+            if (error != null) {
+                System.err.println("Error loading records: " + error.getMessage());
+                Failure previous = failed.get(page);
+                long delay = previous == null ? RETRY_MILLIS : Math.min(previous.delayMillis * 2, MAX_RETRY_MILLIS);
+                failed.put(page, new Failure("Fehler beim Laden: " + error.getMessage(), delay));
+            } else {
+                failed.remove(page);
+                pages.put(page, records);
+            }
+            int first = page * PAGE_SIZE;
+            int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+            if (first <= last) {
+                fireTableRowsUpdated(first, last);
+            }
+        });
+    }
+}
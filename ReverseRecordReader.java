@@ -0,0 +1,117 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Liest eine Protokolldatei vom Ende her und liefert die Datensätze neueste zuerst.
+ *
+ * Die Datei wird blockweise rückwärts über einen {@link FileChannel} gelesen; es werden nur so viele
+ * Blöcke gelesen, wie für die angeforderten Datensätze nötig sind. Der Aufwand hängt damit von der
+ * Anzahl der gelesenen Datensätze ab und nicht von der Größe der Datei.
+ * Zeilen werden nach denselben Regeln wie bei {@link RecordParser} übernommen oder übersprungen.
+ */
+public class ReverseRecordReader implements Closeable {
+
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final FileChannel channel;
+    private final RecordParser parser = new RecordParser();
+
+    // buf[0, lineEnd) enthält die noch nicht gelieferten Bytes ab Dateiposition bufFilePos
+    private byte[] buf = new byte[CHUNK_SIZE];
+    private long bufFilePos;
+    private int lineEnd;
+
+    /**
+     * @param file Protokolldatei
+     * @throws IOException wenn die Datei nicht geöffnet werden kann
+     */
+    public ReverseRecordReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        bufFilePos = channel.size();
+        lineEnd = 0;
+    }
+
+    /**
+     * Liefert den nächstälteren Datensatz.
+     * @return Datensatz oder null, wenn der Anfang der Datei erreicht ist
+     * @throws IOException wenn die Datei nicht gelesen werden kann
+     */
+    public FitnessApp.Record next() throws IOException {
+        while (true) {
+            int i = lineEnd - 1;
+            while (i >= 0 && buf[i] != '\n' && buf[i] != '\r') i--;
+            if (i < 0 && bufFilePos > 0) {
+                readPreviousChunk();
+                continue;
+            }
+            int start = i + 1;
+            int end = lineEnd;
+            lineEnd = Math.max(i, 0);
+            if (start < end) {
+                FitnessApp.Record record = parser.parseSingleLine(buf, start, end);
+                if (record != null) {
+                    return record;
+                }
+            }
+            if (i < 0) {
+                return null; // Anfang der Datei, letzte (erste) Zeile verarbeitet
+            }
+        }
+    }
+
+    /**
+     * Liest höchstens {@code n} weitere Datensätze, neueste zuerst.
+     */
+    public List<FitnessApp.Record> next(int n) throws IOException {
+        List<FitnessApp.Record> records = new ArrayList<>(Math.min(n, 1024));
+        FitnessApp.Record record;
+        while (records.size() < n && (record = next()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * Überspringt bis zu {@code n} Datensätze.
+     * @return Anzahl der tatsächlich übersprungenen Datensätze
+     */
+    public int skip(int n) throws IOException {
+        int skipped = 0;
+        while (skipped < n && next() != null) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    // Stellt den vorherigen Block der Datei vor die noch offenen Bytes
+    private void readPreviousChunk() throws IOException {
+        int chunk = (int) Math.min(CHUNK_SIZE, bufFilePos);
+        if (lineEnd + chunk > buf.length) {
+            byte[] bigger = new byte[Math.max(buf.length * 2, lineEnd + chunk)];
+            System.arraycopy(buf, 0, bigger, chunk, lineEnd);
+            buf = bigger;
+        } else {
+            System.arraycopy(buf, 0, buf, chunk, lineEnd);
+        }
+        bufFilePos -= chunk;
+        ByteBuffer target = ByteBuffer.wrap(buf, 0, chunk);
+        long pos = bufFilePos;
+        while (target.hasRemaining()) {
+            int read = channel.read(target, pos);
+            if (read < 0) {
+                throw new EOFException("Datei wurde während des Lesens gekürzt");
+            }
+            pos += read;
+        }
+        Metrics.BYTES_READ.add(chunk);
+        lineEnd += chunk;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
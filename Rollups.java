@@ -0,0 +1,490 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.IsoFields;
+import java.util.*;
+
+/**
+ * Verdichtete Kennzahlen je Tag einer Übung: Anzahl Datensätze, Sätze, Wiederholungen, Volumen
+ * (Wiederholungen × Gewicht), bester Satz (höchstes Gewicht, bei Gleichstand mehr Wiederholungen)
+ * und geschätztes Einer-Maximum (e1RM nach Epley: Gewicht × (1 + Wiederholungen / 30)).
+ * Wochen (ISO) und Gesamtwerte werden beim Abfragen aus den Tagen zusammengefasst.
+ *
+ * Die Datei {@code <Übung>.rollup} liegt neben dem Protokoll: ein Kopf mit dem Stand des Protokolls
+ * (Länge, Änderungszeit) und ein Eintrag fester Größe je Tag, nach Datum sortiert. Dashboards lesen
+ * damit einige Kilobyte statt des ganzen Protokolls. {@code addRecord} schreibt den Tag des neuen
+ * Datensatzes an Ort und Stelle fort (neue Tage werden angehängt, nachgetragene Tage mitten im
+ * Verlauf schreiben die Datei neu). Während des Schreibens ist der Stand im Kopf ungültig, ein
+ * Abbruch führt also zum Neuaufbau statt zu doppelt gezählten Datensätzen.
+ * Passt der Stand nicht zum Protokoll, wird wie bei {@link ProgressionStats} nachgelesen oder neu aufgebaut.
+ * Fortschreiben und Neuaufbau sperren nur die Datei der jeweiligen Übung ({@link FileLocks#update}).
+ * Datensätze ohne gültiges Datum (yyyy-MM-dd) werden nicht erfasst.
+ */
+public final class Rollups {
+
+    public static final String EXTENSION = ".rollup";
+
+    private static final int MAGIC = 0x46545255; // "FTRU"
+    private static final int VERSION = 1;
+    // MAGIC, VERSION, logLength, logModified, dayCount
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+    // epochDay, records, sets, reps, volume, bestWeight, bestWeightReps, bestOneRepMax
+    private static final int ENTRY_SIZE = 4 + 4 + 4 + 4 + 8 + 4 + 4 + 8;
+    private static final int LENGTH_OFFSET = 8;
+
+    // Änderungszeit unbekannt (Zeile beim Fortschreiben noch nicht geschrieben) bzw. Stand ungültig
+    private static final long UNKNOWN_MODIFIED = 0;
+    private static final long INVALID_LENGTH = -1;
+
+    private static final long MAX_CATCH_UP_BYTES = 1024 * 1024;
+
+    private final List<Day> days;
+    private long logLength;
+    private long logModified;
+    // Anzahl der Tage in der Datei beim Lesen
+    private final int storedDays;
+
+    private Rollups(List<Day> days, long logLength, long logModified) {
+        this.days = days;
+        this.storedDays = days.size();
+        this.logLength = logLength;
+        this.logModified = logModified;
+    }
+
+    /**
+     * Kennzahlen eines Tages, einer Woche oder des ganzen Verlaufs.
+     */
+    public static final class Bucket {
+        // yyyy-MM-dd, yyyy-'W'ww oder "gesamt"
+        public final String key;
+        public final int records;
+        public final int sets;
+        public final long reps;
+        public final long volume;
+        // Bester Satz; nur gültig, wenn sets > 0
+        public final int bestWeight;
+        public final int bestWeightReps;
+        public final double estimatedOneRepMax;
+
+        private Bucket(String key, Day day) {
+            this.key = key;
+            this.records = day.records;
+            this.sets = day.sets;
+            this.reps = day.reps;
+            this.volume = day.volume;
+            this.bestWeight = day.bestWeight;
+            this.bestWeightReps = day.bestWeightReps;
+            this.estimatedOneRepMax = day.bestOneRepMax;
+        }
+
+        @Override
+        public String toString() {
+            return key + " | Sätze: " + sets + ", Volumen: " + volume + "kg"
+                    + (sets > 0 ? ", bester Satz: " + bestWeightReps + " x " + bestWeight + "kg"
+                    + String.format(Locale.ROOT, ", e1RM: %.1fkg", estimatedOneRepMax) : "");
+        }
+    }
+
+    /**
+     * Tage mit {@code from <= datum <= to} (yyyy-MM-dd, null = offen), aufsteigend.
+     */
+    public List<Bucket> daily(String from, String to) {
+        List<Bucket> result = new ArrayList<>();
+        for (Day day : range(from, to)) {
+            result.add(new Bucket(LocalDate.ofEpochDay(day.epochDay).toString(), day));
+        }
+        return result;
+    }
+
+    /**
+     * ISO-Wochen aus den Tagen mit {@code from <= datum <= to}, aufsteigend.
+     */
+    public List<Bucket> weekly(String from, String to) {
+        List<Bucket> result = new ArrayList<>();
+        String key = null;
+        Day week = null;
+        for (Day day : range(from, to)) {
+            LocalDate date = LocalDate.ofEpochDay(day.epochDay);
+            String dayKey = String.format("%d-W%02d", date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+            if (!dayKey.equals(key)) {
+                if (week != null) result.add(new Bucket(key, week));
+                key = dayKey;
+                week = new Day(day.epochDay);
+            }
+            week.merge(day);
+        }
+        if (week != null) result.add(new Bucket(key, week));
+        return result;
+    }
+
+    /**
+     * Gesamter Verlauf, z.B. bester Satz und höchstes e1RM aller Zeiten.
+     */
+    public Bucket total() {
+        Day total = new Day(0);
+        for (Day day : days) {
+            total.merge(day);
+        }
+        return new Bucket("gesamt", total);
+    }
+
+    public int dayCount() {
+        return days.size();
+    }
+
+    /**
+     * Geschätztes Einer-Maximum eines Satzes nach Epley; bei einer Wiederholung das Gewicht selbst.
+     */
+    public static double estimateOneRepMax(int weight, int reps) {
+        if (reps <= 0 || weight <= 0) return 0;
+        return reps == 1 ? weight : weight * (1 + reps / 30.0);
+    }
+
+    /**
+     * Berechnet die Kennzahlen aus den Datensätzen, ohne sie zu speichern (z.B. für andere Speicher).
+     */
+    public static Rollups of(Iterable<FitnessApp.Record> records) {
+        Rollups rollups = new Rollups(new ArrayList<>(), 0, UNKNOWN_MODIFIED);
+        rollups.addAll(records);
+        return rollups;
+    }
+
+    /**
+     * Liefert die Kennzahlen einer Übung; das Protokoll wird nur gelesen, wenn sie veraltet sind.
+     */
+    public static Rollups load(String username, String exName) {
+        FileLocks.Hold lock = FileLocks.update(rollupFile(username, exName));
+        try {
+            File exFile = TextRecordStore.logFile(username, exName);
+            RecordAppender.getDefault().flush(exFile);
+            File file = rollupFile(username, exName);
+            long length = exFile.length();
+            long modified = exFile.lastModified();
+            Rollups rollups = read(file);
+            if (rollups != null && rollups.logLength == length) {
+                if (rollups.logModified == modified) {
+                    return rollups;
+                }
+                if (rollups.logModified == UNKNOWN_MODIFIED) {
+                    rollups.logModified = modified;
+                    rollups.write(file);
+                    return rollups;
+                }
+            }
+            if (rollups != null && rollups.logLength >= 0 && rollups.logLength < length && rollups.logModified != UNKNOWN_MODIFIED
+                    && rollups.catchUp(exFile, length)) {
+                // Z.B. von einem anderen Prozess angehängt: nur die Lücke nachgelesen
+                rollups.logModified = modified;
+                rollups.write(file);
+                return rollups;
+            }
+            return rebuild(username, exName);
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Baut die Kennzahlen aus allen Datensätzen (inklusive Archiv) neu auf und speichert sie.
+     */
+    public static Rollups rebuild(String username, String exName) {
+        FileLocks.Hold lock = FileLocks.update(rollupFile(username, exName));
+        try {
+            File exFile = TextRecordStore.logFile(username, exName);
+            RecordAppender.getDefault().flush(exFile);
+            Rollups rollups;
+            // Stand vom Cursor, damit er genau die gelesenen Datensätze beschreibt (wie bei ProgressionStats)
+            try (RecordCursor cursor = RecordCursor.open(exFile, new RecordScan())) {
+                rollups = of(() -> cursor);
+                rollups.logLength = cursor.length();
+                rollups.logModified = cursor.lastModified();
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("Error reading records: " + e.getMessage());
+                return of(List.of()); // Nicht speichern, beim nächsten Zugriff wird es erneut versucht
+            }
+            rollups.write(rollupFile(username, exName));
+            return rollups;
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Schreibt den Tag des neuen Datensatzes nach einem erfolgreichen Anhängen fort.
+     * @param lengthBefore Größe des Protokolls vor dem Anhängen (inklusive noch gesammelter Zeilen)
+     * @param lengthAfter  Größe des Protokolls nach dem Anhängen
+     */
+    public static void recordAppended(String username, String exName, String date,
+                                      List<Integer> repsAndWeights, long lengthBefore, long lengthAfter) {
+        FileLocks.Hold lock = FileLocks.update(rollupFile(username, exName));
+        try {
+            File exFile = TextRecordStore.logFile(username, exName);
+            File file = rollupFile(username, exName);
+            long modified = RecordAppender.getDefault().hasPending(exFile) ? UNKNOWN_MODIFIED : exFile.lastModified();
+            Rollups rollups = read(file);
+            // Hat ein anderer Schreiber angehängt, die Lücke nachlesen und danach die ganze Datei schreiben
+            boolean caughtUp = false;
+            if (rollups != null && rollups.logLength >= 0 && rollups.logLength < lengthBefore && modified != UNKNOWN_MODIFIED) {
+                caughtUp = rollups.catchUp(exFile, lengthBefore);
+            }
+            if (rollups == null || rollups.logLength != lengthBefore) {
+                rebuild(username, exName);
+                return;
+            }
+            rollups.logLength = lengthAfter;
+            rollups.logModified = modified;
+            Integer epochDay = epochDay(date);
+            if (epochDay == null || repsAndWeights.size() < 2) {
+                // Wird nicht erfasst, nur der Stand rückt weiter
+                if (caughtUp) rollups.write(file);
+                else rollups.writeHeader(file);
+                return;
+            }
+            int index = rollups.find(epochDay);
+            if (index < 0) {
+                index = -index - 1;
+                rollups.days.add(index, new Day(epochDay));
+            }
+            rollups.days.get(index).add(new FitnessApp.Record(date, repsAndWeights));
+            // Neue Tage mitten im Verlauf verschieben alle folgenden Einträge
+            if (caughtUp || rollups.days.size() > rollups.storedDays && index < rollups.days.size() - 1) {
+                rollups.write(file);
+            } else {
+                rollups.writeInPlace(file, index);
+            }
+        } finally {
+            lock.release();
+        }
+    }
+
+    // Liest die Zeilen zwischen dem gespeicherten Stand und 'length' nach, false wenn das nicht geht
+    private boolean catchUp(File exFile, long length) {
+        List<FitnessApp.Record> appended = TextRecordStore.readAppended(exFile, logLength, length, MAX_CATCH_UP_BYTES);
+        if (appended == null) {
+            return false;
+        }
+        addAll(appended);
+        logLength = length;
+        logModified = exFile.lastModified();
+        return true;
+    }
+
+    private void addAll(Iterable<FitnessApp.Record> records) {
+        int last = -1;
+        for (FitnessApp.Record record : records) {
+            if (record.size() < 2) continue;
+            Integer epochDay = epochDay(record.date);
+            if (epochDay == null) continue;
+            // Meist gehören aufeinanderfolgende Datensätze zum selben Tag
+            if (last < 0 || days.get(last).epochDay != epochDay) {
+                last = find(epochDay);
+                if (last < 0) {
+                    last = -last - 1;
+                    days.add(last, new Day(epochDay));
+                }
+            }
+            days.get(last).add(record);
+        }
+    }
+
+    private List<Day> range(String from, String to) {
+        int start = 0;
+        int end = days.size();
+        if (from != null) {
+            Integer day = epochDay(from);
+            if (day == null) throw new IllegalArgumentException("Ungültiges Datum: " + from);
+            int pos = find(day);
+            start = pos >= 0 ? pos : -pos - 1;
+        }
+        if (to != null) {
+            Integer day = epochDay(to);
+            if (day == null) throw new IllegalArgumentException("Ungültiges Datum: " + to);
+            int pos = find(day);
+            end = pos >= 0 ? pos + 1 : -pos - 1;
+        }
+        return start < end ? days.subList(start, end) : Collections.emptyList();
+    }
+
+    // Binäre Suche nach dem Tag, wie Collections.binarySearch
+    private int find(int epochDay) {
+        int low = 0;
+        int high = days.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int day = days.get(mid).epochDay;
+            if (day < epochDay) low = mid + 1;
+            else if (day > epochDay) high = mid - 1;
+            else return mid;
+        }
+        return -(low + 1);
+    }
+
+    private static Integer epochDay(String date) {
+        try {
+            return (int) LocalDate.parse(date).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static File rollupFile(String username, String exName) {
+        return new File(FitnessApp.BASE_DIR + File.separator + username, exName + EXTENSION);
+    }
+
+    private static Rollups read(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        FileLocks.Hold lock = FileLocks.read(file);
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long logLength = buffer.getLong();
+            long logModified = buffer.getLong();
+            int dayCount = buffer.getInt();
+            if (dayCount < 0 || buffer.remaining() != (long) dayCount * ENTRY_SIZE) {
+                return null;
+            }
+            List<Day> days = new ArrayList<>(dayCount + 16);
+            for (int i = 0; i < dayCount; i++) {
+                Day day = new Day(buffer.getInt());
+                day.records = buffer.getInt();
+                day.sets = buffer.getInt();
+                day.reps = buffer.getInt();
+                day.volume = buffer.getLong();
+                day.bestWeight = buffer.getInt();
+                day.bestWeightReps = buffer.getInt();
+                day.bestOneRepMax = buffer.getDouble();
+                days.add(day);
+            }
+            return new Rollups(days, logLength, logModified);
+        } catch (IOException e) {
+            System.err.println("Error reading rollups: " + e.getMessage());
+            return null;
+        } finally {
+            lock.release();
+        }
+    }
+
+    // Ganze Datei neu schreiben (temporäre Datei, dann ersetzen)
+    private void write(File file) {
+        if (!file.getParentFile().exists()) {
+            return; // Kein Benutzerverzeichnis, nichts zu speichern
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + days.size() * ENTRY_SIZE);
+        putHeader(buffer, logLength);
+        for (Day day : days) {
+            putDay(buffer, day);
+        }
+        Path target = file.toPath();
+        try {
+            // Eigener Name je Schreibvorgang, falls mehrere Prozesse gleichzeitig schreiben
+            Path tmp = Files.createTempFile(target.getParent(), file.getName(), ".tmp");
+            Files.write(tmp, buffer.array());
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Error writing rollups: " + e.getMessage());
+        }
+    }
+
+    // Nur einen Tag schreiben: Stand ungültig machen, Tag schreiben, neuen Stand schreiben
+    private void writeInPlace(File file, int index) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLocks.Hold lock = FileLocks.write(file);
+            try {
+                writeFully(channel, ByteBuffer.allocate(8).putLong(0, INVALID_LENGTH), LENGTH_OFFSET);
+                ByteBuffer entry = ByteBuffer.allocate(ENTRY_SIZE);
+                putDay(entry, days.get(index));
+                writeFully(channel, entry.flip(), HEADER_SIZE + (long) index * ENTRY_SIZE);
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                putHeader(header, logLength);
+                writeFully(channel, header.flip(), 0);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing rollups: " + e.getMessage());
+        }
+    }
+
+    private void writeHeader(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            FileLocks.Hold lock = FileLocks.write(file);
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                putHeader(header, logLength);
+                writeFully(channel, header.flip(), 0);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing rollups: " + e.getMessage());
+        }
+    }
+
+    private void putHeader(ByteBuffer buffer, long length) {
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(length).putLong(logModified).putInt(days.size());
+    }
+
+    private static void putDay(ByteBuffer buffer, Day day) {
+        buffer.putInt(day.epochDay).putInt(day.records).putInt(day.sets).putInt((int) day.reps)
+                .putLong(day.volume).putInt(day.bestWeight).putInt(day.bestWeightReps).putDouble(day.bestOneRepMax);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Laufende Werte eines Tages (bzw. zusammengefasster Tage).
+     */
+    private static class Day {
+        final int epochDay;
+        int records;
+        int sets;
+        long reps;
+        long volume;
+        int bestWeight = Integer.MIN_VALUE;
+        int bestWeightReps;
+        double bestOneRepMax;
+
+        Day(int epochDay) {
+            this.epochDay = epochDay;
+        }
+
+        void add(FitnessApp.Record record) {
+            records++;
+            for (int i = 0; i + 1 < record.size(); i += 2) {
+                int setReps = record.get(i);
+                int weight = record.get(i + 1);
+                sets++;
+                reps += setReps;
+                volume += (long) setReps * weight;
+                best(weight, setReps, estimateOneRepMax(weight, setReps));
+            }
+        }
+
+        void merge(Day day) {
+            records += day.records;
+            sets += day.sets;
+            reps += day.reps;
+            volume += day.volume;
+            if (day.sets > 0) best(day.bestWeight, day.bestWeightReps, day.bestOneRepMax);
+        }
+
+        private void best(int weight, int setReps, double oneRepMax) {
+            if (weight > bestWeight || (weight == bestWeight && setReps > bestWeightReps)) {
+                bestWeight = weight;
+                bestWeightReps = setReps;
+            }
+            bestOneRepMax = Math.max(bestOneRepMax, oneRepMax);
+        }
+    }
+}
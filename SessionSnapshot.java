@@ -0,0 +1,223 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Momentaufnahme dessen, was das Hauptfenster nach dem Login zeigt: die Übungen, die zuletzt
+ * gewählte Übung und je Übung die Anzahl der Datensätze, die neuesten Datensätze (eine Tabellenseite)
+ * und der zuletzt berechnete Gewichtsvorschlag.
+ *
+ * Die Datei {@code users/<Benutzer>/.session} wird beim Schließen und nach jeder Änderung (z.B.
+ * neuer Datensatz) geschrieben. Beim nächsten Login zeigt {@link FitnessAppGUI} sofort diesen Stand
+ * und prüft die Protokolle erst danach im Hintergrund; nur Abweichungen werden neu angezeigt.
+ * Die Datei ist nur ein Zwischenspeicher: fehlt sie oder ist sie beschädigt, wird normal geladen.
+ * Alle Methoden sind synchronisiert (EDT und Hintergrund-Threads).
+ */
+public final class SessionSnapshot {
+
+    public static final String FILE_NAME = ".session";
+    // Neueste Datensätze je Übung, eine Seite der Tabelle
+    public static final int MAX_RECORDS = RecordTableModel.PAGE_SIZE;
+
+    private static final int MAGIC = 0x46545353; // "FTSS"
+    private static final int VERSION = 1;
+
+    private final String username;
+    private List<String> exercises = Collections.emptyList();
+    private String selected;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean dirty;
+
+    private SessionSnapshot(String username) {
+        this.username = username;
+    }
+
+    /**
+     * Gespeicherter Stand einer Übung.
+     */
+    public static final class Entry {
+        public final int count;
+        // Neueste zuerst, höchstens MAX_RECORDS; nicht veränderbar
+        public final List<FitnessApp.Record> newest;
+        // Zuletzt berechneter Vorschlag oder NaN
+        public final double suggestion;
+
+        private Entry(int count, List<FitnessApp.Record> newest, double suggestion) {
+            this.count = count;
+            this.newest = newest;
+            this.suggestion = suggestion;
+        }
+
+        public boolean hasSuggestion() {
+            return !Double.isNaN(suggestion);
+        }
+    }
+
+    /**
+     * Liest die Momentaufnahme eines Benutzers; ohne (lesbare) Datei ist sie leer.
+     */
+    public static SessionSnapshot load(String username) {
+        SessionSnapshot snapshot = new SessionSnapshot(username);
+        File file = sessionFile(username);
+        if (!file.exists()) {
+            return snapshot;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return snapshot;
+            }
+            String selected = in.readUTF();
+            int exerciseCount = in.readInt();
+            List<String> exercises = new ArrayList<>(exerciseCount);
+            Map<String, Entry> entries = new HashMap<>();
+            for (int i = 0; i < exerciseCount; i++) {
+                String exName = in.readUTF();
+                exercises.add(exName);
+                if (!in.readBoolean()) continue;
+                int count = in.readInt();
+                double suggestion = in.readDouble();
+                int recordCount = in.readInt();
+                List<FitnessApp.Record> newest = new ArrayList<>(recordCount);
+                for (int r = 0; r < recordCount; r++) {
+                    String date = in.readUTF();
+                    int[] values = new int[in.readInt()];
+                    for (int v = 0; v < values.length; v++) values[v] = in.readInt();
+                    newest.add(new FitnessApp.Record(date, values, 0, values.length));
+                }
+                entries.put(exName, new Entry(count, Collections.unmodifiableList(newest), suggestion));
+            }
+            snapshot.exercises = Collections.unmodifiableList(exercises);
+            snapshot.selected = selected.isEmpty() ? null : selected;
+            snapshot.entries.putAll(entries);
+        } catch (IOException | RuntimeException e) {
+            // Beschädigt oder alte Version: normal laden, beim nächsten Speichern wird sie ersetzt
+            System.err.println("Sitzung von " + username + " nicht lesbar: " + e.getMessage());
+        }
+        return snapshot;
+    }
+
+    public synchronized boolean isEmpty() {
+        return exercises.isEmpty();
+    }
+
+    public synchronized List<String> getExercises() {
+        return exercises;
+    }
+
+    public synchronized String getSelected() {
+        return selected;
+    }
+
+    // Stand einer Übung oder null
+    public synchronized Entry get(String exName) {
+        return entries.get(exName);
+    }
+
+    public synchronized void setExercises(List<String> exercises) {
+        if (!exercises.equals(this.exercises)) {
+            this.exercises = Collections.unmodifiableList(new ArrayList<>(exercises));
+            entries.keySet().retainAll(exercises);
+            dirty = true;
+        }
+    }
+
+    public synchronized void setSelected(String exName) {
+        if (!Objects.equals(exName, selected)) {
+            selected = exName;
+            dirty = true;
+        }
+    }
+
+    /**
+     * Übernimmt den geprüften Stand einer Übung.
+     * Ändert sich die Anzahl der Datensätze, ist ein gespeicherter Vorschlag veraltet und fällt weg.
+     * @return true, wenn sich gegenüber der Momentaufnahme etwas geändert hat
+     */
+    public synchronized boolean update(String exName, int count, List<FitnessApp.Record> newest) {
+        Entry old = entries.get(exName);
+        if (old != null && old.count == count && sameRecords(old.newest, newest)) {
+            return false;
+        }
+        List<FitnessApp.Record> kept = new ArrayList<>(newest.subList(0, Math.min(newest.size(), MAX_RECORDS)));
+        double suggestion = old != null && old.count == count ? old.suggestion : Double.NaN;
+        entries.put(exName, new Entry(count, Collections.unmodifiableList(kept), suggestion));
+        dirty = true;
+        return true;
+    }
+
+    public synchronized void setSuggestion(String exName, double suggestion) {
+        Entry old = entries.get(exName);
+        if (old != null && Double.compare(old.suggestion, suggestion) != 0) {
+            entries.put(exName, new Entry(old.count, old.newest, suggestion));
+            dirty = true;
+        }
+    }
+
+    /**
+     * Schreibt die Momentaufnahme, falls sie sich seit dem Laden bzw. letzten Speichern geändert hat.
+     * @return false, wenn das Schreiben fehlgeschlagen ist
+     */
+    public synchronized boolean save() {
+        if (!dirty) {
+            return true;
+        }
+        File file = sessionFile(username);
+        if (!file.getParentFile().exists()) {
+            return false;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(selected == null ? "" : selected);
+            out.writeInt(exercises.size());
+            for (String exName : exercises) {
+                out.writeUTF(exName);
+                Entry entry = entries.get(exName);
+                out.writeBoolean(entry != null);
+                if (entry == null) continue;
+                out.writeInt(entry.count);
+                out.writeDouble(entry.suggestion);
+                out.writeInt(entry.newest.size());
+                for (FitnessApp.Record record : entry.newest) {
+                    out.writeUTF(record.date);
+                    out.writeInt(record.size());
+                    for (int i = 0; i < record.size(); i++) out.writeInt(record.get(i));
+                }
+            }
+        } catch (IOException e) {
+            return false; // Nicht bei einem ByteArrayOutputStream
+        }
+        Path target = file.toPath();
+        try {
+            Path tmp = Files.createTempFile(target.getParent(), FILE_NAME, ".tmp");
+            Files.write(tmp, bytes.toByteArray());
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error writing session: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean sameRecords(List<FitnessApp.Record> a, List<FitnessApp.Record> b) {
+        int size = Math.min(b.size(), MAX_RECORDS);
+        if (a.size() != size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            FitnessApp.Record x = a.get(i);
+            FitnessApp.Record y = b.get(i);
+            if (!x.date.equals(y.date) || x.size() != y.size()) return false;
+            for (int v = 0; v < x.size(); v++) {
+                if (x.get(v) != y.get(v)) return false;
+            }
+        }
+        return true;
+    }
+
+    private static File sessionFile(String username) {
+        return new File(FitnessApp.BASE_DIR + File.separator + username, FILE_NAME);
+    }
+}
@@ -0,0 +1,298 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Speicher auf Basis der Textprotokolle {@code users/<Benutzer>/<Übung>.txt} (eine Zeile je Datensatz).
+ *
+ * Geschrieben wird über den {@link RecordAppender}, gelesen über den {@link RecordCache}, den
+ * {@link DateIndex} bzw. vom Dateiende her ({@link ReverseRecordReader}). Archivierte Datensätze
+ * ({@link Archive}) stehen jeweils vor denen aus dem Protokoll. Laufende Kennzahlen liegen in
+ * {@link ProgressionStats}, Tages- und Wochenwerte in {@link Rollups}.
+ */
+public class TextRecordStore implements RecordStore {
+
+    private static final TextRecordStore DEFAULT = new TextRecordStore();
+
+    TextRecordStore() {
+        File baseDir = new File(FitnessApp.BASE_DIR);
+        if (!baseDir.exists()) {
+            baseDir.mkdirs();
+        }
+    }
+
+    /**
+     * Gemeinsamer Speicher, auch für Programmteile, die direkt mit den Protokollen arbeiten.
+     */
+    public static TextRecordStore getDefault() {
+        return DEFAULT;
+    }
+
+    @Override
+    public boolean createUser(String username) {
+        File userDir = new File(FitnessApp.BASE_DIR, username);
+        return !userDir.exists() && userDir.mkdirs();
+    }
+
+    @Override
+    public boolean hasUser(String username) {
+        return FitnessApp.isValidName(username) && new File(FitnessApp.BASE_DIR, username).isDirectory();
+    }
+
+    @Override
+    public List<String> listUsers() {
+        String[] users = new File(FitnessApp.BASE_DIR).list((dir, name) -> new File(dir, name).isDirectory());
+        if (users == null) return new ArrayList<>();
+        Arrays.sort(users);
+        return Arrays.asList(users);
+    }
+
+    @Override
+    public boolean createExercise(String username, String exName) {
+        File userDir = new File(FitnessApp.BASE_DIR, username);
+        if (!userDir.exists()) {
+            userDir.mkdirs();
+        }
+        File exFile = new File(userDir, exName + ".txt");
+        if (exFile.exists()) {
+            return false;
+        }
+        try {
+            boolean created = exFile.createNewFile();
+            if (created) {
+                ExerciseCatalog.added(username, exName);
+            }
+            return created;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Aus dem ExerciseCatalog, ohne das Verzeichnis jedes Mal zu lesen
+    @Override
+    public List<String> listExercises(String username) {
+        return ExerciseCatalog.list(username);
+    }
+
+    // Über den offen gehaltenen Appender; Cache, Kennzahlen und Datumsindex werden fortgeschrieben
+    @Override
+    public boolean addRecord(String username, String exName, String date, List<Integer> repsAndWeights) {
+        if (!FitnessApp.isValidRecord(date, repsAndWeights)) {
+            // Sonst landen z.B. Zeilenumbrüche im Datum als zusätzliche Datensätze im Protokoll
+            System.err.println("Ungültiger Datensatz für " + username + "/" + exName + ": " + date + " " + repsAndWeights);
+            return false;
+        }
+        File exFile = logFile(username, exName);
+        RecordAppender appender = RecordAppender.getDefault();
+        StringBuilder sb = new StringBuilder();
+        sb.append(date);
+        for (int val : repsAndWeights) sb.append(",").append(val);
+        RecordAppender.Position position = appender.append(exFile, sb.toString());
+        FitnessApp.getRecordCache().invalidate(username, exName);
+        if (position == null) {
+            return false;
+        }
+        ProgressionStats.recordAppended(username, exName, date, repsAndWeights, position.start, position.end);
+        Rollups.recordAppended(username, exName, date, repsAndWeights, position.start, position.end);
+        DateIndex.recordAppended(exFile, date, position.start, position.end);
+        return true;
+    }
+
+    // Über den Cache, die Liste ist nicht veränderbar
+    @Override
+    public List<FitnessApp.Record> getRecords(String username, String exName) {
+        File exFile = logFile(username, exName);
+        RecordAppender.getDefault().flush(exFile); // Noch gesammelte Zeilen zuerst schreiben
+        return FitnessApp.getRecordCache().get(username, exName, exFile, () -> readRecords(exFile));
+    }
+
+    // Springt über den Datumsindex (siehe DateIndex) direkt zum ersten passenden Datensatz
+    @Override
+    public List<FitnessApp.Record> getRecords(String username, String exName, String from, String to) {
+        File exFile = logFile(username, exName);
+        if (!exFile.exists() || (from != null && to != null && from.compareTo(to) > 0)) {
+            return new ArrayList<>();
+        }
+        RecordAppender.getDefault().flush(exFile);
+        FileLocks.Hold lock = FileLocks.read(exFile);
+        try {
+            return concat(Archive.readRange(exFile, from, to), DateIndex.readRange(exFile, from, to));
+        } catch (IOException e) {
+            System.err.println("Error reading records: " + e.getMessage());
+            Metrics.Op.GET_RECORD_RANGE.get().failed();
+            return new ArrayList<>();
+        } finally {
+            lock.release();
+        }
+    }
+
+    // Liegt die Übung nicht im Cache, wird die Datei vom Ende her gelesen (Aufwand ~ skip + limit)
+    @Override
+    public List<FitnessApp.Record> getRecordPage(String username, String exName, int skip, int limit) {
+        File exFile = logFile(username, exName);
+        RecordAppender.getDefault().flush(exFile);
+        List<FitnessApp.Record> records = FitnessApp.getRecordCache().peek(username, exName, exFile);
+        if (records == null) {
+            return readNewestFirst(exFile, skip, limit);
+        }
+        int end = Math.max(0, records.size() - skip);
+        int start = Math.max(0, end - limit);
+        List<FitnessApp.Record> page = new ArrayList<>(end - start);
+        for (int i = end - 1; i >= start; i--) {
+            page.add(records.get(i));
+        }
+        return page;
+    }
+
+    // Liegt die Übung im Cache, wird die Liste gefiltert, sonst blockweise über den RecordCursor gelesen
+    @Override
+    public Stream<FitnessApp.Record> streamRecords(String username, String exName, RecordScan scan) {
+        File exFile = logFile(username, exName);
+        RecordAppender.getDefault().flush(exFile);
+        List<FitnessApp.Record> cached = FitnessApp.getRecordCache().peek(username, exName, exFile);
+        if (cached != null) {
+            return scan.apply(cached);
+        }
+        try {
+            return RecordCursor.open(exFile, scan).stream();
+        } catch (IOException e) {
+            System.err.println("Error reading records: " + e.getMessage());
+            Metrics.Op.GET_RECORDS.get().failed();
+            return Stream.empty();
+        }
+    }
+
+    @Override
+    public List<FitnessApp.Record> getLastSession(String username, String exName) {
+        File exFile = logFile(username, exName);
+        RecordAppender.getDefault().flush(exFile);
+        List<FitnessApp.Record> session = new ArrayList<>();
+        if (!exFile.exists()) {
+            return session;
+        }
+        FileLocks.Hold lock = FileLocks.read(exFile);
+        try (ReverseRecordReader reader = new ReverseRecordReader(exFile)) {
+            FitnessApp.Record record;
+            while ((record = reader.next()) != null) {
+                if (!session.isEmpty() && !session.get(0).date.equals(record.date)) return session;
+                session.add(record);
+            }
+            // Protokoll zu Ende, die Einheit kann im Archiv weitergehen
+            try (Archive.ReverseReader archived = new Archive.ReverseReader(exFile)) {
+                while ((record = archived.next()) != null) {
+                    if (!session.isEmpty() && !session.get(0).date.equals(record.date)) break;
+                    session.add(record);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading records: " + e.getMessage());
+        } finally {
+            lock.release();
+        }
+        return session;
+    }
+
+    // Aus den laufenden Kennzahlen, ohne das Protokoll zu lesen
+    @Override
+    public ProgressionStats stats(String username, String exName) {
+        return ProgressionStats.load(username, exName);
+    }
+
+    // Aus der .rollup-Datei, ohne das Protokoll zu lesen
+    @Override
+    public Rollups rollups(String username, String exName) {
+        return Rollups.load(username, exName);
+    }
+
+    /**
+     * Liest die Datensätze, die zwischen {@code from} und {@code length} angehängt wurden, z.B. um
+     * Kennzahlen nachzuführen, die ein anderer Schreiber nicht fortgeschrieben hat.
+     * @param maxBytes größere Lücken werden nicht gelesen (dann lieber einmal neu aufbauen)
+     * @return Datensätze oder null, wenn die Lücke zu groß ist oder nicht auf Zeilengrenzen liegt
+     */
+    static List<FitnessApp.Record> readAppended(File exFile, long from, long length, long maxBytes) {
+        if (length - from > maxBytes || length <= from) {
+            return null;
+        }
+        FileLocks.Hold lock = FileLocks.read(exFile);
+        try (FileChannel channel = FileChannel.open(exFile.toPath(), StandardOpenOption.READ)) {
+            // Ein Byte davor mitlesen: der Stand muss auf einem Zeilenanfang liegen
+            long start = from == 0 ? 0 : from - 1;
+            ByteBuffer buffer = ByteBuffer.allocate((int) (length - start));
+            while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+                // weiterlesen
+            }
+            byte[] bytes = buffer.array();
+            int end = buffer.position();
+            if (start + end != length || (from > 0 && bytes[0] != '\n') || bytes[end - 1] != '\n') {
+                return null;
+            }
+            return RecordParser.parse(bytes, from == 0 ? 0 : 1, end);
+        } catch (IOException e) {
+            System.err.println("Error reading records: " + e.getMessage());
+            return null;
+        } finally {
+            lock.release();
+        }
+    }
+
+    static File logFile(String username, String exName) {
+        return new File(FitnessApp.BASE_DIR + File.separator + username, exName + ".txt");
+    }
+
+    private static List<FitnessApp.Record> readNewestFirst(File exFile, int skip, int limit) {
+        if (!exFile.exists()) {
+            return new ArrayList<>();
+        }
+        FileLocks.Hold lock = FileLocks.read(exFile);
+        try (ReverseRecordReader reader = new ReverseRecordReader(exFile)) {
+            int skipped = reader.skip(skip);
+            List<FitnessApp.Record> page = reader.next(limit);
+            if (page.size() < limit) {
+                // Protokoll zu Ende, mit den archivierten Datensätzen weitermachen
+                try (Archive.ReverseReader archived = new Archive.ReverseReader(exFile)) {
+                    archived.skip(skip - skipped);
+                    FitnessApp.Record record;
+                    while (page.size() < limit && (record = archived.next()) != null) {
+                        page.add(record);
+                    }
+                }
+            }
+            return page;
+        } catch (IOException e) {
+            System.err.println("Error reading records: " + e.getMessage());
+            Metrics.Op.GET_RECORD_PAGE.get().failed();
+            return new ArrayList<>();
+        } finally {
+            lock.release();
+        }
+    }
+
+    // Archiv und Protokolldatei vollständig einlesen, fehlerhafte Zeilen werden übersprungen
+    static List<FitnessApp.Record> readRecords(File exFile) {
+        FileLocks.Hold lock = FileLocks.read(exFile);
+        try {
+            return concat(Archive.read(exFile), RecordParser.parse(exFile));
+        } catch (IOException e) {
+            // Fehler nur zählen (fehlende Datei ist eine leere Übung), leere Liste zurückgeben
+            if (exFile.exists()) Metrics.Op.GET_RECORDS.get().failed();
+            return new ArrayList<>();
+        } finally {
+            lock.release();
+        }
+    }
+
+    // Archivierte Datensätze vor die aus dem Protokoll
+    private static List<FitnessApp.Record> concat(List<FitnessApp.Record> archived, List<FitnessApp.Record> hot) {
+        if (archived.isEmpty()) {
+            return hot;
+        }
+        List<FitnessApp.Record> records = new ArrayList<>(archived.size() + hot.size());
+        records.addAll(archived);
+        records.addAll(hot);
+        return records;
+    }
+}
@@ -0,0 +1,286 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+
+/**
+ * Verzeichnis der registrierten Benutzernamen als Snapshot plus Append-only-Log.
+ *
+ * Eine Registrierung hängt nur eine Zeile an {@code users.log} an. Beim Start wird der Snapshot
+ * {@code users.snapshot} gelesen und das Log darauf abgespielt. Wird das Log zu lang, wird es in
+ * einen neuen Snapshot verdichtet (atomar ersetzt) und danach geleert. Eine durch einen Absturz
+ * unvollständige letzte Log-Zeile wird verworfen, die übrigen Einträge bleiben erhalten.
+ * Existiert beim ersten Start nur das alte {@code users.ser}, wird es einmalig übernommen;
+ * die Datei selbst bleibt unverändert liegen.
+ *
+ * Mehrere Prozesse (z.B. die GUI und ein {@link BulkTransfer}-Import) dürfen das Verzeichnis
+ * gleichzeitig offen haben: Anhängen und Verdichten laufen unter einer exklusiven Dateisperre auf
+ * dem Log und lesen vorher nach, was andere Prozesse inzwischen eingetragen haben. Hat ein anderer
+ * Prozess verdichtet (neuer Snapshot), wird der Snapshot neu gelesen. Ein verdichteter Snapshot
+ * enthält damit nie nur den veralteten Stand eines Prozesses. {@link #contains} liest ebenfalls nach,
+ * wenn ein Name unbekannt ist.
+ */
+public class UserRegistry implements Closeable {
+
+    public static final String SNAPSHOT_FILE = "users.snapshot";
+    public static final String LOG_FILE = "users.log";
+    public static final String LEGACY_FILE = "users.ser";
+
+    private static final int MIN_COMPACT_ENTRIES = 1000;
+    // Dateisperren gehören dem Prozess; zwei Verzeichnisse in derselben JVM warten hier aufeinander
+    private static final Object PROCESS_LOCK = new Object();
+
+    private final Path snapshot;
+    private final Path log;
+    private final Set<String> usernames = new HashSet<>();
+    private FileChannel logChannel;
+    private int logEntries;
+    // Bytes des Logs, die schon in usernames stehen
+    private long logPosition;
+    // Stand des zuletzt gelesenen Snapshots, um Verdichtungen anderer Prozesse zu erkennen
+    private Object snapshotStamp;
+
+    private interface LockedAction {
+        void run() throws IOException;
+    }
+
+    private UserRegistry(Path snapshot, Path log) {
+        this.snapshot = snapshot;
+        this.log = log;
+    }
+
+    /**
+     * Öffnet das Verzeichnis im aktuellen Arbeitsverzeichnis (wie bisher {@code users.ser}).
+     */
+    public static UserRegistry open() throws IOException {
+        return open(Paths.get(SNAPSHOT_FILE), Paths.get(LOG_FILE), Paths.get(LEGACY_FILE));
+    }
+
+    /**
+     * Öffnet das Verzeichnis: Snapshot lesen, Log abspielen, ggf. {@code users.ser} übernehmen.
+     * @param snapshot Snapshot-Datei
+     * @param log      Log-Datei
+     * @param legacy   altes serialisiertes Set, wird nur genutzt wenn Snapshot und Log fehlen
+     * @throws IOException wenn die Dateien nicht gelesen oder geschrieben werden können
+     */
+    public static UserRegistry open(Path snapshot, Path log, Path legacy) throws IOException {
+        UserRegistry registry = new UserRegistry(snapshot, log);
+        // Ohne APPEND (nicht mit READ kombinierbar); geschrieben wird unter der Sperre ans Ende
+        registry.logChannel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            registry.locked(false, () -> {
+                if (!Files.exists(snapshot) && registry.logChannel.size() == 0 && Files.exists(legacy)) {
+                    registry.usernames.addAll(readLegacy(legacy));
+                    registry.writeSnapshot();
+                    registry.snapshotStamp = registry.snapshotStamp();
+                    System.out.println(registry.usernames.size() + " Benutzer aus '" + legacy + "' übernommen.");
+                } else {
+                    registry.readSnapshot();
+                    registry.replayLog(true);
+                }
+                if (registry.needsCompaction()) {
+                    registry.compactLocked();
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            registry.logChannel.close();
+            throw e;
+        }
+        return registry;
+    }
+
+    /**
+     * Prüft, ob ein Name registriert ist; unbekannte Namen werden im Log nachgesehen, falls ein
+     * anderer Prozess sie inzwischen eingetragen hat.
+     */
+    public synchronized boolean contains(String username) {
+        if (!usernames.contains(username)) {
+            refresh();
+        }
+        return usernames.contains(username);
+    }
+
+    public synchronized int size() {
+        return usernames.size();
+    }
+
+    /**
+     * Übernimmt, was andere Prozesse seit dem letzten Lesen registriert haben.
+     * Lesefehler werden nur gemeldet, der bisherige Stand bleibt gültig.
+     */
+    public synchronized void refresh() {
+        try {
+            locked(true, this::sync);
+        } catch (IOException e) {
+            System.err.println("Fehler beim Nachlesen von '" + log + "': " + e.getMessage());
+        }
+    }
+
+    /**
+     * Registriert einen Benutzernamen mit einer einzigen angehängten Log-Zeile.
+     * Schlägt danach nur das Verdichten fehl, gilt die Registrierung trotzdem (der Fehler wird gemeldet).
+     * @param username Benutzername (bereits normalisiert, z.B. kleingeschrieben)
+     * @return false, wenn der Name bereits registriert ist
+     * @throws IOException wenn die Log-Zeile nicht geschrieben werden kann
+     */
+    public synchronized boolean register(String username) throws IOException {
+        if (username.indexOf('\n') >= 0 || username.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Benutzername darf keinen Zeilenumbruch enthalten.");
+        }
+        boolean[] added = new boolean[1];
+        locked(false, () -> {
+            sync();
+            if (usernames.contains(username)) {
+                return;
+            }
+            ByteBuffer line = ByteBuffer.wrap((username + "\n").getBytes(StandardCharsets.UTF_8));
+            long end = logChannel.size();
+            while (line.hasRemaining()) {
+                end += logChannel.write(line, end);
+            }
+            logPosition = end;
+            usernames.add(username);
+            logEntries++;
+            added[0] = true;
+            if (needsCompaction()) {
+                try {
+                    compactLocked();
+                } catch (IOException e) {
+                    // Die Zeile steht schon im Log, beim nächsten Mal wird erneut verdichtet
+                    System.err.println("Fehler beim Verdichten von '" + log + "': " + e.getMessage());
+                }
+            }
+        });
+        return added[0];
+    }
+
+    /**
+     * Schreibt alle Namen (inklusive der von anderen Prozessen eingetragenen) in einen neuen Snapshot und leert das Log.
+     */
+    public synchronized void compact() throws IOException {
+        locked(false, () -> {
+            sync();
+            compactLocked();
+        });
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (logChannel != null) {
+            logChannel.close();
+        }
+    }
+
+    // Führt die Aktion unter der Sperre auf dem Log aus (geteilt zum Lesen, sonst exklusiv)
+    private void locked(boolean shared, LockedAction action) throws IOException {
+        synchronized (PROCESS_LOCK) {
+            FileLock lock = logChannel.lock(0, Long.MAX_VALUE, shared);
+            try {
+                action.run();
+            } finally {
+                if (lock.isValid()) lock.release();
+            }
+        }
+    }
+
+    // Unter der Sperre: nach einer fremden Verdichtung alles neu lesen, sonst nur das neue Ende des Logs
+    private void sync() throws IOException {
+        if (!Objects.equals(snapshotStamp(), snapshotStamp) || logChannel.size() < logPosition) {
+            readSnapshot();
+            logPosition = 0;
+            logEntries = 0;
+        }
+        replayLog(false);
+    }
+
+    // Unter der exklusiven Sperre
+    private void compactLocked() throws IOException {
+        writeSnapshot();
+        snapshotStamp = snapshotStamp();
+        // Erst nach dem atomaren Ersetzen des Snapshots leeren; ein Absturz dazwischen
+        // führt nur zu doppelten Einträgen, die beim Abspielen ignoriert werden.
+        logChannel.truncate(0);
+        logPosition = 0;
+        logEntries = 0;
+    }
+
+    private boolean needsCompaction() {
+        return logEntries >= Math.max(MIN_COMPACT_ENTRIES, usernames.size() / 4);
+    }
+
+    // Namen kommen nur hinzu, ein neu gelesener Snapshot wird also einfach übernommen
+    private void readSnapshot() throws IOException {
+        snapshotStamp = snapshotStamp();
+        if (!Files.exists(snapshot)) {
+            return;
+        }
+        for (String line : Files.readAllLines(snapshot, StandardCharsets.UTF_8)) {
+            if (!line.isEmpty()) usernames.add(line);
+        }
+    }
+
+    // Ersetzt wird der Snapshot durch ATOMIC_MOVE, dann ändern sich Datei-Schlüssel bzw. Zeitstempel
+    private Object snapshotStamp() throws IOException {
+        if (!Files.exists(snapshot)) {
+            return null;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(snapshot, BasicFileAttributes.class);
+        return Arrays.asList(attributes.fileKey(), attributes.lastModifiedTime(), attributes.size());
+    }
+
+    // Spielt das Log ab logPosition ab; nur beim Öffnen wird eine unvollständige letzte Zeile abgeschnitten
+    private void replayLog(boolean truncatePartial) throws IOException {
+        long size = logChannel.size();
+        if (size <= logPosition) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) (size - logPosition));
+        while (buffer.hasRemaining()) {
+            if (logChannel.read(buffer, logPosition + buffer.position()) < 0) break;
+        }
+        byte[] bytes = buffer.array();
+        int length = buffer.position();
+        int lineStart = 0;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == '\n') {
+                if (i > lineStart) {
+                    usernames.add(new String(bytes, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                    logEntries++;
+                }
+                lineStart = i + 1;
+            }
+        }
+        logPosition += lineStart;
+        if (truncatePartial && lineStart < length) {
+            // Unvollständige letzte Zeile (Absturz beim Schreiben) abschneiden
+            System.err.println("Unvollständiger Eintrag in '" + log + "' verworfen.");
+            logChannel.truncate(logPosition);
+        }
+    }
+
+    private void writeSnapshot() throws IOException {
+        List<String> sorted = new ArrayList<>(usernames);
+        Collections.sort(sorted);
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        Files.write(tmp, sorted, StandardCharsets.UTF_8);
+        Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @SuppressWarnings("unchecked") // Suppress warning for unchecked cast
+    private static Set<String> readLegacy(Path legacy) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(Files.newInputStream(legacy))) {
+            Object obj = ois.readObject();
+            if (obj instanceof Set) {
+                return (Set<String>) obj;
+            }
+            throw new IOException("Unerwarteter Inhalt in '" + legacy + "'");
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Klasse des geladenen Objekts nicht gefunden: " + e.getMessage(), e);
+        }
+    }
+}
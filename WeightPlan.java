@@ -0,0 +1,225 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Gewichtsvorschläge ({@link FitnessApp#calculateNextWeight}) für alle Übungen eines Benutzers
+ * oder aller Benutzer in einem Durchgang, z.B. für einen Wochenplan.
+ *
+ * Die Vorschläge werden parallel aus den gespeicherten Kennzahlen ({@link ProgressionStats}) berechnet
+ * und in der Reihenfolge Benutzer, Übung geliefert. Übungen ohne Vorschlag (keine Datensätze, kein
+ * Gewicht, Lesefehler) werfen keine Ausnahme, sondern liefern ein Ergebnis mit Fehlertext.
+ * Es sind nur wenige Ergebnisse gleichzeitig unterwegs; ein Bericht über alle Benutzer wird also
+ * direkt in die Ausgabe geschrieben, ohne ihn vorher im Speicher zu sammeln.
+ *
+ * Formate des Berichts (eine Zeile je Übung):
+ * <pre>
+ * CSV:    benutzer,übung,vorschlag,fehler
+ * NDJSON: {"user": "...", "exercise": "...", "nextWeight": 52.5, "error": null}
+ * </pre>
+ */
+public class WeightPlan {
+
+    /**
+     * Vorschlag für eine Übung: entweder ein Gewicht oder ein Fehlertext.
+     */
+    public static final class Suggestion {
+        public final String username;
+        public final String exName;
+        // NaN, wenn es keinen Vorschlag gibt
+        public final double weight;
+        // null, wenn es einen Vorschlag gibt
+        public final String error;
+
+        Suggestion(String username, String exName, double weight, String error) {
+            this.username = username;
+            this.exName = exName;
+            this.weight = weight;
+            this.error = error;
+        }
+
+        static Suggestion failed(String username, String exName, String error) {
+            return new Suggestion(username, exName, Double.NaN, error);
+        }
+
+        public boolean isOk() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return username + "/" + exName + ": " + (isOk() ? String.valueOf(weight) : error);
+        }
+    }
+
+    /**
+     * Empfänger der Vorschläge, in der Reihenfolge Benutzer, Übung.
+     */
+    public interface Sink {
+        void accept(Suggestion suggestion) throws IOException;
+    }
+
+    private WeightPlan() {
+    }
+
+    /**
+     * Vorschläge für alle Übungen eines Benutzers.
+     * @param username Benutzername
+     * @return je Übung ein Ergebnis, in der Reihenfolge der Übungen
+     */
+    public static List<Suggestion> forUser(String username) {
+        return collect(username);
+    }
+
+    /**
+     * Vorschläge für alle Übungen aller Benutzer.
+     * @return je Übung ein Ergebnis, nach Benutzer und Übung geordnet
+     */
+    public static List<Suggestion> forAllUsers() {
+        return collect(null);
+    }
+
+    private static List<Suggestion> collect(String username) {
+        List<Suggestion> suggestions = new ArrayList<>();
+        try {
+            run(username, Runtime.getRuntime().availableProcessors(), suggestions::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Nicht beim Sammeln in eine Liste
+        }
+        return suggestions;
+    }
+
+    /**
+     * Berechnet die Vorschläge parallel und übergibt sie der Reihe nach an den Empfänger.
+     * @param username Benutzername oder null für alle Benutzer
+     * @param threads  Anzahl paralleler Threads
+     * @param sink     Empfänger, wird nur vom aufrufenden Thread aufgerufen
+     * @return Anzahl der Ergebnisse
+     * @throws IOException wenn der Empfänger nicht schreiben kann
+     */
+    public static long run(String username, int threads, Sink sink) throws IOException {
+        RecordAppender.getDefault().flushAll();
+        RecordStore store = FitnessApp.getStore();
+        List<String> users = username != null ? List.of(username) : store.listUsers();
+
+        int parallelism = Math.max(1, threads);
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, daemonThreads("weight-plan"));
+        // Begrenztes Fenster berechneter Vorschläge, die der Reihe nach übergeben werden
+        ArrayDeque<Future<Suggestion>> window = new ArrayDeque<>();
+        long count = 0;
+        try {
+            for (String user : users) {
+                for (String exName : store.listExercises(user)) {
+                    window.add(pool.submit(() -> suggest(store, user, exName)));
+                    if (window.size() > 2 * parallelism) {
+                        sink.accept(next(window));
+                        count++;
+                    }
+                }
+            }
+            while (!window.isEmpty()) {
+                sink.accept(next(window));
+                count++;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return count;
+    }
+
+    private static Suggestion suggest(RecordStore store, String username, String exName) {
+        try {
+            return FitnessApp.suggest(username, exName, store.stats(username, exName));
+        } catch (RuntimeException e) {
+            // Ein unlesbares Protokoll soll den Plan der anderen Übungen nicht verhindern
+            return Suggestion.failed(username, exName, "Fehler beim Lesen: " + e.getMessage());
+        }
+    }
+
+    private static Suggestion next(ArrayDeque<Future<Suggestion>> window) throws IOException {
+        try {
+            return window.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Wochenplan abgebrochen");
+        } catch (ExecutionException e) {
+            throw new IOException("Fehler beim Berechnen: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * Schreibt die Vorschläge als Bericht in den Ausgabestrom.
+     * @param out      Ausgabe (wird nicht geschlossen)
+     * @param format   CSV (mit Kopfzeile) oder NDJSON
+     * @param username Benutzername oder null für alle Benutzer
+     * @param threads  Anzahl paralleler Threads
+     * @return Anzahl der Zeilen ohne Kopfzeile
+     * @throws IOException wenn die Ausgabe nicht geschrieben werden kann
+     */
+    public static long writeReport(OutputStream out, BulkTransfer.Format format, String username, int threads)
+            throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == BulkTransfer.Format.CSV) {
+            writer.write("benutzer,übung,vorschlag,fehler\n");
+        }
+        long count = run(username, threads, suggestion -> writer.write(line(format, suggestion)));
+        writer.flush();
+        return count;
+    }
+
+    private static String line(BulkTransfer.Format format, Suggestion suggestion) {
+        StringBuilder sb = new StringBuilder();
+        if (format == BulkTransfer.Format.CSV) {
+            sb.append(BulkTransfer.csvField(suggestion.username)).append(',')
+                    .append(BulkTransfer.csvField(suggestion.exName)).append(',');
+            if (suggestion.isOk()) sb.append(suggestion.weight);
+            sb.append(',');
+            if (!suggestion.isOk()) sb.append(BulkTransfer.csvField(suggestion.error));
+        } else {
+            sb.append("{\"user\":");
+            Json.write(sb, suggestion.username);
+            sb.append(",\"exercise\":");
+            Json.write(sb, suggestion.exName);
+            sb.append(",\"nextWeight\":");
+            Json.write(sb, suggestion.isOk() ? suggestion.weight : null);
+            sb.append(",\"error\":");
+            Json.write(sb, suggestion.error);
+            sb.append('}');
+        }
+        return sb.append('\n').toString();
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return new ThreadFactory() {
+            private int counter;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, name + "-" + (++counter));
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Aufruf:
+     * <pre>
+     * java WeightPlan &lt;datei.csv|datei.ndjson&gt; [benutzer]
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Aufruf: WeightPlan <datei.csv|datei.ndjson> [benutzer]");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        long count;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(args[0]), 1 << 16)) {
+            count = writeReport(out, BulkTransfer.Format.of(args[0]), args.length > 1 ? args[1] : null,
+                    Runtime.getRuntime().availableProcessors());
+        }
+        System.out.println(count + " Vorschläge geschrieben (" + (System.nanoTime() - start) / 1_000_000 + " ms).");
+    }
+}
@@ -0,0 +1,122 @@
+package fitness.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+
+/**
+ * Zugriff auf die zu messenden Methoden der App.
+ *
+ * Die App liegt (BlueJ-Layout) im Default-Package und kann aus einem benannten Package nicht
+ * importiert werden, JMH verlangt für Benchmarks aber ein benanntes Package. Die Methoden werden
+ * deshalb einmalig als {@code static final} MethodHandles gebunden; der JIT behandelt deren
+ * Aufruf wie einen direkten Aufruf, die Messung wird dadurch nicht verfälscht.
+ */
+final class App {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private static final MethodHandle GET_RECORDS = findStatic("FitnessApp", "getRecords",
+            MethodType.methodType(List.class, String.class, String.class));
+    private static final MethodHandle ADD_RECORD = findStatic("FitnessApp", "addRecord",
+            MethodType.methodType(boolean.class, String.class, String.class, String.class, List.class));
+    private static final MethodHandle LIST_EXERCISES = findStatic("FitnessApp", "listExercises",
+            MethodType.methodType(List.class, String.class));
+    private static final MethodHandle CALCULATE_NEXT_WEIGHT = findStatic("FitnessApp", "calculateNextWeight",
+            MethodType.methodType(double.class, String.class, String.class));
+    private static final MethodHandle INVALIDATE_CACHE = bindInvalidate();
+    private static final MethodHandle REBUILD_STATS = findStatic("ProgressionStats", "rebuild",
+            MethodType.methodType(appClass("ProgressionStats"), String.class, String.class))
+            .asType(MethodType.methodType(Object.class, String.class, String.class));
+
+    private App() {
+    }
+
+    static List<?> getRecords(String username, String exName) {
+        try {
+            return (List<?>) GET_RECORDS.invokeExact(username, exName);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static boolean addRecord(String username, String exName, String date, List<Integer> repsAndWeights) {
+        try {
+            return (boolean) ADD_RECORD.invokeExact(username, exName, date, repsAndWeights);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static List<?> listExercises(String username) {
+        try {
+            return (List<?>) LIST_EXERCISES.invokeExact(username);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    static double calculateNextWeight(String username, String exName) {
+        try {
+            return (double) CALCULATE_NEXT_WEIGHT.invokeExact(username, exName);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Verwirft den Cache-Eintrag, damit der nächste {@code getRecords}-Aufruf die Datei liest.
+     */
+    static void invalidateCache(String username, String exName) {
+        try {
+            INVALIDATE_CACHE.invokeExact(username, exName);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    /**
+     * Baut die Kennzahlen für den Gewichtsvorschlag vollständig aus dem Protokoll neu auf.
+     */
+    static Object rebuildStats(String username, String exName) {
+        try {
+            return (Object) REBUILD_STATS.invokeExact(username, exName);
+        } catch (Throwable t) {
+            throw rethrow(t);
+        }
+    }
+
+    private static MethodHandle bindInvalidate() {
+        try {
+            Class<?> cacheClass = appClass("RecordCache");
+            Object cache = findStatic("FitnessApp", "getRecordCache", MethodType.methodType(cacheClass)).invoke();
+            return LOOKUP.findVirtual(cacheClass, "invalidate", MethodType.methodType(void.class, String.class, String.class))
+                    .bindTo(cache);
+        } catch (Throwable t) {
+            throw new IllegalStateException("RecordCache nicht gefunden", t);
+        }
+    }
+
+    private static MethodHandle findStatic(String className, String name, MethodType type) {
+        try {
+            return LOOKUP.findStatic(appClass(className), name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Methode " + className + "." + name + " nicht gefunden", e);
+        }
+    }
+
+    private static Class<?> appClass(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("Klasse " + name + " nicht im Klassenpfad", e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable t) {
+        if (t instanceof RuntimeException) return (RuntimeException) t;
+        if (t instanceof Error) throw (Error) t;
+        return new IllegalStateException(t);
+    }
+}
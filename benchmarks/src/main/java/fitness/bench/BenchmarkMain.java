@@ -0,0 +1,21 @@
+package fitness.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Startet JMH wie {@code org.openjdk.jmh.Main}, hängt aber den GC-Profiler an,
+ * wenn kein Profiler angegeben wurde, damit die Allokationsrate immer mit ausgegeben wird.
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-prof") && !arguments.contains("-h") && !arguments.contains("-l")) {
+            arguments.add("-prof");
+            arguments.add("gc");
+        }
+        org.openjdk.jmh.Main.main(arguments.toArray(new String[0]));
+    }
+}
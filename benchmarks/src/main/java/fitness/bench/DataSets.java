@@ -0,0 +1,73 @@
+package fitness.bench;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Erzeugt Testdaten im Protokollformat der App unter {@code ./users/<Benutzer>/}.
+ */
+final class DataSets {
+
+    static final String BASE_DIR = "users";
+
+    private static final LocalDate START = LocalDate.of(2000, 1, 1);
+
+    private DataSets() {
+    }
+
+    /**
+     * Schreibt ein Protokoll mit der angegebenen Anzahl Datensätzen zu je drei Sätzen.
+     * Mehrere Datensätze teilen sich ein Datum, wie bei mehreren Einträgen pro Training.
+     */
+    static void writeExercise(String username, String exName, int records, long seed) throws IOException {
+        File userDir = new File(BASE_DIR, username);
+        userDir.mkdirs();
+        Random random = new Random(seed);
+        try (BufferedWriter writer = Files.newBufferedWriter(new File(userDir, exName + ".txt").toPath())) {
+            LocalDate date = START;
+            String dateText = date.toString();
+            for (int i = 0; i < records; i++) {
+                if (i % 3 == 0) {
+                    date = date.plusDays(1);
+                    dateText = date.toString();
+                }
+                writer.write(dateText);
+                for (int set = 0; set < 3; set++) {
+                    writer.write(',');
+                    writer.write(Integer.toString(4 + random.nextInt(9)));
+                    writer.write(',');
+                    writer.write(Integer.toString(20 + random.nextInt(181)));
+                }
+                writer.write(System.lineSeparator());
+            }
+        }
+    }
+
+    /**
+     * Legt die angegebene Anzahl leerer Übungen an.
+     */
+    static void createExercises(String username, int count) throws IOException {
+        File userDir = new File(BASE_DIR, username);
+        userDir.mkdirs();
+        for (int i = 0; i < count; i++) {
+            new File(userDir, "Übung " + i + ".txt").createNewFile();
+        }
+    }
+
+    /**
+     * Löscht das Verzeichnis eines Benutzers samt Inhalt.
+     */
+    static void deleteUser(String username) throws IOException {
+        Path userDir = Paths.get(BASE_DIR, username);
+        if (!Files.exists(userDir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(userDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package fitness.bench;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Misst das Auflisten der Übungen eines Benutzers mit 10 bis 100k Übungen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExerciseListBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int exerciseCount;
+
+    private String username;
+
+    @Setup(Level.Trial)
+    public void createExercises() throws IOException {
+        username = "jmh-exercises-" + exerciseCount;
+        DataSets.deleteUser(username);
+        DataSets.createExercises(username, exerciseCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteExercises() throws IOException {
+        DataSets.deleteUser(username);
+    }
+
+    @Benchmark
+    public List<?> listExercises() {
+        return App.listExercises(username);
+    }
+}
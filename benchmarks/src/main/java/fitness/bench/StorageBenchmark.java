@@ -0,0 +1,70 @@
+package fitness.bench;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Misst Lesen, Anhängen und den Gewichtsvorschlag für eine Übung mit 1k, 100k und 10M Datensätzen.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class StorageBenchmark {
+
+    private static final String EXERCISE = "Bank";
+    private static final List<Integer> NEW_RECORD = Arrays.asList(8, 100, 8, 100, 6, 100);
+
+    @Param({"1000", "100000", "10000000"})
+    public int recordCount;
+
+    private String username;
+
+    @Setup(Level.Trial)
+    public void createLog() throws IOException {
+        username = "jmh-storage-" + recordCount;
+        DataSets.deleteUser(username);
+        DataSets.writeExercise(username, EXERCISE, recordCount, 42);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLog() throws IOException {
+        DataSets.deleteUser(username);
+    }
+
+    /** Vollständiges Lesen und Parsen des Protokolls. */
+    @Benchmark
+    public List<?> getRecordsCold() {
+        App.invalidateCache(username, EXERCISE);
+        return App.getRecords(username, EXERCISE);
+    }
+
+    /** Wiederholter Zugriff auf eine unveränderte Übung (Cache-Treffer). */
+    @Benchmark
+    public List<?> getRecordsCached() {
+        return App.getRecords(username, EXERCISE);
+    }
+
+    @Benchmark
+    public boolean addRecord() {
+        return App.addRecord(username, EXERCISE, "2030-01-01", NEW_RECORD);
+    }
+
+    /** Vorschlag über die fortgeschriebenen Kennzahlen. */
+    @Benchmark
+    public double calculateNextWeight() {
+        return App.calculateNextWeight(username, EXERCISE);
+    }
+
+    /** Vorschlag ohne gültige Kennzahlen, also mit vollständigem Durchlauf über das Protokoll. */
+    @Benchmark
+    public Object rebuildProgressionStats() {
+        App.invalidateCache(username, EXERCISE);
+        return App.rebuildStats(username, EXERCISE);
+    }
+}